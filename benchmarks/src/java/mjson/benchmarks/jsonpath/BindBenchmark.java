@@ -0,0 +1,74 @@
+package mjson.benchmarks.jsonpath;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayway.jsonpath.DocumentContext;
+import com.jayway.jsonpath.JsonPath;
+import com.jayway.jsonpath.TypeRef;
+import mjson.Json;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Binding the <code>related</code> array of a parsed document to a list of {@link Donut}
+ * beans: directly from the mjson tree, through a Jackson round-trip of the mjson result
+ * (serialize, then let Jackson parse and bind), and with json-path's Jackson providers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class BindBenchmark {
+
+    static final JsonPath RELATED = JsonPath.compile("$.related");
+    static final TypeRef<List<Donut>> DONUTS = new TypeRef<List<Donut>>() {};
+    static final TypeReference<List<Donut>> JACKSON_DONUTS = new TypeReference<List<Donut>>() {};
+
+    /**
+     * <code>2MB</code> holds about 10k donuts.
+     */
+    @Param({"100KB", "2MB"})
+    public String size;
+
+    private DocumentContext mjson;
+    private DocumentContext jackson;
+    private ObjectMapper mapper;
+
+    @Setup
+    public void setup() {
+        mjson = JsonPath.using(Providers.configuration(Providers.MJSON)).parse(Documents.text(size));
+        jackson = JsonPath.using(Providers.configuration(Providers.JACKSON)).parse(Documents.text(size));
+        mapper = new ObjectMapper();
+    }
+
+    @Benchmark
+    public List<Donut> mjson() {
+        return mjson.read(RELATED, DONUTS);
+    }
+
+    @Benchmark
+    public List<Donut> mjsonJacksonRoundTrip() throws IOException {
+        Json related = mjson.read(RELATED);
+        return mapper.readValue(related.toString(), JACKSON_DONUTS);
+    }
+
+    @Benchmark
+    public List<Donut> jackson() {
+        return jackson.read(RELATED, DONUTS);
+    }
+}
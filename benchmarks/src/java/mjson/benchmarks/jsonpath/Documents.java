@@ -0,0 +1,151 @@
+package mjson.benchmarks.jsonpath;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Benchmark input documents, selected by the <code>size</code> JMH parameter.
+ *
+ * <p><code>json-test-doc</code> is the document of the jsonpath test suite as is. The other
+ * sizes are generated: the same donut document with a <code>related</code> array of donuts
+ * appended until the text reaches the requested size. All documents therefore answer the
+ * same paths, and the paths that reach into <code>related</code> scale with the size.</p>
+ *
+ * <p>Sizes prefixed with <code>telemetry-</code>, such as <code>telemetry-20MB</code>, are
+ * an array of numeric records instead: a timestamp, a host name, 16 doubles, 8 integers and
+ * a flag each.</p>
+ */
+public final class Documents {
+
+    public static final String TEST_DOC = "json-test-doc";
+    public static final String TELEMETRY = "telemetry-";
+
+    private static final String[] BATTERS = {"Regular", "Chocolate", "Blueberry", "Devil's Food"};
+    private static final String[] TOPPINGS = {"None", "Glazed", "Sugar", "Powdered Sugar", "Chocolate", "Maple"};
+
+    private static final Map<String, String> cache = new HashMap<String, String>();
+
+    private Documents() {
+    }
+
+    public static synchronized String text(String size) {
+        String text = cache.get(size);
+        if (text == null) {
+            if (TEST_DOC.equals(size))
+                text = testDocument();
+            else if (size.startsWith(TELEMETRY))
+                text = telemetry(parseSize(size.substring(TELEMETRY.length())));
+            else
+                text = generate(parseSize(size));
+            cache.put(size, text);
+        }
+        return text;
+    }
+
+    public static byte[] bytes(String size) {
+        return text(size).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parses sizes such as <code>1KB</code>, <code>100KB</code> or <code>10MB</code>.
+     */
+    static long parseSize(String size) {
+        String s = size.trim().toUpperCase();
+        if (s.endsWith("MB"))
+            return Long.parseLong(s.substring(0, s.length() - 2)) * 1024 * 1024;
+        else if (s.endsWith("KB"))
+            return Long.parseLong(s.substring(0, s.length() - 2)) * 1024;
+        else
+            return Long.parseLong(s);
+    }
+
+    static String testDocument() {
+        InputStream in = Documents.class.getResourceAsStream("/json-test-doc.json");
+        if (in == null)
+            throw new IllegalStateException("json-test-doc.json is not on the classpath");
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] A = new byte[4096];
+            for (int cnt = in.read(A); cnt > -1; cnt = in.read(A))
+                out.write(A, 0, cnt);
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            try {
+                in.close();
+            } catch (IOException e) {
+            }
+        }
+    }
+
+    static String generate(long targetSize) {
+        Random random = new Random(targetSize);
+        String head = testDocument().trim();
+        StringBuilder sb = new StringBuilder((int) Math.min(Integer.MAX_VALUE - 16, targetSize + 1024));
+        sb.append(head, 0, head.lastIndexOf('}'));
+        sb.append(",\n\"related\":[");
+        for (int id = 0; sb.length() < targetSize; id++) {
+            if (id > 0)
+                sb.append(',');
+            appendDonut(sb, id, random);
+        }
+        sb.append("]}");
+        return sb.toString();
+    }
+
+    static String telemetry(long targetSize) {
+        Random random = new Random(targetSize);
+        StringBuilder sb = new StringBuilder((int) Math.min(Integer.MAX_VALUE - 16, targetSize + 1024));
+        sb.append('[');
+        for (int id = 0; sb.length() < targetSize; id++) {
+            if (id > 0)
+                sb.append(",\n");
+            sb.append("{\"ts\":").append(1480000000000L + id * 1000L)
+              .append(",\"host\":\"host-").append(id % 64)
+              .append("\",\"values\":[");
+            for (int i = 0; i < 16; i++) {
+                if (i > 0)
+                    sb.append(',');
+                sb.append(Math.round(random.nextDouble() * 100000) / 1000.0);
+            }
+            sb.append("],\"counters\":[");
+            for (int i = 0; i < 8; i++) {
+                if (i > 0)
+                    sb.append(',');
+                sb.append(random.nextInt(100000));
+            }
+            sb.append("],\"ok\":").append(random.nextInt(10) > 0).append('}');
+        }
+        sb.append(']');
+        return sb.toString();
+    }
+
+    private static void appendDonut(StringBuilder sb, int id, Random random) {
+        sb.append("{\"id\":").append(1000 + id)
+          .append(",\"type\":\"donut\",\"name\":\"Donut ").append(id)
+          .append("\",\"available\":").append(random.nextBoolean())
+          .append(",\"ppu\":").append(Math.round(random.nextDouble() * 500) / 100.0)
+          .append(",\"batters\":{\"batter\":[");
+        int batters = 1 + random.nextInt(BATTERS.length);
+        for (int i = 0; i < batters; i++) {
+            if (i > 0)
+                sb.append(',');
+            sb.append("{\"id\":\"").append(1001 + i).append("\",\"type\":\"")
+              .append(BATTERS[i]).append("\"}");
+        }
+        sb.append("]},\"toppings\":[");
+        int toppings = random.nextInt(TOPPINGS.length);
+        for (int i = 0; i < toppings; i++) {
+            if (i > 0)
+                sb.append(',');
+            sb.append('"').append(TOPPINGS[(id + i) % TOPPINGS.length]).append('"');
+        }
+        sb.append("]}");
+    }
+}
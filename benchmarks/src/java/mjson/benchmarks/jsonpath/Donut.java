@@ -0,0 +1,106 @@
+package mjson.benchmarks.jsonpath;
+
+import java.util.List;
+
+/**
+ * The bean the elements of the generated <code>related</code> array are bound to.
+ */
+public class Donut {
+
+    public static class Batter {
+        private String id;
+        private String type;
+
+        public String getId() {
+            return id;
+        }
+
+        public void setId(String id) {
+            this.id = id;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public void setType(String type) {
+            this.type = type;
+        }
+    }
+
+    public static class Batters {
+        private List<Batter> batter;
+
+        public List<Batter> getBatter() {
+            return batter;
+        }
+
+        public void setBatter(List<Batter> batter) {
+            this.batter = batter;
+        }
+    }
+
+    private int id;
+    private String type;
+    private String name;
+    private boolean available;
+    private double ppu;
+    private Batters batters;
+    private List<String> toppings;
+
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public boolean isAvailable() {
+        return available;
+    }
+
+    public void setAvailable(boolean available) {
+        this.available = available;
+    }
+
+    public double getPpu() {
+        return ppu;
+    }
+
+    public void setPpu(double ppu) {
+        this.ppu = ppu;
+    }
+
+    public Batters getBatters() {
+        return batters;
+    }
+
+    public void setBatters(Batters batters) {
+        this.batters = batters;
+    }
+
+    public List<String> getToppings() {
+        return toppings;
+    }
+
+    public void setToppings(List<String> toppings) {
+        this.toppings = toppings;
+    }
+}
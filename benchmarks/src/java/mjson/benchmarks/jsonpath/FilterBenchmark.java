@@ -0,0 +1,50 @@
+package mjson.benchmarks.jsonpath;
+
+import com.jayway.jsonpath.DocumentContext;
+import com.jayway.jsonpath.JsonPath;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A filter predicate over the <code>related</code> array of the generated documents, which
+ * the jsonpath test document does not have.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class FilterBenchmark {
+
+    static final JsonPath RELATED_FILTER = JsonPath.compile("$.related[?(@.ppu < 1.0 && @.available == true)].name");
+
+    @Param({Providers.MJSON, Providers.MJSON_COMPACT, Providers.MJSON_LAZY, Providers.MJSON_LIVE_KEYS, Providers.JACKSON, Providers.GSON, Providers.JSON_SMART})
+    public String provider;
+
+    @Param({"1KB", "100KB", "10MB", "100MB"})
+    public String size;
+
+    private DocumentContext document;
+
+    @Setup
+    public void setup() {
+        document = JsonPath.using(Providers.configuration(provider)).parse(Documents.text(size));
+    }
+
+    @Benchmark
+    public Object filter() {
+        return document.read(RELATED_FILTER);
+    }
+}
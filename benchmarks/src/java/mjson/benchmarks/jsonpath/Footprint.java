@@ -0,0 +1,64 @@
+package mjson.benchmarks.jsonpath;
+
+import mjson.Json;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Heap retained by a parsed document, for each provider: the heap in use after a full GC
+ * with the tree held, less the heap in use before parsing. Run from the benchmark jar with
+ * a size and, optionally, the providers to compare:
+ *
+ * <pre>
+ * java -Xmx4g -cp target/benchmarks.jar mjson.benchmarks.jsonpath.Footprint telemetry-20MB mjson mjson-compact
+ * </pre>
+ *
+ * <p>Timings are left to JMH; this only measures what a tree keeps alive, which allocation
+ * profilers such as <code>-prof gc</code> do not report.</p>
+ */
+public final class Footprint {
+
+    private static final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+
+    // the tree being measured, held here so the previous one is unreachable when measuring
+    private static Object tree;
+
+    private Footprint() {
+    }
+
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.err.println("Usage: Footprint <size> [provider...]");
+            System.exit(1);
+        }
+        String text = Documents.text(args[0]);
+        List<String> providers = args.length > 1
+                ? Arrays.asList(args).subList(1, args.length)
+                : Arrays.asList(Providers.MJSON, Providers.MJSON_LAZY, Providers.JACKSON, Providers.GSON,
+                                Providers.JSON_SMART, Providers.MJSON_COMPACT);
+        System.out.printf("%s: %.1fMB of text%n", args[0], text.length() / 1048576.0);
+        System.out.println("| provider | tree | tree / text |");
+        System.out.println("|----------|------|-------------|");
+        for (String provider : providers) {
+            tree = null;
+            long before = used();
+            tree = Providers.configuration(provider).jsonProvider().parse(text);
+            long retained = used() - before;
+            System.out.printf("| `%s` | %.0fMB | %.1fx |%n", provider, retained / 1048576.0, (double) retained / text.length());
+            // mjson-compact replaces the global factory
+            Json.setGlobalFactory(Json.defaultFactory);
+        }
+    }
+
+    private static long used() {
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            used = Math.min(used, memory.getHeapMemoryUsage().getUsed());
+        }
+        return used;
+    }
+}
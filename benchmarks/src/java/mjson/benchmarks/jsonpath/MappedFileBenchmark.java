@@ -0,0 +1,71 @@
+package mjson.benchmarks.jsonpath;
+
+import mjson.jsonpath.spi.json.MjsonJsonProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing a file with the mjson providers, read as a stream and memory-mapped by
+ * <code>MjsonJsonProvider.parse(Path)</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class MappedFileBenchmark {
+
+    @Param({Providers.MJSON, Providers.MJSON_LAZY})
+    public String provider;
+
+    @Param({Documents.TEST_DOC, "1KB", "100KB", "10MB", "100MB"})
+    public String size;
+
+    private MjsonJsonProvider parser;
+    private Path file;
+
+    @Setup
+    public void setup() throws IOException {
+        parser = (MjsonJsonProvider) Providers.configuration(provider).jsonProvider();
+        file = Files.createTempFile("mapped-file-benchmark", ".json");
+        Files.write(file, Documents.bytes(size));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public Object parseFileStream() throws IOException {
+        InputStream in = new FileInputStream(file.toFile());
+        try {
+            return parser.parse(in, "UTF-8");
+        } finally {
+            in.close();
+        }
+    }
+
+    @Benchmark
+    public Object parseMappedFile() {
+        return parser.parse(file);
+    }
+}
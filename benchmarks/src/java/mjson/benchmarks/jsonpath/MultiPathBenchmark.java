@@ -0,0 +1,74 @@
+package mjson.benchmarks.jsonpath;
+
+import com.jayway.jsonpath.JsonPath;
+import mjson.Json;
+import mjson.jsonpath.MjsonJsonPath;
+import mjson.jsonpath.stream.JsonPathSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Extracting 24 fields from a parsed document: one <code>JsonPath.read</code> per field
+ * against one traversal by a {@link JsonPathSet}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class MultiPathBenchmark {
+
+    static final String[] FIELDS = {
+            "$.id", "$.type", "$.name", "$.available", "$.ppu",
+            "$.batters.batter[0].id", "$.batters.batter[0].type",
+            "$.batters.batter[1].id", "$.batters.batter[1].type",
+            "$.batters.batter[2].id", "$.batters.batter[2].type",
+            "$.batters.batter[3].id", "$.batters.batter[3].type",
+            "$.toppings[0]", "$.toppings[1]", "$.toppings[2]", "$.toppings[3]",
+            "$.batters.batter[*].type", "$.toppings[*]",
+            "$.related[0].id", "$.related[0].name", "$.related[0].ppu",
+            "$.related[0].batters.batter[0].type", "$.related[0].toppings[*]"
+    };
+
+    @Param({"1KB", "100KB"})
+    public String size;
+
+    private Json document;
+    private JsonPath[] paths;
+    private JsonPathSet set;
+
+    @Setup
+    public void setup() {
+        document = Json.read(Documents.text(size));
+        paths = new JsonPath[FIELDS.length];
+        for (int i = 0; i < FIELDS.length; i++)
+            paths[i] = JsonPath.compile(FIELDS[i]);
+        set = JsonPathSet.compile(FIELDS);
+    }
+
+    @Benchmark
+    public Object[] eachPath() {
+        Object[] values = new Object[paths.length];
+        for (int i = 0; i < paths.length; i++)
+            values[i] = paths[i].read(document, MjsonJsonPath.configuration());
+        return values;
+    }
+
+    @Benchmark
+    public Map<String, Object> pathSet() {
+        return set.read(document);
+    }
+}
@@ -0,0 +1,67 @@
+package mjson.benchmarks.jsonpath;
+
+import com.jayway.jsonpath.DocumentContext;
+import com.jayway.jsonpath.JsonPath;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-place <code>set</code>, <code>add</code> and <code>delete</code> on a parsed document.
+ * Every invocation leaves the document as it found it, so the document is parsed only once
+ * per trial: <code>set</code> writes the value that is already there, and <code>add</code> is
+ * measured together with the <code>delete</code> that undoes it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class MutationBenchmark {
+
+    static final JsonPath ALL_NAMES = JsonPath.compile("$..name");
+    static final JsonPath TOPPINGS = JsonPath.compile("$.toppings");
+    static final JsonPath ADDED_TOPPING = JsonPath.compile("$.toppings[4]");
+    static final JsonPath NAME = JsonPath.compile("$.name");
+
+    @Param({Providers.MJSON, Providers.MJSON_COMPACT, Providers.JACKSON, Providers.GSON, Providers.JSON_SMART})
+    public String provider;
+
+    @Param({Documents.TEST_DOC, "1KB", "100KB", "10MB", "100MB"})
+    public String size;
+
+    private DocumentContext document;
+
+    @Setup
+    public void setup() {
+        document = JsonPath.using(Providers.configuration(provider)).parse(Documents.text(size));
+        document.set(ALL_NAMES, "Cake");
+    }
+
+    @Benchmark
+    public Object set() {
+        return document.set(NAME, "Cake").json();
+    }
+
+    @Benchmark
+    public Object setDeepScan() {
+        return document.set(ALL_NAMES, "Cake").json();
+    }
+
+    @Benchmark
+    public Object addThenDelete() {
+        document.add(TOPPINGS, "Sprinkles");
+        return document.delete(ADDED_TOPPING).json();
+    }
+}
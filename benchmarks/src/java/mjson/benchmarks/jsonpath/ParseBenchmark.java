@@ -0,0 +1,88 @@
+package mjson.benchmarks.jsonpath;
+
+import com.jayway.jsonpath.JsonPath;
+import com.jayway.jsonpath.ParseContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing a whole document into each provider's tree, from a <code>String</code>, from an
+ * <code>InputStream</code> and from a file read as a stream; and parsing a document to read
+ * a single value from it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ParseBenchmark {
+
+    @Param({Providers.MJSON, Providers.MJSON_COMPACT, Providers.MJSON_LAZY, Providers.JACKSON, Providers.GSON, Providers.JSON_SMART})
+    public String provider;
+
+    @Param({Documents.TEST_DOC, "1KB", "100KB", "10MB", "100MB"})
+    public String size;
+
+    private ParseContext parser;
+    private String text;
+    private byte[] bytes;
+    private Path file;
+
+    @Setup
+    public void setup() throws IOException {
+        parser = JsonPath.using(Providers.configuration(provider));
+        text = Documents.text(size);
+        bytes = Documents.bytes(size);
+        file = Files.createTempFile("parse-benchmark", ".json");
+        Files.write(file, bytes);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public Object parseString() {
+        return parser.parse(text).json();
+    }
+
+    @Benchmark
+    public Object parseAndReadOne() {
+        return parser.parse(text).read(ReadBenchmark.BATTER_TYPE);
+    }
+
+    @Benchmark
+    public Object parseStream() {
+        return parser.parse(new ByteArrayInputStream(bytes)).json();
+    }
+
+    @Benchmark
+    public Object parseFileStream() throws IOException {
+        InputStream in = new FileInputStream(file.toFile());
+        try {
+            return parser.parse(in).json();
+        } finally {
+            in.close();
+        }
+    }
+}
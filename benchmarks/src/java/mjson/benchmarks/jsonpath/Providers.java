@@ -0,0 +1,73 @@
+package mjson.benchmarks.jsonpath;
+
+import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.spi.json.GsonJsonProvider;
+import com.jayway.jsonpath.spi.json.JacksonJsonProvider;
+import com.jayway.jsonpath.spi.json.JsonSmartJsonProvider;
+import com.jayway.jsonpath.spi.mapper.GsonMappingProvider;
+import com.jayway.jsonpath.spi.mapper.JacksonMappingProvider;
+import com.jayway.jsonpath.spi.mapper.JsonSmartMappingProvider;
+import mjson.Json;
+import mjson.jsonpath.spi.json.CompactJsonFactory;
+import mjson.jsonpath.spi.json.MjsonJsonProvider;
+import mjson.jsonpath.spi.mapper.MjsonMappingProvider;
+
+/**
+ * The json-path configurations the benchmarks compare, selected by the <code>provider</code>
+ * JMH parameter.
+ */
+public final class Providers {
+
+    public static final String MJSON = "mjson";
+    public static final String MJSON_LIVE_KEYS = "mjson-livekeys";
+    public static final String MJSON_COMPACT = "mjson-compact";
+    public static final String MJSON_LAZY = "mjson-lazy";
+    public static final String JACKSON = "jackson";
+    public static final String GSON = "gson";
+    public static final String JSON_SMART = "jsonsmart";
+
+    private Providers() {
+    }
+
+    public static Configuration configuration(String provider) {
+        if (MJSON.equals(provider)) {
+            return Configuration.builder()
+                    .jsonProvider(new MjsonJsonProvider())
+                    .mappingProvider(new MjsonMappingProvider())
+                    .build();
+        } else if (MJSON_LIVE_KEYS.equals(provider)) {
+            return Configuration.builder()
+                    .jsonProvider(new MjsonJsonProvider(true))
+                    .mappingProvider(new MjsonMappingProvider())
+                    .build();
+        } else if (MJSON_COMPACT.equals(provider)) {
+            // mjson builds trees with the global factory; a JMH fork runs a single provider
+            Json.setGlobalFactory(new CompactJsonFactory());
+            return Configuration.builder()
+                    .jsonProvider(new MjsonJsonProvider())
+                    .mappingProvider(new MjsonMappingProvider())
+                    .build();
+        } else if (MJSON_LAZY.equals(provider)) {
+            return Configuration.builder()
+                    .jsonProvider(MjsonJsonProvider.lazy())
+                    .mappingProvider(new MjsonMappingProvider())
+                    .build();
+        } else if (JACKSON.equals(provider)) {
+            return Configuration.builder()
+                    .jsonProvider(new JacksonJsonProvider())
+                    .mappingProvider(new JacksonMappingProvider())
+                    .build();
+        } else if (GSON.equals(provider)) {
+            return Configuration.builder()
+                    .jsonProvider(new GsonJsonProvider())
+                    .mappingProvider(new GsonMappingProvider())
+                    .build();
+        } else if (JSON_SMART.equals(provider)) {
+            return Configuration.builder()
+                    .jsonProvider(new JsonSmartJsonProvider())
+                    .mappingProvider(new JsonSmartMappingProvider())
+                    .build();
+        }
+        throw new IllegalArgumentException("Unknown provider " + provider);
+    }
+}
@@ -0,0 +1,75 @@
+package mjson.benchmarks.jsonpath;
+
+import com.jayway.jsonpath.DocumentContext;
+import com.jayway.jsonpath.JsonPath;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Path evaluation over an already parsed document: deep scans, a deep scan with a filter
+ * predicate and typed reads through each provider's mapping provider.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ReadBenchmark {
+
+    static final JsonPath DEEP_SCAN = JsonPath.compile("$..ppu");
+    static final JsonPath DEEP_SCAN_FILTER = JsonPath.compile("$..batter[?(@.type == 'Chocolate')]");
+    static final JsonPath PPU = JsonPath.compile("$.ppu");
+    static final JsonPath BATTER_TYPE = JsonPath.compile("$.batters.batter[1].type");
+    static final JsonPath TOPPINGS = JsonPath.compile("$.toppings");
+
+    @Param({Providers.MJSON, Providers.MJSON_COMPACT, Providers.MJSON_LAZY, Providers.MJSON_LIVE_KEYS, Providers.JACKSON, Providers.GSON, Providers.JSON_SMART})
+    public String provider;
+
+    @Param({Documents.TEST_DOC, "1KB", "100KB", "10MB", "100MB"})
+    public String size;
+
+    private DocumentContext document;
+
+    @Setup
+    public void setup() {
+        document = JsonPath.using(Providers.configuration(provider)).parse(Documents.text(size));
+    }
+
+    @Benchmark
+    public Object deepScan() {
+        return document.read(DEEP_SCAN);
+    }
+
+    @Benchmark
+    public Object deepScanFilter() {
+        return document.read(DEEP_SCAN_FILTER);
+    }
+
+    @Benchmark
+    public Double readDouble() {
+        return document.read(PPU, Double.class);
+    }
+
+    @Benchmark
+    public String readString() {
+        return document.read(BATTER_TYPE, String.class);
+    }
+
+    @Benchmark
+    public List<?> readList() {
+        return document.read(TOPPINGS, List.class);
+    }
+}
@@ -0,0 +1,153 @@
+package mjson.benchmarks.nsjsobject;
+
+import mjson.Json;
+import mjson.nsjsobject.LocalEngine;
+import mjson.nsjsobject.NetscapeJsonFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <code>NetscapeJsonFactory</code> elements over a {@link LocalEngine}, the per-crossing
+ * <code>latency</code> standing in for LiveConnect: reading and writing an object member by
+ * member and in bulk, appending to an array, write-behind, cached reads, and keeping a
+ * mirror of a model in step with a patch instead of importing it again.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class BridgeBenchmark {
+
+    static final int MEMBERS = 100;
+    static final int ELEMENTS = 1000;
+    static final int CHANGES = 10;
+
+    /**
+     * Nanoseconds per crossing of the bridge.
+     */
+    @Param({"0", "5000"})
+    public long latency;
+
+    private LocalEngine engine;
+    private NetscapeJsonFactory factory;
+    private NetscapeJsonFactory writeBehind;
+    private NetscapeJsonFactory cached;
+    private List<String> names;
+    private Json object;
+    private Json behindObject;
+    private Json cachedObject;
+    private Json array;
+    private Json elements;
+    private Json model;
+    private NetscapeJsonFactory.Mirror mirror;
+    private int version;
+
+    @Setup
+    public void setup() {
+        engine = new LocalEngine();
+        factory = new NetscapeJsonFactory(engine.global());
+        writeBehind = new NetscapeJsonFactory(engine.global()).writeBehind(true);
+        cached = new NetscapeJsonFactory(engine.global()).readCache(true);
+
+        names = new ArrayList<String>();
+        Json members = Json.object();
+        for (int i = 0; i < MEMBERS; i++) {
+            names.add("m" + i);
+            members.set("m" + i, i % 10 == 0 ? Json.object("id", i) : Json.make(i));
+        }
+        object = factory.importJson(members);
+        behindObject = writeBehind.importJson(members);
+        cachedObject = cached.importJson(members);
+
+        elements = Json.array();
+        for (int i = 0; i < ELEMENTS; i++)
+            elements.add(i);
+        array = factory.importJson(elements);
+
+        model = Json.object();
+        for (int i = 0; i < ELEMENTS; i++)
+            model.set("m" + i, Json.object("id", i, "label", "item " + i, "tags", Json.array("a", "b")));
+        mirror = factory.mirror(model);
+
+        engine.latency(latency);
+    }
+
+    @Benchmark
+    public Object readMembersOneByOne() {
+        int found = 0;
+        for (String name : names)
+            if (object.at(name) != null)
+                found++;
+        return found;
+    }
+
+    @Benchmark
+    public Object readMembers() {
+        return object.asJsonMap();
+    }
+
+    @Benchmark
+    public Object readMembersCached() {
+        int found = 0;
+        for (String name : names)
+            if (cachedObject.at(name) != null)
+                found++;
+        return found;
+    }
+
+    @Benchmark
+    public Object readElements() {
+        return array.asList();
+    }
+
+    @Benchmark
+    public Object appendElements() {
+        return factory.array().with(elements);
+    }
+
+    @Benchmark
+    public Object setMembers() {
+        for (int i = 0; i < MEMBERS; i += 2)
+            object.set(names.get(i + 1), Json.make(i + 1));
+        return object;
+    }
+
+    @Benchmark
+    public Object setMembersWriteBehind() {
+        for (int i = 0; i < MEMBERS; i += 2)
+            behindObject.set(names.get(i + 1), Json.make(i + 1));
+        writeBehind.flush();
+        return behindObject;
+    }
+
+    @Benchmark
+    public Object updateMirror() {
+        version++;
+        for (int i = 0; i < CHANGES; i++)
+            model.at("m" + (i * ELEMENTS / CHANGES)).set("label", "item " + version);
+        return mirror.update(model);
+    }
+
+    @Benchmark
+    public Object importModel() {
+        version++;
+        for (int i = 0; i < CHANGES; i++)
+            model.at("m" + (i * ELEMENTS / CHANGES)).set("label", "item " + version);
+        return factory.importJson(model);
+    }
+}
@@ -0,0 +1,85 @@
+package mjson.jsonpath;
+
+import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.JsonPath;
+import com.jayway.jsonpath.ParseContext;
+import mjson.jsonpath.spi.cache.BoundedPathCache;
+import mjson.jsonpath.spi.json.MjsonJsonProvider;
+import mjson.jsonpath.spi.mapper.MjsonMappingProvider;
+import mjson.jsonpath.stream.JsonPathSet;
+import mjson.jsonpath.stream.StreamingJsonPath;
+
+/**
+ * Entry point for using json-path over mjson: configurations pre-wired with
+ * {@link MjsonJsonProvider} and {@link MjsonMappingProvider}, and a shared cache of
+ * compiled paths.
+ *
+ * <pre>
+ * Json price = MjsonJsonPath.using().parse(text).read("$.store.book[0].price");
+ * Object same = MjsonJsonPath.compile("$.store.book[0].price").read(document, MjsonJsonPath.configuration());
+ * </pre>
+ */
+public final class MjsonJsonPath {
+
+    public static final int DEFAULT_CACHE_CAPACITY = 400;
+
+    private static final Configuration CONFIGURATION = builder().build();
+
+    private static final BoundedPathCache CACHE = new BoundedPathCache(DEFAULT_CACHE_CAPACITY);
+
+    private MjsonJsonPath() {
+    }
+
+    /**
+     * Returns a configuration builder with the mjson json and mapping providers set, for
+     * adding options or evaluation listeners.
+     */
+    public static Configuration.ConfigurationBuilder builder() {
+        return Configuration.builder()
+                .jsonProvider(new MjsonJsonProvider())
+                .mappingProvider(new MjsonMappingProvider());
+    }
+
+    /**
+     * Returns the shared configuration with the mjson json and mapping providers and no options.
+     */
+    public static Configuration configuration() {
+        return CONFIGURATION;
+    }
+
+    public static ParseContext using() {
+        return JsonPath.using(CONFIGURATION);
+    }
+
+    /**
+     * Returns the shared path cache used by {@link #compile(String)}. Its counters can be
+     * used to size a dedicated {@link BoundedPathCache}.
+     */
+    public static BoundedPathCache cache() {
+        return CACHE;
+    }
+
+    public static JsonPath compile(String path) {
+        return CACHE.compile(path);
+    }
+
+    public static <T> T read(Object json, String path) {
+        return CACHE.compile(path).read(json, CONFIGURATION);
+    }
+
+    /**
+     * Compiles paths to be read together in one traversal of a document, see
+     * {@link JsonPathSet}.
+     */
+    public static JsonPathSet compileAll(String... paths) {
+        return JsonPathSet.compile(paths);
+    }
+
+    /**
+     * Compiles a path for evaluation while a large input is being read, see
+     * {@link StreamingJsonPath}.
+     */
+    public static StreamingJsonPath stream(String path) {
+        return StreamingJsonPath.compile(path);
+    }
+}
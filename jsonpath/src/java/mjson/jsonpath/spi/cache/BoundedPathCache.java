@@ -0,0 +1,164 @@
+package mjson.jsonpath.spi.cache;
+
+import com.jayway.jsonpath.JsonPath;
+import com.jayway.jsonpath.spi.cache.Cache;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A thread-safe, size-bounded cache of compiled {@link JsonPath}s keyed by their expression.
+ *
+ * <p>Lookups never lock: entries live in a <code>ConcurrentHashMap</code> and only record
+ * their last access time and an approximate use count. When an insertion takes the cache
+ * over capacity, a single thread evicts the least recently used (LRU) or least frequently
+ * used (LFU, ties broken by recency) entries. Finding a victim is a scan of the entries, which
+ * is meant for the hundreds to low thousands of distinct paths an application typically uses.</p>
+ *
+ * <p>The cache can be used directly through {@link #compile(String)}, or installed as
+ * json-path's global cache with <code>CacheProvider.setCache(cache)</code> before the first
+ * path is read, in which case <code>DocumentContext.read(String)</code> goes through it.</p>
+ */
+public class BoundedPathCache implements Cache {
+
+    public enum Eviction { LRU, LFU }
+
+    static final class Entry {
+        final JsonPath path;
+        volatile long lastAccess;
+        volatile int uses;
+
+        Entry(JsonPath path) {
+            this.path = path;
+            this.lastAccess = System.nanoTime();
+            this.uses = 1;
+        }
+
+        void touch() {
+            lastAccess = System.nanoTime();
+            // racy on purpose, LFU only needs an approximate count
+            uses++;
+        }
+    }
+
+    private final ConcurrentMap<String, Entry> entries;
+    private final int capacity;
+    private final Eviction eviction;
+    private final Object evictionLock = new Object();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public BoundedPathCache(int capacity) {
+        this(capacity, Eviction.LRU);
+    }
+
+    public BoundedPathCache(int capacity, Eviction eviction) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("Capacity must be positive, was " + capacity);
+        if (eviction == null)
+            throw new IllegalArgumentException("Eviction policy may not be null");
+        this.capacity = capacity;
+        this.eviction = eviction;
+        this.entries = new ConcurrentHashMap<String, Entry>(Math.min(capacity, 1024) * 4 / 3 + 1);
+    }
+
+    /**
+     * Returns the compiled form of <code>path</code>, compiling and caching it on a miss.
+     */
+    public JsonPath compile(String path) {
+        JsonPath compiled = get(path);
+        if (compiled == null) {
+            compiled = JsonPath.compile(path);
+            put(path, compiled);
+        }
+        return compiled;
+    }
+
+    public JsonPath get(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        entry.touch();
+        hits.incrementAndGet();
+        return entry.path;
+    }
+
+    public void put(String key, JsonPath value) {
+        if (value == null)
+            throw new IllegalArgumentException("Cannot cache a null path for " + key);
+        Entry entry = new Entry(value);
+        entries.put(key, entry);
+        if (entries.size() > capacity)
+            evict(entry);
+    }
+
+    /**
+     * Evicts entries until the cache is within capacity again. The entry that was just
+     * inserted is spared, otherwise LFU would always evict newcomers.
+     */
+    private void evict(Entry inserted) {
+        synchronized (evictionLock) {
+            while (entries.size() > capacity) {
+                String victimKey = null;
+                Entry victim = null;
+                for (Map.Entry<String, Entry> e : entries.entrySet()) {
+                    if (e.getValue() == inserted)
+                        continue;
+                    if (victim == null || isBetterVictim(e.getValue(), victim)) {
+                        victimKey = e.getKey();
+                        victim = e.getValue();
+                    }
+                }
+                if (victim == null)
+                    return;
+                if (entries.remove(victimKey, victim))
+                    evictions.incrementAndGet();
+            }
+        }
+    }
+
+    private boolean isBetterVictim(Entry candidate, Entry current) {
+        if (eviction == Eviction.LFU && candidate.uses != current.uses)
+            return candidate.uses < current.uses;
+        return candidate.lastAccess - current.lastAccess < 0;
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public Eviction eviction() {
+        return eviction;
+    }
+
+    public long hitCount() {
+        return hits.get();
+    }
+
+    public long missCount() {
+        return misses.get();
+    }
+
+    public long evictionCount() {
+        return evictions.get();
+    }
+
+    @Override
+    public String toString() {
+        return "BoundedPathCache{" + eviction + ", size=" + size() + "/" + capacity
+                + ", hits=" + hitCount() + ", misses=" + missCount() + ", evictions=" + evictionCount() + "}";
+    }
+}
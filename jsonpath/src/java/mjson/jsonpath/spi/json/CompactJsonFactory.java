@@ -0,0 +1,883 @@
+package mjson.jsonpath.spi.json;
+
+import mjson.Json;
+
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A <code>Json.Factory</code> whose trees take a fraction of the memory of mjson's default
+ * ones, for large and mostly numeric documents. Install it with
+ * <code>Json.attachFactory</code> or <code>Json.setGlobalFactory</code>; documents read
+ * while it is installed are built by it, and {@link MjsonJsonProvider} works with them
+ * unchanged.
+ *
+ * <p>The default tree holds every scalar as a <code>Json</code> node around a boxed value,
+ * in an <code>ArrayList</code> or a <code>HashMap</code>. Here:</p>
+ * <ul>
+ * <li>an array of integers is a <code>long[]</code>, and an array of doubles, possibly
+ * mixed with integers a double holds exactly, is a <code>double[]</code>. Any other element
+ * turns the array into an <code>Object[]</code>;</li>
+ * <li>an object is an array of names and an array of values, in insertion order, indexed
+ * by an open-addressing table of positions once it has more than {@value #LINEAR_SCAN}
+ * members. Names are interned by the factory, so the objects it builds share one copy of
+ * each;</li>
+ * <li>strings, booleans and numbers are held as their Java values. Their <code>Json</code>
+ * wrapper is made when the element is read, and is not kept.</li>
+ * </ul>
+ *
+ * <p>Reading a scalar twice therefore gives two equal, but not identical, values. Integers
+ * read as <code>Long</code> and fractions as <code>Double</code> whatever the array holding
+ * them. A container added to a compact one keeps its {@link Json#up() parent} if it has
+ * one already, rather than collecting all of them. Compact containers equal default ones
+ * with the same content, but default containers only ever equal their own kind.</p>
+ */
+public class CompactJsonFactory extends Json.DefaultFactory {
+
+    /**
+     * Objects with up to this many members are searched without an index.
+     */
+    static final int LINEAR_SCAN = 8;
+
+    /**
+     * Names are no longer interned past this many, so that documents with generated keys
+     * cannot grow the pool without bound.
+     */
+    static final int MAX_INTERNED_NAMES = 1 << 16;
+
+    private static final int INITIAL_CAPACITY = 4;
+
+    // integers up to this magnitude are exact as doubles
+    private static final long EXACT = 1L << 53;
+
+    // a JSON null in an Object[]
+    private static final Object NULL = new Object();
+
+    private final ConcurrentHashMap<String, String> names = new ConcurrentHashMap<String, String>();
+
+    @Override
+    public Json object() {
+        return new ObjectJson();
+    }
+
+    @Override
+    public Json array() {
+        return new ArrayJson();
+    }
+
+    String intern(String name) {
+        String interned = names.get(name);
+        if (interned != null)
+            return interned;
+        if (names.size() >= MAX_INTERNED_NAMES)
+            return name;
+        interned = names.putIfAbsent(name, name);
+        return interned == null ? name : interned;
+    }
+
+    /**
+     * What a container holds for <code>el</code>: the Java value of a scalar, or the element
+     * itself, which becomes a child of <code>container</code> unless it has a parent. Numbers
+     * are held as the <code>Long</code> or <code>Double</code> the parser makes, so that
+     * <code>add(5)</code> keeps an array primitive.
+     */
+    Object hold(Json el, Json container) {
+        if (el == null || el.isNull())
+            return NULL;
+        if (el.isNumber())
+            return held((Number) el.getValue());
+        if (el.isString() || el.isBoolean())
+            return el.getValue();
+        if (el.up() == null)
+            el.attachTo(container);
+        return el;
+    }
+
+    static Number held(Number value) {
+        if (value instanceof Integer || value instanceof Short || value instanceof Byte)
+            return Long.valueOf(value.longValue());
+        if (value instanceof Float)
+            return Double.valueOf(value.doubleValue());
+        return value;
+    }
+
+    /**
+     * The element for a held value, wrapping a scalar in a new <code>Json</code> whose parent
+     * is <code>container</code>.
+     */
+    Json element(Object value, Json container) {
+        if (value instanceof Json)
+            return (Json) value;
+        if (value == NULL)
+            return nil();
+        Json el;
+        if (value instanceof String)
+            el = string((String) value);
+        else if (value instanceof Boolean)
+            el = bool((Boolean) value);
+        else
+            el = number((Number) value);
+        el.attachTo(container);
+        return el;
+    }
+
+    static void release(Object value, Json container) {
+        if (value instanceof Json && ((Json) value).up() == container)
+            ((Json) value).attachTo(null);
+    }
+
+    static Object plain(Object value) {
+        if (value == NULL)
+            return null;
+        return value instanceof Json ? ((Json) value).getValue() : value;
+    }
+
+    static void append(StringBuilder sb, Object value, int maxCharacters) {
+        if (value == NULL)
+            sb.append("null");
+        else if (value instanceof String)
+            sb.append('"').append(Json.help.escape((String) value)).append('"');
+        else if (value instanceof Json)
+            sb.append(((Json) value).toString(maxCharacters));
+        else
+            sb.append(value);
+    }
+
+    /**
+     * The identity of an array element for the <code>compareBy</code> option: its value, or
+     * the values at the pointers given. Numbers compare as doubles, as <code>Json</code>
+     * numbers do.
+     */
+    static Object key(Json el, Json fields) {
+        if (fields.isNull()) {
+            return comparable(el);
+        } else if (fields.isString()) {
+            return comparable(Json.help.resolvePointer(fields.asString(), el));
+        } else if (fields.isArray()) {
+            List<Object> key = new ArrayList<Object>();
+            for (Json field : fields.asJsonList())
+                key.add(comparable(Json.help.resolvePointer(field.asString(), el)));
+            return key;
+        }
+        throw new IllegalArgumentException("Compare by options should be either a property name or an array of property names: " + fields);
+    }
+
+    private static Object comparable(Json el) {
+        if (el == null)
+            return null;
+        Object value = el.getValue();
+        return value instanceof Number ? (Object) ((Number) value).doubleValue() : value;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static int compare(Json left, Json right, Json fields) {
+        if (fields.isNull())
+            return ((Comparable) comparable(left)).compareTo(comparable(right));
+        List<Object> leftKey = fields.isString() ? Collections.singletonList(key(left, fields)) : (List<Object>) key(left, fields);
+        List<Object> rightKey = fields.isString() ? Collections.singletonList(key(right, fields)) : (List<Object>) key(right, fields);
+        for (int i = 0; i < leftKey.size(); i++) {
+            int result = ((Comparable) leftKey.get(i)).compareTo(rightKey.get(i));
+            if (result != 0)
+                return result;
+        }
+        return 0;
+    }
+
+    static void checkIndex(int index, int size) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+
+    class ObjectJson extends Json {
+        private static final long serialVersionUID = 1L;
+
+        String[] names = new String[INITIAL_CAPACITY];
+        Object[] values = new Object[INITIAL_CAPACITY];
+        int size;
+        // one plus the position of each member, in the slot its name hashes to; null while
+        // the object is small enough to scan
+        int[] index;
+
+        int indexOf(String name) {
+            if (index == null) {
+                for (int i = 0; i < size; i++) {
+                    if (names[i].equals(name))
+                        return i;
+                }
+                return -1;
+            }
+            int mask = index.length - 1;
+            for (int slot = hash(name) & mask; index[slot] != 0; slot = (slot + 1) & mask) {
+                if (names[index[slot] - 1].equals(name))
+                    return index[slot] - 1;
+            }
+            return -1;
+        }
+
+        private int hash(String name) {
+            int h = name.hashCode();
+            return h ^ (h >>> 16);
+        }
+
+        private void reindex() {
+            if (size <= LINEAR_SCAN) {
+                index = null;
+                return;
+            }
+            // at most half full
+            index = new int[Integer.highestOneBit(size) << 2];
+            for (int i = 0; i < size; i++)
+                place(i);
+        }
+
+        private void place(int position) {
+            int mask = index.length - 1;
+            int slot = hash(names[position]) & mask;
+            while (index[slot] != 0)
+                slot = (slot + 1) & mask;
+            index[slot] = position + 1;
+        }
+
+        void removeMember(int position) {
+            release(values[position], this);
+            System.arraycopy(names, position + 1, names, position, size - position - 1);
+            System.arraycopy(values, position + 1, values, position, size - position - 1);
+            size--;
+            names[size] = null;
+            values[size] = null;
+            if (index != null)
+                reindex();
+        }
+
+        public Json dup() {
+            ObjectJson copy = new ObjectJson();
+            copy.names = names.clone();
+            copy.values = values.clone();
+            copy.size = size;
+            copy.index = index == null ? null : index.clone();
+            for (int i = 0; i < size; i++) {
+                if (values[i] instanceof Json) {
+                    Json el = ((Json) values[i]).dup();
+                    el.attachTo(copy);
+                    copy.values[i] = el;
+                }
+            }
+            return copy;
+        }
+
+        public boolean has(String property) {
+            return indexOf(property) >= 0;
+        }
+
+        public boolean is(String property, Object value) {
+            Json p = at(property);
+            return p != null && p.equals(make(value));
+        }
+
+        public Json at(String property) {
+            int i = indexOf(property);
+            return i < 0 ? null : element(values[i], this);
+        }
+
+        protected Json withOptions(Json other, Json allOptions, String path) {
+            Json options = allOptions.at(path, object());
+            boolean duplicate = options.is("dup", true);
+            if (options.is("merge", true)) {
+                for (Map.Entry<String, Json> e : other.asJsonMap().entrySet()) {
+                    Json local = at(e.getKey());
+                    if (local instanceof ObjectJson)
+                        ((ObjectJson) local).withOptions(e.getValue(), allOptions, path + "/" + e.getKey());
+                    else if (local instanceof ArrayJson)
+                        ((ArrayJson) local).withOptions(e.getValue(), allOptions, path + "/" + e.getKey());
+                    else
+                        set(e.getKey(), duplicate ? e.getValue().dup() : e.getValue());
+                }
+            } else {
+                for (Map.Entry<String, Json> e : other.asJsonMap().entrySet())
+                    set(e.getKey(), duplicate ? e.getValue().dup() : e.getValue());
+            }
+            return this;
+        }
+
+        public Json with(Json x, Json... options) {
+            if (x == null)
+                return this;
+            if (!x.isObject())
+                throw new UnsupportedOperationException();
+            if (options.length > 0)
+                return withOptions(x, collectWithOptions(options), "");
+            for (Map.Entry<String, Json> e : x.asJsonMap().entrySet())
+                set(e.getKey(), e.getValue());
+            return this;
+        }
+
+        public Json set(String property, Json el) {
+            if (property == null)
+                throw new IllegalArgumentException("Null property names are not allowed, value is " + el);
+            Object value = hold(el, this);
+            int i = indexOf(property);
+            if (i >= 0) {
+                if (values[i] != value)
+                    release(values[i], this);
+                values[i] = value;
+                return this;
+            }
+            if (size == names.length) {
+                int capacity = size + (size >> 1);
+                names = Arrays.copyOf(names, capacity);
+                values = Arrays.copyOf(values, capacity);
+            }
+            names[size] = intern(property);
+            values[size] = value;
+            size++;
+            if (size > LINEAR_SCAN) {
+                if (index == null || 2 * size > index.length)
+                    reindex();
+                else
+                    place(size - 1);
+            }
+            return this;
+        }
+
+        public Json atDel(String property) {
+            int i = indexOf(property);
+            if (i < 0)
+                return null;
+            Object value = values[i];
+            removeMember(i);
+            return element(value, null);
+        }
+
+        public Json delAt(String property) {
+            int i = indexOf(property);
+            if (i >= 0)
+                removeMember(i);
+            return this;
+        }
+
+        public Object getValue() {
+            return asMap();
+        }
+
+        public boolean isObject() {
+            return true;
+        }
+
+        public Map<String, Object> asMap() {
+            Map<String, Object> m = new LinkedHashMap<String, Object>(size * 4 / 3 + 1);
+            for (int i = 0; i < size; i++)
+                m.put(names[i], plain(values[i]));
+            return m;
+        }
+
+        /**
+         * Returns a live view of the object. Its keys are read without making the values'
+         * wrappers.
+         */
+        @Override
+        public Map<String, Json> asJsonMap() {
+            return new MapView();
+        }
+
+        public String toString() {
+            return toString(Integer.MAX_VALUE);
+        }
+
+        public String toString(int maxCharacters) {
+            StringBuilder sb = new StringBuilder("{");
+            for (int i = 0; i < size; i++) {
+                if (i > 0)
+                    sb.append(',');
+                sb.append('"').append(Json.help.escape(names[i])).append("\":");
+                CompactJsonFactory.append(sb, values[i], maxCharacters);
+                if (sb.length() >= maxCharacters) {
+                    sb.setLength(maxCharacters);
+                    sb.append("...");
+                    break;
+                }
+            }
+            return sb.append('}').toString();
+        }
+
+        public int hashCode() {
+            return asJsonMap().hashCode();
+        }
+
+        public boolean equals(Object x) {
+            return x instanceof Json && ((Json) x).isObject() && asJsonMap().equals(((Json) x).asJsonMap());
+        }
+
+        abstract class Members<T> implements Iterator<T> {
+            int next;
+            int last = -1;
+
+            abstract T get(int position);
+
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            public T next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                last = next++;
+                return get(last);
+            }
+
+            public void remove() {
+                if (last < 0)
+                    throw new IllegalStateException();
+                removeMember(last);
+                next = last;
+                last = -1;
+            }
+        }
+
+        class Member extends AbstractMap.SimpleEntry<String, Json> {
+            private static final long serialVersionUID = 1L;
+
+            Member(String name, Json value) {
+                super(name, value);
+            }
+
+            @Override
+            public Json setValue(Json value) {
+                set(getKey(), value);
+                return super.setValue(value);
+            }
+        }
+
+        class MapView extends AbstractMap<String, Json> {
+            public int size() {
+                return size;
+            }
+
+            public boolean containsKey(Object key) {
+                return key instanceof String && indexOf((String) key) >= 0;
+            }
+
+            public Json get(Object key) {
+                return key instanceof String ? at((String) key) : null;
+            }
+
+            public Json put(String key, Json value) {
+                Json previous = at(key);
+                set(key, value);
+                return previous;
+            }
+
+            public Json remove(Object key) {
+                return key instanceof String ? atDel((String) key) : null;
+            }
+
+            public Set<String> keySet() {
+                return new AbstractSet<String>() {
+                    public int size() {
+                        return size;
+                    }
+
+                    public boolean contains(Object key) {
+                        return containsKey(key);
+                    }
+
+                    public Iterator<String> iterator() {
+                        return new Members<String>() {
+                            String get(int position) {
+                                return names[position];
+                            }
+                        };
+                    }
+                };
+            }
+
+            public Set<Map.Entry<String, Json>> entrySet() {
+                return new AbstractSet<Map.Entry<String, Json>>() {
+                    public int size() {
+                        return size;
+                    }
+
+                    public Iterator<Map.Entry<String, Json>> iterator() {
+                        return new Members<Map.Entry<String, Json>>() {
+                            Map.Entry<String, Json> get(int position) {
+                                return new Member(names[position], element(values[position], ObjectJson.this));
+                            }
+                        };
+                    }
+                };
+            }
+        }
+    }
+
+    class ArrayJson extends Json {
+        private static final long serialVersionUID = 1L;
+
+        // at most one of longs, doubles and values is in use, none while the array has
+        // never held an element
+        long[] longs;
+        double[] doubles;
+        // which elements of doubles were integers, null if none were
+        boolean[] integers;
+        Object[] values;
+        int size;
+
+        /**
+         * The held value at <code>index</code>: a <code>Long</code> or <code>Double</code>
+         * for a primitive array.
+         */
+        Object get(int index) {
+            checkIndex(index, size);
+            if (longs != null)
+                return longs[index];
+            if (doubles != null) {
+                if (integers != null && integers[index])
+                    return Long.valueOf((long) doubles[index]);
+                return Double.valueOf(doubles[index]);
+            }
+            return values[index];
+        }
+
+        /**
+         * Stores a held value at <code>index</code>, or appends it if <code>index</code> is
+         * the size, changing representation first if it does not fit the current one.
+         */
+        void put(int index, Object value) {
+            if (index != size)
+                checkIndex(index, size);
+            if (size == 0) {
+                longs = null;
+                doubles = null;
+                integers = null;
+                values = null;
+            }
+            if (longs == null && doubles == null && values == null) {
+                if (value instanceof Long)
+                    longs = new long[INITIAL_CAPACITY];
+                else if (value instanceof Double)
+                    doubles = new double[INITIAL_CAPACITY];
+                else
+                    values = new Object[INITIAL_CAPACITY];
+            }
+            if (longs != null && !(value instanceof Long)) {
+                if (value instanceof Double && exact())
+                    toDoubles();
+                else
+                    toValues();
+            }
+            if (doubles != null && !(value instanceof Double || value instanceof Long && exact((Long) value)))
+                toValues();
+            if (index == size) {
+                if (size == capacity())
+                    resize(size + (size >> 1));
+                size++;
+            }
+            if (longs != null) {
+                longs[index] = (Long) value;
+            } else if (doubles != null) {
+                boolean integer = value instanceof Long;
+                doubles[index] = ((Number) value).doubleValue();
+                if (integer && integers == null)
+                    integers = new boolean[doubles.length];
+                if (integers != null)
+                    integers[index] = integer;
+            } else {
+                values[index] = value;
+            }
+        }
+
+        void insert(int index, Object value) {
+            if (index != size)
+                checkIndex(index, size);
+            put(size, value);
+            int tail = size - 1 - index;
+            if (tail == 0)
+                return;
+            if (longs != null) {
+                System.arraycopy(longs, index, longs, index + 1, tail);
+            } else if (doubles != null) {
+                System.arraycopy(doubles, index, doubles, index + 1, tail);
+                if (integers != null)
+                    System.arraycopy(integers, index, integers, index + 1, tail);
+            } else {
+                System.arraycopy(values, index, values, index + 1, tail);
+            }
+            put(index, value);
+        }
+
+        Object removeAt(int index) {
+            Object value = get(index);
+            int tail = size - index - 1;
+            if (longs != null) {
+                System.arraycopy(longs, index + 1, longs, index, tail);
+            } else if (doubles != null) {
+                System.arraycopy(doubles, index + 1, doubles, index, tail);
+                if (integers != null)
+                    System.arraycopy(integers, index + 1, integers, index, tail);
+            } else {
+                System.arraycopy(values, index + 1, values, index, tail);
+                values[size - 1] = null;
+            }
+            size--;
+            release(value, this);
+            return value;
+        }
+
+        private int capacity() {
+            return longs != null ? longs.length : doubles != null ? doubles.length : values.length;
+        }
+
+        private void resize(int capacity) {
+            if (longs != null)
+                longs = Arrays.copyOf(longs, capacity);
+            if (doubles != null)
+                doubles = Arrays.copyOf(doubles, capacity);
+            if (integers != null)
+                integers = Arrays.copyOf(integers, capacity);
+            if (values != null)
+                values = Arrays.copyOf(values, capacity);
+        }
+
+        private boolean exact() {
+            for (int i = 0; i < size; i++) {
+                if (!exact(longs[i]))
+                    return false;
+            }
+            return true;
+        }
+
+        private boolean exact(long value) {
+            return value >= -EXACT && value <= EXACT;
+        }
+
+        private void toDoubles() {
+            doubles = new double[longs.length];
+            integers = new boolean[longs.length];
+            for (int i = 0; i < size; i++) {
+                doubles[i] = longs[i];
+                integers[i] = true;
+            }
+            longs = null;
+        }
+
+        private void toValues() {
+            Object[] boxed = new Object[capacity()];
+            for (int i = 0; i < size; i++)
+                boxed[i] = get(i);
+            longs = null;
+            doubles = null;
+            integers = null;
+            values = boxed;
+        }
+
+        public Json dup() {
+            ArrayJson copy = new ArrayJson();
+            copy.size = size;
+            copy.longs = longs == null ? null : longs.clone();
+            copy.doubles = doubles == null ? null : doubles.clone();
+            copy.integers = integers == null ? null : integers.clone();
+            if (values != null) {
+                copy.values = values.clone();
+                for (int i = 0; i < size; i++) {
+                    if (values[i] instanceof Json) {
+                        Json el = ((Json) values[i]).dup();
+                        el.attachTo(copy);
+                        copy.values[i] = el;
+                    }
+                }
+            }
+            return copy;
+        }
+
+        public Json set(int index, Object value) {
+            Object previous = get(index);
+            Object held = hold(make(value), this);
+            if (previous != held)
+                release(previous, this);
+            put(index, held);
+            return this;
+        }
+
+        /**
+         * Returns a live view of the array, making the wrappers of scalar elements as they
+         * are read.
+         */
+        public List<Json> asJsonList() {
+            return new ListView();
+        }
+
+        class ListView extends AbstractList<Json> implements RandomAccess {
+            public Json get(int index) {
+                return at(index);
+            }
+
+            public int size() {
+                return size;
+            }
+
+            public Json set(int index, Json el) {
+                Json previous = at(index);
+                ArrayJson.this.set(index, el);
+                return previous;
+            }
+
+            public void add(int index, Json el) {
+                insert(index, hold(el, ArrayJson.this));
+                modCount++;
+            }
+
+            public Json remove(int index) {
+                Json el = element(removeAt(index), null);
+                modCount++;
+                return el;
+            }
+        }
+
+        public List<Object> asList() {
+            List<Object> L = new ArrayList<Object>(size);
+            for (int i = 0; i < size; i++)
+                L.add(plain(get(i)));
+            return L;
+        }
+
+        public boolean is(int index, Object value) {
+            if (index < 0 || index >= size)
+                return false;
+            return at(index).equals(make(value));
+        }
+
+        public Object getValue() {
+            return asList();
+        }
+
+        public boolean isArray() {
+            return true;
+        }
+
+        public Json at(int index) {
+            return element(get(index), this);
+        }
+
+        public Json add(Json el) {
+            put(size, hold(el, this));
+            return this;
+        }
+
+        public Json remove(Json el) {
+            for (int i = 0; i < size; i++) {
+                if (el.equals(at(i))) {
+                    removeAt(i);
+                    break;
+                }
+            }
+            return this;
+        }
+
+        Json withOptions(Json array, Json allOptions, String path) {
+            Json opts = allOptions.at(path, object());
+            boolean dup = opts.is("dup", true);
+            Json compareBy = opts.at("compareBy", nil());
+            List<Json> those = new ArrayList<Json>(array.asJsonList());
+            if (opts.is("sort", true)) {
+                List<Json> these = new ArrayList<Json>(asJsonList());
+                List<Json> merged = new ArrayList<Json>(these.size() + those.size());
+                int thisIndex = 0, thatIndex = 0;
+                while (thatIndex < those.size()) {
+                    Json thatElement = those.get(thatIndex);
+                    if (thisIndex == these.size()) {
+                        merged.add(dup ? thatElement.dup() : thatElement);
+                        thatIndex++;
+                        continue;
+                    }
+                    int compared = compare(these.get(thisIndex), thatElement, compareBy);
+                    if (compared < 0) {
+                        merged.add(these.get(thisIndex++));
+                    } else if (compared > 0) {
+                        merged.add(dup ? thatElement.dup() : thatElement);
+                        thatIndex++;
+                    } else {
+                        thatIndex++;
+                    }
+                }
+                merged.addAll(these.subList(thisIndex, these.size()));
+                // the elements kept are children already, so they are not released
+                longs = null;
+                doubles = null;
+                integers = null;
+                values = null;
+                size = 0;
+                for (Json el : merged)
+                    add(el);
+            } else {
+                Set<Object> seen = new HashSet<Object>();
+                for (int i = 0; i < size; i++)
+                    seen.add(key(at(i), compareBy));
+                for (Json el : those) {
+                    if (seen.add(key(el, compareBy)))
+                        add(dup ? el.dup() : el);
+                }
+            }
+            return this;
+        }
+
+        public Json with(Json object, Json... options) {
+            if (object == null)
+                return this;
+            if (!object.isArray())
+                add(object);
+            else if (options.length > 0)
+                return withOptions(object, collectWithOptions(options), "");
+            else
+                for (Json el : new ArrayList<Json>(object.asJsonList()))
+                    add(el);
+            return this;
+        }
+
+        public Json atDel(int index) {
+            return element(removeAt(index), null);
+        }
+
+        public Json delAt(int index) {
+            removeAt(index);
+            return this;
+        }
+
+        public String toString() {
+            return toString(Integer.MAX_VALUE);
+        }
+
+        public String toString(int maxCharacters) {
+            StringBuilder sb = new StringBuilder("[");
+            for (int i = 0; i < size; i++) {
+                if (i > 0)
+                    sb.append(',');
+                CompactJsonFactory.append(sb, get(i), maxCharacters);
+                if (sb.length() >= maxCharacters) {
+                    sb.setLength(maxCharacters);
+                    sb.append("...");
+                    break;
+                }
+            }
+            return sb.append(']').toString();
+        }
+
+        public int hashCode() {
+            return asJsonList().hashCode();
+        }
+
+        public boolean equals(Object x) {
+            return x instanceof Json && ((Json) x).isArray() && asJsonList().equals(((Json) x).asJsonList());
+        }
+    }
+}
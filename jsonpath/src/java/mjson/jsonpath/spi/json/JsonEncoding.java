@@ -0,0 +1,96 @@
+package mjson.jsonpath.spi.json;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PushbackInputStream;
+import java.io.Reader;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
+
+/**
+ * Works out how the bytes of a JSON document should be decoded.
+ *
+ * <p>A byte order mark always wins and is skipped. Without one, the declared charset is
+ * used, and when none is declared the encoding is inferred from the pattern of zero bytes
+ * in the first four octets, as described in RFC 4627, section 3.</p>
+ */
+public final class JsonEncoding {
+
+    static final Charset UTF_8 = Charset.forName("UTF-8");
+    static final Charset UTF_16BE = Charset.forName("UTF-16BE");
+    static final Charset UTF_16LE = Charset.forName("UTF-16LE");
+    static final Charset UTF_32BE = Charset.forName("UTF-32BE");
+    static final Charset UTF_32LE = Charset.forName("UTF-32LE");
+
+    final Charset charset;
+    final int bomLength;
+
+    private JsonEncoding(Charset charset, int bomLength) {
+        this.charset = charset;
+        this.bomLength = bomLength;
+    }
+
+    /**
+     * Detects the encoding from the first <code>length</code> (at most four) bytes of a document.
+     *
+     * @param head the leading bytes of the document
+     * @param length how many of them are valid
+     * @param declared the charset name supplied by the caller, may be null
+     */
+    static JsonEncoding detect(byte[] head, int length, String declared) throws UnsupportedEncodingException {
+        int b0 = length > 0 ? head[0] & 0xFF : -1;
+        int b1 = length > 1 ? head[1] & 0xFF : -1;
+        int b2 = length > 2 ? head[2] & 0xFF : -1;
+        int b3 = length > 3 ? head[3] & 0xFF : -1;
+        if (b0 == 0x00 && b1 == 0x00 && b2 == 0xFE && b3 == 0xFF)
+            return new JsonEncoding(UTF_32BE, 4);
+        if (b0 == 0xFF && b1 == 0xFE && b2 == 0x00 && b3 == 0x00)
+            return new JsonEncoding(UTF_32LE, 4);
+        if (b0 == 0xEF && b1 == 0xBB && b2 == 0xBF)
+            return new JsonEncoding(UTF_8, 3);
+        if (b0 == 0xFE && b1 == 0xFF)
+            return new JsonEncoding(UTF_16BE, 2);
+        if (b0 == 0xFF && b1 == 0xFE)
+            return new JsonEncoding(UTF_16LE, 2);
+        if (declared != null && declared.length() > 0) {
+            try {
+                return new JsonEncoding(Charset.forName(declared), 0);
+            } catch (IllegalArgumentException e) {
+                throw new UnsupportedEncodingException(declared);
+            }
+        }
+        if (length >= 4) {
+            if (b0 == 0 && b1 == 0 && b2 == 0)
+                return new JsonEncoding(UTF_32BE, 0);
+            if (b0 == 0 && b2 == 0)
+                return new JsonEncoding(UTF_16BE, 0);
+            if (b1 == 0 && b2 == 0 && b3 == 0)
+                return new JsonEncoding(UTF_32LE, 0);
+            if (b1 == 0 && b3 == 0)
+                return new JsonEncoding(UTF_16LE, 0);
+        }
+        return new JsonEncoding(UTF_8, 0);
+    }
+
+    /**
+     * Returns a reader decoding <code>in</code> according to its byte order mark, the
+     * declared charset or the RFC 4627 heuristic, in that order. The byte order mark, if
+     * any, is consumed.
+     */
+    public static Reader reader(InputStream in, String declared) throws IOException {
+        PushbackInputStream pushback = new PushbackInputStream(in, 4);
+        byte[] head = new byte[4];
+        int length = 0;
+        while (length < head.length) {
+            int cnt = pushback.read(head, length, head.length - length);
+            if (cnt < 0)
+                break;
+            length += cnt;
+        }
+        JsonEncoding encoding = detect(head, length, declared);
+        if (length > encoding.bomLength)
+            pushback.unread(head, encoding.bomLength, length - encoding.bomLength);
+        return new InputStreamReader(pushback, encoding.charset);
+    }
+}
@@ -0,0 +1,957 @@
+package mjson.jsonpath.spi.json;
+
+import com.jayway.jsonpath.InvalidJsonException;
+import mjson.Json;
+
+import java.math.BigInteger;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.Set;
+
+/**
+ * Reads documents into trees that are decoded on demand, for queries that touch a small
+ * part of large documents.
+ *
+ * <p>{@link #read(String)} makes one pass over the text that checks its structure and
+ * records where each value starts and where each object and array ends, in two
+ * <code>int</code> arrays, like the tape of simdjson. It returns the root as a lazy object
+ * or array. Looking up a member or an element of a lazy container finds it on the tape,
+ * comparing names with the text in place, and decodes only that value: a string, number or
+ * literal becomes a <code>Json</code> made by this factory, and an object or array becomes
+ * another lazy container. Values are decoded once and kept. A container is copied into a
+ * map or list of its members the first time it is changed.</p>
+ *
+ * <p>The text must be held until the tree is discarded. Numbers are checked when they are
+ * decoded, so a malformed number is only reported if it is read. Reading decodes and
+ * caches values, so unlike a default tree a lazy one must not be read by several threads
+ * at once. {@link MjsonJsonProvider} reads lazily when it is created in lazy mode.</p>
+ */
+public class LazyJsonFactory extends Json.DefaultFactory {
+
+    /**
+     * Indexes <code>text</code> and returns its root value, lazily decoded if it is an
+     * object or an array.
+     *
+     * @throws InvalidJsonException if the text is not a single well-formed JSON value
+     */
+    public Json read(String text) {
+        return read(text.toCharArray(), 0, text.length());
+    }
+
+    /**
+     * Indexes <code>length</code> characters of <code>text</code> from <code>offset</code>,
+     * which are not copied and must not change while the tree is in use.
+     */
+    public Json read(char[] text, int offset, int length) {
+        Tape tape = Tape.index(text, offset, length);
+        return value(tape, 0, null);
+    }
+
+    Json value(Tape tape, int entry, Json parent) {
+        char c = tape.first(entry);
+        if (c == '{')
+            return new ObjectJson(tape, entry, parent);
+        if (c == '[')
+            return new ArrayJson(tape, entry, parent);
+        Object value = tape.scalar(entry);
+        if (value == null)
+            return nil();
+        Json el;
+        if (value instanceof String)
+            el = string((String) value);
+        else if (value instanceof Boolean)
+            el = bool((Boolean) value);
+        else
+            el = number((Number) value);
+        el.attachTo(parent);
+        return el;
+    }
+
+    static void adopt(Json el, Json parent) {
+        if (el != null && el.up() == null && !el.isNull())
+            el.attachTo(parent);
+    }
+
+    /**
+     * Copies of the values decoded so far, adopted by <code>parent</code>.
+     */
+    static Json[] copies(Json[] decoded, Json parent) {
+        if (decoded == null)
+            return null;
+        Json[] copies = new Json[decoded.length];
+        for (int i = 0; i < decoded.length; i++) {
+            if (decoded[i] != null) {
+                copies[i] = decoded[i].dup();
+                adopt(copies[i], parent);
+            }
+        }
+        return copies;
+    }
+
+    /**
+     * The structure of a document: for each value, and each member name, the offset where it
+     * starts in the text and the entry following it and anything it contains. The entries of
+     * a container follow it, an object's alternating between names and values.
+     */
+    static final class Tape {
+        private static final int VALUE = 0, VALUE_OR_END = 1, NAME = 2, NAME_OR_END = 3, COLON = 4, COMMA_OR_END = 5, DONE = 6;
+
+        final char[] text;
+        final int offset;
+        final int limit;
+        int[] starts;
+        int[] ends;
+        int size;
+
+        private Tape(char[] text, int offset, int limit, int capacity) {
+            this.text = text;
+            this.offset = offset;
+            this.limit = limit;
+            this.starts = new int[capacity];
+            this.ends = new int[capacity];
+        }
+
+        static Tape index(char[] text, int offset, int length) {
+            int end = offset + length;
+            Tape tape = new Tape(text, offset, end, Math.max(16, length / 8));
+            int[] open = new int[32];
+            int depth = 0;
+            int expect = VALUE;
+            int i = offset;
+            while (true) {
+                while (i < end && (text[i] == ' ' || text[i] == '\n' || text[i] == '\r' || text[i] == '\t'))
+                    i++;
+                if (expect == DONE) {
+                    if (i != end)
+                        throw error("Unexpected character after the document", i - offset);
+                    return tape;
+                }
+                if (i == end)
+                    throw error("Unexpected end of input", i - offset);
+                char c = text[i];
+                if (expect == COMMA_OR_END) {
+                    boolean object = text[tape.starts[open[depth - 1]]] == '{';
+                    if (c == ',') {
+                        i++;
+                        expect = object ? NAME : VALUE;
+                        continue;
+                    } else if (c != (object ? '}' : ']')) {
+                        throw error("Expected ',' or '" + (object ? '}' : ']') + "'", i - offset);
+                    }
+                }
+                if ((c == '}' && (expect == NAME_OR_END || expect == COMMA_OR_END))
+                        || (c == ']' && (expect == VALUE_OR_END || expect == COMMA_OR_END))) {
+                    tape.ends[open[--depth]] = tape.size;
+                    i++;
+                    expect = depth == 0 ? DONE : COMMA_OR_END;
+                } else if (expect == NAME || expect == NAME_OR_END) {
+                    if (c != '"')
+                        throw error("Expected a property name", i - offset);
+                    tape.add(i);
+                    i = skipString(text, i, end, offset);
+                    expect = COLON;
+                } else if (expect == COLON) {
+                    if (c != ':')
+                        throw error("Expected ':'", i - offset);
+                    i++;
+                    expect = VALUE;
+                } else if (c == '{' || c == '[') {
+                    if (depth == open.length)
+                        open = Arrays.copyOf(open, 2 * depth);
+                    open[depth++] = tape.size;
+                    tape.add(i);
+                    i++;
+                    expect = c == '{' ? NAME_OR_END : VALUE_OR_END;
+                } else {
+                    tape.add(i);
+                    i = skipScalar(text, i, end, offset);
+                    expect = depth == 0 ? DONE : COMMA_OR_END;
+                }
+            }
+        }
+
+        private void add(int start) {
+            if (size == starts.length) {
+                starts = Arrays.copyOf(starts, 2 * size);
+                ends = Arrays.copyOf(ends, 2 * size);
+            }
+            starts[size] = start;
+            ends[size] = size + 1;
+            size++;
+        }
+
+        private static int skipString(char[] text, int i, int end, int offset) {
+            for (i++; i < end; i++) {
+                if (text[i] == '"')
+                    return i + 1;
+                if (text[i] == '\\')
+                    i++;
+            }
+            throw error("Unterminated string", end - offset);
+        }
+
+        private static int skipScalar(char[] text, int i, int end, int offset) {
+            char c = text[i];
+            if (c == '"')
+                return skipString(text, i, end, offset);
+            String literal = c == 't' ? "true" : c == 'f' ? "false" : c == 'n' ? "null" : null;
+            if (literal != null) {
+                if (end - i < literal.length() || !new String(text, i, literal.length()).equals(literal))
+                    throw error("Unexpected character '" + c + "'", i - offset);
+                return i + literal.length();
+            }
+            if (c != '-' && (c < '0' || c > '9'))
+                throw error("Unexpected character '" + c + "'", i - offset);
+            return numberEnd(text, i, end);
+        }
+
+        private static int numberEnd(char[] text, int i, int end) {
+            while (i < end) {
+                char c = text[i];
+                if ((c < '0' || c > '9') && c != '-' && c != '+' && c != '.' && c != 'e' && c != 'E')
+                    break;
+                i++;
+            }
+            return i;
+        }
+
+        private static InvalidJsonException error(String message, int position) {
+            return new InvalidJsonException(message + " at position " + position);
+        }
+
+        char first(int entry) {
+            return text[starts[entry]];
+        }
+
+        /**
+         * The hash code of the string at <code>entry</code>, computed in place unless it has
+         * escapes.
+         */
+        int hash(int entry) {
+            int h = 0;
+            for (int i = starts[entry] + 1; text[i] != '"'; i++) {
+                if (text[i] == '\\')
+                    return string(entry).hashCode();
+                h = 31 * h + text[i];
+            }
+            return h;
+        }
+
+        /**
+         * Whether the strings at <code>entry</code> and <code>other</code> are the same,
+         * compared in place unless either has escapes.
+         */
+        boolean same(int entry, int other) {
+            for (int i = starts[entry] + 1, j = starts[other] + 1; ; i++, j++) {
+                if (text[i] == '\\' || text[j] == '\\')
+                    return string(entry).equals(string(other));
+                if (text[i] != text[j])
+                    return false;
+                if (text[i] == '"')
+                    return true;
+            }
+        }
+
+        /**
+         * Whether the string at <code>entry</code> is <code>name</code>, compared in place
+         * unless it has escapes.
+         */
+        boolean equals(int entry, String name) {
+            int start = starts[entry] + 1;
+            int length = name.length();
+            for (int i = 0; i < length; i++) {
+                char c = text[start + i];
+                if (c == '\\')
+                    return string(entry).equals(name);
+                if (c != name.charAt(i))
+                    return false;
+            }
+            return text[start + length] == '"';
+        }
+
+        String string(int entry) {
+            int start = starts[entry] + 1;
+            int i = start;
+            while (text[i] != '"' && text[i] != '\\')
+                i++;
+            if (text[i] == '"')
+                return new String(text, start, i - start);
+            StringBuilder sb = new StringBuilder(i - start + 16).append(text, start, i - start);
+            while (text[i] != '"') {
+                char c = text[i++];
+                if (c != '\\') {
+                    sb.append(c);
+                    continue;
+                }
+                c = text[i++];
+                switch (c) {
+                    case 'b': sb.append('\b'); break;
+                    case 'f': sb.append('\f'); break;
+                    case 'n': sb.append('\n'); break;
+                    case 'r': sb.append('\r'); break;
+                    case 't': sb.append('\t'); break;
+                    case 'u':
+                        try {
+                            sb.append((char) Integer.parseInt(new String(text, i, 4), 16));
+                        } catch (RuntimeException e) {
+                            throw error("Invalid unicode escape", i - 2 - offset);
+                        }
+                        i += 4;
+                        break;
+                    default: sb.append(c);
+                }
+            }
+            return sb.toString();
+        }
+
+        /**
+         * Decodes the string, number or literal at <code>entry</code>, null standing for a
+         * JSON null. Numbers are decoded as <code>Json.read</code> does.
+         */
+        Object scalar(int entry) {
+            int start = starts[entry];
+            char c = text[start];
+            if (c == '"')
+                return string(entry);
+            if (c == 't')
+                return Boolean.TRUE;
+            if (c == 'f')
+                return Boolean.FALSE;
+            if (c == 'n')
+                return null;
+            String number = new String(text, start, numberEnd(text, start, limit) - start);
+            try {
+                if (number.indexOf('.') >= 0 || number.indexOf('e') >= 0 || number.indexOf('E') >= 0)
+                    return Double.valueOf(number);
+                try {
+                    return Long.valueOf(number);
+                } catch (NumberFormatException e) {
+                    return new BigInteger(number);
+                }
+            } catch (NumberFormatException e) {
+                throw error("Invalid number " + number, start - offset);
+            }
+        }
+    }
+
+    class ObjectJson extends Json {
+        private static final long serialVersionUID = 1L;
+
+        final Tape tape;
+        final int entry;
+        // the entry of each name, a duplicate name keeping the position of its first
+        // occurrence and the entry of its last as in a default tree, and, for large objects,
+        // one plus the position of each member in the slot its name hashes to; built by the
+        // first lookup
+        int[] names;
+        int[] slots;
+        // the members decoded so far, by position
+        Json[] decoded;
+        int count = -1;
+        // all members, once the object has been changed
+        Map<String, Json> members;
+
+        ObjectJson(Tape tape, int entry, Json parent) {
+            super(parent);
+            this.tape = tape;
+            this.entry = entry;
+        }
+
+        int count() {
+            index();
+            return count;
+        }
+
+        private void index() {
+            if (names != null)
+                return;
+            int all = 0;
+            for (int name = entry + 1; name < tape.ends[entry]; name = tape.ends[name + 1])
+                all++;
+            int[] unique = new int[all];
+            int[] table = all > CompactJsonFactory.LINEAR_SCAN ? new int[Integer.highestOneBit(all) << 2] : null;
+            int mask = table == null ? 0 : table.length - 1;
+            count = 0;
+            next:
+            for (int name = entry + 1; name < tape.ends[entry]; name = tape.ends[name + 1]) {
+                if (table == null) {
+                    for (int i = 0; i < count; i++) {
+                        if (tape.same(unique[i], name)) {
+                            unique[i] = name;
+                            continue next;
+                        }
+                    }
+                } else {
+                    int slot = spread(tape.hash(name)) & mask;
+                    for (; table[slot] != 0; slot = (slot + 1) & mask) {
+                        if (tape.same(unique[table[slot] - 1], name)) {
+                            unique[table[slot] - 1] = name;
+                            continue next;
+                        }
+                    }
+                    table[slot] = count + 1;
+                }
+                unique[count++] = name;
+            }
+            names = count == all ? unique : Arrays.copyOf(unique, count);
+            slots = table;
+        }
+
+        int[] names() {
+            index();
+            return names;
+        }
+
+        private int spread(int h) {
+            return h ^ (h >>> 16);
+        }
+
+        /**
+         * The position of the member named <code>property</code>, or -1.
+         */
+        int find(String property) {
+            index();
+            if (slots == null) {
+                for (int i = names.length - 1; i >= 0; i--) {
+                    if (tape.equals(names[i], property))
+                        return i;
+                }
+                return -1;
+            }
+            int mask = slots.length - 1;
+            for (int slot = spread(property.hashCode()) & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+                if (tape.equals(names[slots[slot] - 1], property))
+                    return slots[slot] - 1;
+            }
+            return -1;
+        }
+
+        Json member(int name, int position) {
+            if (decoded == null)
+                decoded = new Json[count()];
+            if (decoded[position] == null)
+                decoded[position] = value(tape, name + 1, this);
+            return decoded[position];
+        }
+
+        Map<String, Json> members() {
+            if (members == null) {
+                Map<String, Json> m = new LinkedHashMap<String, Json>(count() * 4 / 3 + 1);
+                for (int position = 0; position < names.length; position++)
+                    m.put(tape.string(names[position]), member(names[position], position));
+                members = m;
+                names = null;
+                slots = null;
+                decoded = null;
+            }
+            return members;
+        }
+
+        public Json dup() {
+            if (members == null) {
+                // members decoded so far may have been changed since, so they are copied
+                // rather than read again from the tape
+                ObjectJson copy = new ObjectJson(tape, entry, null);
+                copy.decoded = copies(decoded, copy);
+                return copy;
+            }
+            ObjectJson copy = new ObjectJson(tape, entry, null);
+            copy.members = new LinkedHashMap<String, Json>(members.size() * 4 / 3 + 1);
+            for (Map.Entry<String, Json> e : members.entrySet())
+                copy.set(e.getKey(), e.getValue().dup());
+            return copy;
+        }
+
+        public boolean has(String property) {
+            return members != null ? members.containsKey(property) : find(property) >= 0;
+        }
+
+        public boolean is(String property, Object value) {
+            Json p = at(property);
+            return p != null && p.equals(make(value));
+        }
+
+        public Json at(String property) {
+            if (members != null)
+                return members.get(property);
+            int position = find(property);
+            return position < 0 ? null : member(names[position], position);
+        }
+
+        protected Json withOptions(Json other, Json allOptions, String path) {
+            Json options = allOptions.at(path, object());
+            boolean duplicate = options.is("dup", true);
+            if (options.is("merge", true)) {
+                for (Map.Entry<String, Json> e : other.asJsonMap().entrySet()) {
+                    Json local = at(e.getKey());
+                    if (local instanceof ObjectJson)
+                        ((ObjectJson) local).withOptions(e.getValue(), allOptions, path + "/" + e.getKey());
+                    else if (local instanceof ArrayJson)
+                        ((ArrayJson) local).withOptions(e.getValue(), allOptions, path + "/" + e.getKey());
+                    else
+                        set(e.getKey(), duplicate ? e.getValue().dup() : e.getValue());
+                }
+            } else {
+                for (Map.Entry<String, Json> e : other.asJsonMap().entrySet())
+                    set(e.getKey(), duplicate ? e.getValue().dup() : e.getValue());
+            }
+            return this;
+        }
+
+        public Json with(Json x, Json... options) {
+            if (x == null)
+                return this;
+            if (!x.isObject())
+                throw new UnsupportedOperationException();
+            if (options.length > 0)
+                return withOptions(x, collectWithOptions(options), "");
+            for (Map.Entry<String, Json> e : x.asJsonMap().entrySet())
+                set(e.getKey(), e.getValue());
+            return this;
+        }
+
+        public Json set(String property, Json el) {
+            if (property == null)
+                throw new IllegalArgumentException("Null property names are not allowed, value is " + el);
+            if (el == null)
+                el = nil();
+            adopt(el, this);
+            members().put(property, el);
+            return this;
+        }
+
+        public Json atDel(String property) {
+            Json el = members().remove(property);
+            if (el != null && el.up() == this)
+                el.attachTo(null);
+            return el;
+        }
+
+        public Json delAt(String property) {
+            atDel(property);
+            return this;
+        }
+
+        public Object getValue() {
+            return asMap();
+        }
+
+        public boolean isObject() {
+            return true;
+        }
+
+        public Map<String, Object> asMap() {
+            Map<String, Object> m = new LinkedHashMap<String, Object>();
+            for (Map.Entry<String, Json> e : asJsonMap().entrySet())
+                m.put(e.getKey(), e.getValue().getValue());
+            return m;
+        }
+
+        /**
+         * Returns a live view of the object. Until the object is changed, its keys are
+         * decoded without its values.
+         */
+        @Override
+        public Map<String, Json> asJsonMap() {
+            return new MapView();
+        }
+
+        public String toString() {
+            return toString(Integer.MAX_VALUE);
+        }
+
+        public String toString(int maxCharacters) {
+            StringBuilder sb = new StringBuilder("{");
+            for (Iterator<Map.Entry<String, Json>> i = asJsonMap().entrySet().iterator(); i.hasNext(); ) {
+                Map.Entry<String, Json> e = i.next();
+                sb.append('"').append(Json.help.escape(e.getKey())).append("\":").append(e.getValue().toString(maxCharacters));
+                if (sb.length() >= maxCharacters) {
+                    sb.setLength(maxCharacters);
+                    sb.append("...");
+                    break;
+                }
+                if (i.hasNext())
+                    sb.append(',');
+            }
+            return sb.append('}').toString();
+        }
+
+        public int hashCode() {
+            return asJsonMap().hashCode();
+        }
+
+        public boolean equals(Object x) {
+            return x instanceof Json && ((Json) x).isObject() && asJsonMap().equals(((Json) x).asJsonMap());
+        }
+
+        /**
+         * Walks the names on the tape, or the members once the object has been changed.
+         */
+        abstract class Members<T> implements Iterator<T> {
+            final Iterator<Map.Entry<String, Json>> changed = members == null ? null : members.entrySet().iterator();
+            final int[] order = changed == null ? names() : null;
+            int position;
+            String last;
+
+            abstract T get(String key, int name, int position);
+
+            public boolean hasNext() {
+                return changed != null ? changed.hasNext() : position < order.length;
+            }
+
+            public T next() {
+                if (changed != null) {
+                    Map.Entry<String, Json> e = changed.next();
+                    last = e.getKey();
+                    return get(last, -1, -1);
+                }
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                last = tape.string(order[position]);
+                T next = get(last, order[position], position);
+                position++;
+                return next;
+            }
+
+            public void remove() {
+                if (last == null)
+                    throw new IllegalStateException();
+                if (changed != null)
+                    changed.remove();
+                else
+                    members().remove(last);
+                last = null;
+            }
+        }
+
+        class MapView extends AbstractMap<String, Json> {
+            public int size() {
+                return members != null ? members.size() : count();
+            }
+
+            public boolean containsKey(Object key) {
+                return key instanceof String && has((String) key);
+            }
+
+            public Json get(Object key) {
+                return key instanceof String ? at((String) key) : null;
+            }
+
+            public Json put(String key, Json value) {
+                Json previous = at(key);
+                set(key, value);
+                return previous;
+            }
+
+            public Json remove(Object key) {
+                return key instanceof String ? atDel((String) key) : null;
+            }
+
+            public Set<String> keySet() {
+                return new AbstractSet<String>() {
+                    public int size() {
+                        return MapView.this.size();
+                    }
+
+                    public boolean contains(Object key) {
+                        return containsKey(key);
+                    }
+
+                    public Iterator<String> iterator() {
+                        return new Members<String>() {
+                            String get(String key, int name, int position) {
+                                return key;
+                            }
+                        };
+                    }
+                };
+            }
+
+            public Set<Map.Entry<String, Json>> entrySet() {
+                return new AbstractSet<Map.Entry<String, Json>>() {
+                    public int size() {
+                        return MapView.this.size();
+                    }
+
+                    public Iterator<Map.Entry<String, Json>> iterator() {
+                        return new Members<Map.Entry<String, Json>>() {
+                            Map.Entry<String, Json> get(String key, int name, int position) {
+                                return new Member(key, members != null ? members.get(key) : member(name, position));
+                            }
+                        };
+                    }
+                };
+            }
+        }
+
+        class Member extends AbstractMap.SimpleEntry<String, Json> {
+            private static final long serialVersionUID = 1L;
+
+            Member(String name, Json value) {
+                super(name, value);
+            }
+
+            @Override
+            public Json setValue(Json value) {
+                set(getKey(), value);
+                return super.setValue(value);
+            }
+        }
+    }
+
+    class ArrayJson extends Json {
+        private static final long serialVersionUID = 1L;
+
+        final Tape tape;
+        final int entry;
+        // the entry of each element, once one has been looked up by index
+        int[] entries;
+        Json[] decoded;
+        int count = -1;
+        // all elements, once the array has been changed
+        List<Json> elements;
+
+        ArrayJson(Tape tape, int entry, Json parent) {
+            super(parent);
+            this.tape = tape;
+            this.entry = entry;
+        }
+
+        int count() {
+            if (elements != null)
+                return elements.size();
+            if (count < 0) {
+                count = 0;
+                for (int e = entry + 1; e < tape.ends[entry]; e = tape.ends[e])
+                    count++;
+            }
+            return count;
+        }
+
+        List<Json> elements() {
+            if (elements == null) {
+                List<Json> L = new ArrayList<Json>(count());
+                for (int i = 0; i < count(); i++)
+                    L.add(at(i));
+                elements = L;
+                entries = null;
+                decoded = null;
+            }
+            return elements;
+        }
+
+        public Json dup() {
+            if (elements == null) {
+                ArrayJson copy = new ArrayJson(tape, entry, null);
+                copy.entries = entries;
+                copy.decoded = copies(decoded, copy);
+                return copy;
+            }
+            ArrayJson copy = new ArrayJson(tape, entry, null);
+            copy.elements = new ArrayList<Json>(elements.size());
+            for (Json el : elements)
+                copy.add(el.dup());
+            return copy;
+        }
+
+        public Json set(int index, Object value) {
+            Json el = make(value);
+            adopt(el, this);
+            Json previous = elements().set(index, el);
+            if (previous != el && previous.up() == this)
+                previous.attachTo(null);
+            return this;
+        }
+
+        /**
+         * Returns a live view of the array. Elements are decoded as they are read.
+         */
+        public List<Json> asJsonList() {
+            return new ListView();
+        }
+
+        class ListView extends AbstractList<Json> implements RandomAccess {
+            public Json get(int index) {
+                return at(index);
+            }
+
+            public int size() {
+                return count();
+            }
+
+            public Json set(int index, Json el) {
+                Json previous = at(index);
+                ArrayJson.this.set(index, el);
+                return previous;
+            }
+
+            public void add(int index, Json el) {
+                adopt(el, ArrayJson.this);
+                elements().add(index, el);
+                modCount++;
+            }
+
+            public Json remove(int index) {
+                Json el = atDel(index);
+                modCount++;
+                return el;
+            }
+        }
+
+        public List<Object> asList() {
+            List<Object> L = new ArrayList<Object>(count());
+            for (Json el : asJsonList())
+                L.add(el.getValue());
+            return L;
+        }
+
+        public boolean is(int index, Object value) {
+            if (index < 0 || index >= count())
+                return false;
+            return at(index).equals(make(value));
+        }
+
+        public Object getValue() {
+            return asList();
+        }
+
+        public boolean isArray() {
+            return true;
+        }
+
+        public Json at(int index) {
+            if (elements != null)
+                return elements.get(index);
+            if (index < 0 || index >= count())
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + count());
+            if (entries == null) {
+                entries = new int[count()];
+                decoded = new Json[count()];
+                int i = 0;
+                for (int e = entry + 1; e < tape.ends[entry]; e = tape.ends[e])
+                    entries[i++] = e;
+            }
+            if (decoded[index] == null)
+                decoded[index] = value(tape, entries[index], this);
+            return decoded[index];
+        }
+
+        public Json add(Json el) {
+            if (el == null)
+                el = nil();
+            adopt(el, this);
+            elements().add(el);
+            return this;
+        }
+
+        public Json remove(Json el) {
+            if (elements().remove(el) && el.up() == this)
+                el.attachTo(null);
+            return this;
+        }
+
+        Json withOptions(Json array, Json allOptions, String path) {
+            Json opts = allOptions.at(path, object());
+            boolean dup = opts.is("dup", true);
+            Json compareBy = opts.at("compareBy", nil());
+            List<Json> those = new ArrayList<Json>(array.asJsonList());
+            if (opts.is("sort", true)) {
+                List<Json> these = elements();
+                List<Json> merged = new ArrayList<Json>(these.size() + those.size());
+                int thisIndex = 0, thatIndex = 0;
+                while (thatIndex < those.size()) {
+                    Json thatElement = those.get(thatIndex);
+                    if (thisIndex == these.size()) {
+                        merged.add(dup ? thatElement.dup() : thatElement);
+                        thatIndex++;
+                        continue;
+                    }
+                    int compared = CompactJsonFactory.compare(these.get(thisIndex), thatElement, compareBy);
+                    if (compared < 0) {
+                        merged.add(these.get(thisIndex++));
+                    } else if (compared > 0) {
+                        merged.add(dup ? thatElement.dup() : thatElement);
+                        thatIndex++;
+                    } else {
+                        thatIndex++;
+                    }
+                }
+                merged.addAll(these.subList(thisIndex, these.size()));
+                for (Json el : merged)
+                    adopt(el, this);
+                elements = merged;
+            } else {
+                Set<Object> seen = new HashSet<Object>();
+                for (Json el : elements())
+                    seen.add(CompactJsonFactory.key(el, compareBy));
+                for (Json el : those) {
+                    if (seen.add(CompactJsonFactory.key(el, compareBy)))
+                        add(dup ? el.dup() : el);
+                }
+            }
+            return this;
+        }
+
+        public Json with(Json object, Json... options) {
+            if (object == null)
+                return this;
+            if (!object.isArray())
+                add(object);
+            else if (options.length > 0)
+                return withOptions(object, collectWithOptions(options), "");
+            else
+                for (Json el : new ArrayList<Json>(object.asJsonList()))
+                    add(el);
+            return this;
+        }
+
+        public Json atDel(int index) {
+            Json el = elements().remove(index);
+            if (el.up() == this)
+                el.attachTo(null);
+            return el;
+        }
+
+        public Json delAt(int index) {
+            atDel(index);
+            return this;
+        }
+
+        public String toString() {
+            return toString(Integer.MAX_VALUE);
+        }
+
+        public String toString(int maxCharacters) {
+            StringBuilder sb = new StringBuilder("[");
+            for (int i = 0; i < count(); i++) {
+                if (i > 0)
+                    sb.append(',');
+                sb.append(at(i).toString(maxCharacters));
+                if (sb.length() >= maxCharacters) {
+                    sb.setLength(maxCharacters);
+                    sb.append("...");
+                    break;
+                }
+            }
+            return sb.append(']').toString();
+        }
+
+        public int hashCode() {
+            return asJsonList().hashCode();
+        }
+
+        public boolean equals(Object x) {
+            return x instanceof Json && ((Json) x).isArray() && asJsonList().equals(((Json) x).asJsonList());
+        }
+    }
+}
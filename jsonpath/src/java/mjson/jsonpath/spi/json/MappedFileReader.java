@@ -0,0 +1,112 @@
+package mjson.jsonpath.spi.json;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A {@link Reader} decoding a file straight from memory-mapped segments of it, with no
+ * intermediate heap buffer: the bytes go from the page cache to the caller's
+ * <code>char[]</code>.
+ *
+ * <p>A mapping cannot exceed 2GB, so larger files are mapped one segment at a time. Each
+ * segment starts at the first byte the decoder has not consumed, so a character split
+ * across the end of a segment is decoded whole from the next one. The encoding is worked
+ * out by {@link JsonEncoding} from the first bytes of the file; malformed input is replaced,
+ * as by an <code>InputStreamReader</code>.</p>
+ */
+class MappedFileReader extends Reader {
+
+    static final int DEFAULT_SEGMENT_SIZE = 1 << 30;
+
+    private final FileChannel channel;
+    private final long size;
+    private final int segmentSize;
+    private final CharsetDecoder decoder;
+    private long segmentStart;
+    private ByteBuffer segment;
+    private boolean flushed;
+    // the low surrogate of a pair split by a one char read
+    private int pending = -1;
+
+    MappedFileReader(Path file, String charset) throws IOException {
+        this(file, charset, DEFAULT_SEGMENT_SIZE);
+    }
+
+    MappedFileReader(Path file, String charset, int segmentSize) throws IOException {
+        if (segmentSize < 16)
+            throw new IllegalArgumentException("Segment size must be at least 16, was " + segmentSize);
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.segmentSize = segmentSize;
+        try {
+            this.size = channel.size();
+            map(0);
+            byte[] head = new byte[4];
+            int length = Math.min(head.length, segment.remaining());
+            segment.get(head, 0, length);
+            JsonEncoding encoding = JsonEncoding.detect(head, length, charset);
+            ((Buffer) segment).position(encoding.bomLength);
+            this.decoder = encoding.charset.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public int read(char[] buffer, int offset, int length) throws IOException {
+        if (length == 0)
+            return 0;
+        if (pending >= 0) {
+            buffer[offset] = (char) pending;
+            pending = -1;
+            return 1;
+        }
+        CharBuffer out = CharBuffer.wrap(buffer, offset, length);
+        while (true) {
+            if (flushed)
+                return -1;
+            boolean last = segmentStart + segment.limit() == size;
+            CoderResult result = decoder.decode(segment, out, last);
+            if (out.position() > offset)
+                return out.position() - offset;
+            if (result.isOverflow()) {
+                // a surrogate pair does not fit in a single char
+                CharBuffer pair = CharBuffer.allocate(2);
+                decoder.decode(segment, pair, last);
+                buffer[offset] = pair.get(0);
+                pending = pair.get(1);
+                return 1;
+            }
+            if (last) {
+                decoder.flush(out);
+                flushed = true;
+                if (out.position() > offset)
+                    return out.position() - offset;
+            } else {
+                map(segmentStart + segment.position());
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        segment = null;
+        channel.close();
+    }
+
+    private void map(long start) throws IOException {
+        segmentStart = start;
+        segment = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(segmentSize, size - start));
+    }
+}
@@ -4,9 +4,10 @@ import com.jayway.jsonpath.InvalidJsonException;
 import com.jayway.jsonpath.spi.json.AbstractJsonProvider;
 import mjson.Json;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.Reader;
+import java.nio.file.Path;
 import java.util.*;
 
 /**
@@ -14,22 +15,99 @@ import java.util.*;
  */
 public class MjsonJsonProvider extends AbstractJsonProvider {
 
+    private final boolean liveKeys;
+    private final LazyJsonFactory lazy;
+
+    public MjsonJsonProvider() {
+        this(false);
+    }
+
+    /**
+     * @param liveKeys when true, {@link #getPropertyKeys(Object)} returns a read-only live view of
+     * an object's key set instead of a copy. Wildcards and deep scans then enumerate properties
+     * without allocating, but the returned collection reflects later changes to the object.
+     */
+    public MjsonJsonProvider(boolean liveKeys) {
+        this(liveKeys, false);
+    }
+
+    private MjsonJsonProvider(boolean liveKeys, boolean lazy) {
+        this.liveKeys = liveKeys;
+        this.lazy = lazy ? new LazyJsonFactory() : null;
+    }
+
+    /**
+     * A provider parsing documents with a {@link LazyJsonFactory}: parsing only indexes the
+     * text, and the values a path reads are the only ones decoded. Streams and files are read
+     * into memory whole, as the tree decodes from the text.
+     */
+    public static MjsonJsonProvider lazy() {
+        return new MjsonJsonProvider(false, true);
+    }
+
     public Object parse(String json) throws InvalidJsonException {
+        if (lazy != null) {
+            return lazy.read(json);
+        }
         return Json.read(json);
     }
 
+    /**
+     * Parses a document straight off the stream: the bytes are decoded incrementally and fed
+     * to the mjson reader, so neither the raw bytes nor the decoded text are ever held in full.
+     * A byte order mark overrides <code>charset</code>; when <code>charset</code> is null the
+     * encoding is detected as per RFC 4627.
+     */
     public Object parse(InputStream jsonStream, String charset) throws InvalidJsonException {
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
         try {
-            byte[] A = new byte[4096];
-            for (int cnt = jsonStream.read(A); cnt > -1; cnt = jsonStream.read(A))
-                out.write(A, 0, cnt);
-            return Json.read(out.toString(charset));
+            if (lazy != null) {
+                return readLazily(JsonEncoding.reader(jsonStream, charset));
+            }
+            return Json.read(new ReaderCharacterIterator(JsonEncoding.reader(jsonStream, charset)));
+        } catch (IOException e) {
+            throw new InvalidJsonException("IOException", e);
+        }
+    }
+
+    /**
+     * Parses a file by memory-mapping it and decoding straight from the mapping, so the
+     * document's bytes are neither copied into the heap nor through a stream buffer; only
+     * the resulting tree is. Files over 2GB are mapped in segments. The encoding is
+     * determined as for {@link #parse(InputStream, String)}.
+     */
+    public Object parse(Path file, String charset) throws InvalidJsonException {
+        try {
+            MappedFileReader reader = new MappedFileReader(file, charset);
+            try {
+                if (lazy != null) {
+                    return readLazily(reader);
+                }
+                return Json.read(new ReaderCharacterIterator(reader));
+            } finally {
+                reader.close();
+            }
         } catch (IOException e) {
             throw new InvalidJsonException("IOException", e);
         }
     }
 
+    public Object parse(Path file) throws InvalidJsonException {
+        return parse(file, null);
+    }
+
+    private Object readLazily(Reader reader) throws IOException {
+        char[] text = new char[8192];
+        int length = 0;
+        int count;
+        while ((count = reader.read(text, length, text.length - length)) >= 0) {
+            length += count;
+            if (length == text.length) {
+                text = Arrays.copyOf(text, 2 * length);
+            }
+        }
+        return lazy.read(text, 0, length);
+    }
+
     public String toJson(Object obj) {
         return ((Json)obj).toString();
     }
@@ -59,35 +137,70 @@ public class MjsonJsonProvider extends AbstractJsonProvider {
         }
     }
 
+    @Override
+    public void removeProperty(final Object obj, final Object key) {
+        Json json = (Json) obj;
+        if (json.isObject()) {
+            json.delAt(key.toString());
+        } else {
+            json.delAt(key instanceof Integer ? (Integer) key : Integer.parseInt(key.toString()));
+        }
+    }
+
     @Override
     public Object getArrayIndex(final Object obj, final int idx) {
-        return ((Json) obj).asJsonList().get(idx);
+        return ((Json) obj).at(idx);
     }
 
     @Override
-    @SuppressWarnings("unchecked")
     public Collection<String> getPropertyKeys(final Object obj) {
-        Set<String> set = new LinkedHashSet<String>();
         Json json = (Json) obj;
         if (json.isObject()) {
-            set.addAll(((Map<String,Object>)json.getValue()).keySet());
+            Set<String> keys = json.asJsonMap().keySet();
+            return liveKeys ? Collections.unmodifiableSet(keys) : new LinkedHashSet<String>(keys);
         } else if (json.isArray()) {
-            for (Json json1 : json.asJsonList()) {
-                if (json1.isObject()) {
-                    set.addAll(((Map<String, Object>) json1.getValue()).keySet());
+            return arrayPropertyKeys(json);
+        }
+        return Collections.emptySet();
+    }
+
+    /**
+     * The union of the keys of the objects in an array. The common cases of no object and of
+     * a single object are answered without building a union.
+     */
+    private Collection<String> arrayPropertyKeys(final Json array) {
+        Set<String> first = null;
+        Set<String> union = null;
+        for (Json element : array.asJsonList()) {
+            if (!element.isObject()) {
+                continue;
+            }
+            Set<String> keys = element.asJsonMap().keySet();
+            if (first == null) {
+                first = keys;
+            } else {
+                if (union == null) {
+                    union = new LinkedHashSet<String>(first);
                 }
+                union.addAll(keys);
             }
         }
-        return set;
+        if (union != null) {
+            return union;
+        } else if (first == null) {
+            return Collections.emptySet();
+        }
+        return liveKeys ? Collections.unmodifiableSet(first) : new LinkedHashSet<String>(first);
     }
 
     @Override
     public Object getMapValue(final Object obj, final String key) {
         Json json = (Json) obj;
         if (json.isObject()) {
-            Map<String, Json> jsonMap = json.asJsonMap();
-            if (jsonMap.containsKey(key)) {
-                return jsonMap.get(key);
+            // a JSON null is a Json nil, so null can only mean the key is absent
+            Json value = json.at(key);
+            if (value != null) {
+                return value;
             }
         }
 //        else if (json.isArray()) {
@@ -120,9 +233,25 @@ public class MjsonJsonProvider extends AbstractJsonProvider {
 
     @Override
     public void setArrayIndex(final Object array, final int index, final Object newValue) {
-        Json v = Json.make(newValue);
-        List<Json> list = ((Json) array).asJsonList();
-        list.add(index, v);
+        Json json = (Json) array;
+        if (index == length(json)) {
+            json.add(Json.make(newValue));
+        } else {
+            json.set(index, newValue);
+        }
+    }
+
+    @Override
+    public Iterable<?> toIterable(final Object obj) {
+        if (obj instanceof Json && ((Json) obj).isArray()) {
+            List<Json> elements = ((Json) obj).asJsonList();
+            List<Object> values = new ArrayList<Object>(elements.size());
+            for (Json element : elements) {
+                values.add(element.isObject() || element.isArray() ? element : element.getValue());
+            }
+            return values;
+        }
+        return super.toIterable(obj);
     }
 
     @Override
@@ -0,0 +1,127 @@
+package mjson.jsonpath.spi.json;
+
+import com.jayway.jsonpath.InvalidJsonException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.text.CharacterIterator;
+
+/**
+ * A forward-only {@link CharacterIterator} over a {@link Reader}, used to feed
+ * {@link mjson.Json#read(CharacterIterator)} without first materializing the whole
+ * document as a <code>String</code>.
+ *
+ * <p>The iterator starts positioned just before the first character, because
+ * <code>Json.read(CharacterIterator)</code> advances once before it starts reading.
+ * Only a fixed window of characters is held in memory. The mjson parser walks
+ * forward and steps back by at most one character (after a number), so the window
+ * always retains the last character read when it is refilled. The end index is
+ * unknown until the underlying reader is exhausted and is reported as
+ * <code>Integer.MAX_VALUE</code> until then.</p>
+ */
+class ReaderCharacterIterator implements CharacterIterator {
+
+    static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private final Reader reader;
+    private final char[] buffer;
+    private int bufferStart;
+    private int bufferLength;
+    private int index = -1;
+    private int endIndex = Integer.MAX_VALUE;
+
+    ReaderCharacterIterator(Reader reader) {
+        this(reader, DEFAULT_BUFFER_SIZE);
+    }
+
+    ReaderCharacterIterator(Reader reader, int bufferSize) {
+        if (bufferSize < 2)
+            throw new IllegalArgumentException("Buffer size must be at least 2, was " + bufferSize);
+        this.reader = reader;
+        this.buffer = new char[bufferSize];
+    }
+
+    public char first() {
+        if (bufferStart != 0)
+            throw new IllegalStateException("Cannot rewind a stream past position " + bufferStart);
+        index = 0;
+        return current();
+    }
+
+    public char last() {
+        throw new UnsupportedOperationException("The end of a streamed document is not known in advance.");
+    }
+
+    public char current() {
+        if (index < 0 || !fill(index))
+            return DONE;
+        return buffer[index - bufferStart];
+    }
+
+    public char next() {
+        if (index < endIndex)
+            index++;
+        return current();
+    }
+
+    public char previous() {
+        if (index <= 0)
+            return DONE;
+        if (index - 1 < bufferStart)
+            throw new IllegalStateException("Cannot step back past position " + bufferStart);
+        index--;
+        return buffer[index - bufferStart];
+    }
+
+    public char setIndex(int position) {
+        if (position < bufferStart || position > endIndex)
+            throw new IllegalArgumentException("Invalid position " + position);
+        index = position;
+        return current();
+    }
+
+    public int getBeginIndex() {
+        return 0;
+    }
+
+    public int getEndIndex() {
+        return endIndex;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    @Override
+    public Object clone() {
+        throw new UnsupportedOperationException("A streamed document cannot be iterated twice.");
+    }
+
+    /**
+     * Makes sure the character at <code>position</code> is in the window, reading more
+     * input if necessary. Returns false if the input ends before that position.
+     */
+    private boolean fill(int position) {
+        while (position >= bufferStart + bufferLength) {
+            if (position >= endIndex)
+                return false;
+            if (bufferLength > 1) {
+                buffer[0] = buffer[bufferLength - 1];
+                bufferStart += bufferLength - 1;
+                bufferLength = 1;
+            }
+            int count;
+            try {
+                count = reader.read(buffer, bufferLength, buffer.length - bufferLength);
+            } catch (IOException e) {
+                throw new InvalidJsonException("IOException", e);
+            }
+            if (count < 0) {
+                endIndex = bufferStart + bufferLength;
+                return false;
+            }
+            bufferLength += count;
+        }
+        return true;
+    }
+}
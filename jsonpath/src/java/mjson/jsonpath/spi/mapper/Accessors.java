@@ -0,0 +1,158 @@
+package mjson.jsonpath.spi.mapper;
+
+import com.jayway.jsonpath.spi.mapper.MappingException;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Generates the constructors and property setters used to bind beans, once per member.
+ *
+ * <p>Public members of classes visible to this class' loader get a
+ * <code>LambdaMetafactory</code> generated <code>Supplier</code> or <code>BiConsumer</code>,
+ * which the JIT compiles into a direct call. Everything else, and fields in particular, is
+ * reached through a <code>MethodHandle</code>. Either way no reflective lookup or access check
+ * happens while binding.</p>
+ */
+final class Accessors {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private Accessors() {
+    }
+
+    @SuppressWarnings("unchecked")
+    static Supplier<Object> constructor(Constructor<?> constructor) {
+        Class<?> type = constructor.getDeclaringClass();
+        try {
+            if (isLinkable(constructor)) {
+                CallSite site = LambdaMetafactory.metafactory(LOOKUP, "get",
+                        MethodType.methodType(Supplier.class),
+                        MethodType.methodType(Object.class),
+                        LOOKUP.unreflectConstructor(constructor),
+                        MethodType.methodType(type));
+                return (Supplier<Object>) site.getTarget().invokeExact();
+            }
+            constructor.setAccessible(true);
+            return new HandleSupplier(LOOKUP.unreflectConstructor(constructor).asType(MethodType.methodType(Object.class)));
+        } catch (Throwable e) {
+            throw new MappingException("Cannot construct " + type.getName() + ": " + e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static BiConsumer<Object, Object> setter(Method setter) {
+        try {
+            if (isLinkable(setter)) {
+                CallSite site = LambdaMetafactory.metafactory(LOOKUP, "accept",
+                        MethodType.methodType(BiConsumer.class),
+                        MethodType.methodType(void.class, Object.class, Object.class),
+                        LOOKUP.unreflect(setter),
+                        MethodType.methodType(void.class, setter.getDeclaringClass(),
+                                MethodType.methodType(setter.getParameterTypes()[0]).wrap().returnType()));
+                return (BiConsumer<Object, Object>) site.getTarget().invokeExact();
+            }
+            setter.setAccessible(true);
+            return new HandleSetter(LOOKUP.unreflect(setter)
+                    .asType(MethodType.methodType(void.class, Object.class, Object.class)));
+        } catch (Throwable e) {
+            throw new MappingException("Cannot bind " + setter + ": " + e);
+        }
+    }
+
+    static BiConsumer<Object, Object> setter(Field field) {
+        try {
+            field.setAccessible(true);
+            return new HandleSetter(LOOKUP.unreflectSetter(field)
+                    .asType(MethodType.methodType(void.class, Object.class, Object.class)));
+        } catch (Throwable e) {
+            throw new MappingException("Cannot bind " + field + ": " + e);
+        }
+    }
+
+    /**
+     * A handle to <code>constructor</code> that takes its arguments as one array and returns
+     * an <code>Object</code>, so it can be called with <code>invokeExact</code>.
+     */
+    static MethodHandle spreader(Constructor<?> constructor) {
+        try {
+            constructor.setAccessible(true);
+            int arity = constructor.getParameterTypes().length;
+            return LOOKUP.unreflectConstructor(constructor)
+                    .asSpreader(Object[].class, arity)
+                    .asType(MethodType.methodType(Object.class, Object[].class));
+        } catch (Throwable e) {
+            throw new MappingException("Cannot construct " + constructor.getDeclaringClass().getName() + ": " + e);
+        }
+    }
+
+    /**
+     * Whether a lambda can call <code>member</code> directly: it must be public, and its
+     * class public and resolvable from here, since the lambda class is defined next to this
+     * one.
+     */
+    private static boolean isLinkable(Member member) {
+        if (!Modifier.isPublic(member.getModifiers()))
+            return false;
+        for (Class<?> c = member.getDeclaringClass(); c != null; c = c.getDeclaringClass()) {
+            if (!Modifier.isPublic(c.getModifiers()))
+                return false;
+        }
+        try {
+            Class<?> type = member.getDeclaringClass();
+            return Class.forName(type.getName(), false, Accessors.class.getClassLoader()) == type;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    static RuntimeException rethrow(Throwable e) {
+        if (e instanceof RuntimeException)
+            return (RuntimeException) e;
+        if (e instanceof Error)
+            throw (Error) e;
+        return new MappingException(e);
+    }
+
+    private static final class HandleSupplier implements Supplier<Object> {
+        private final MethodHandle handle;
+
+        HandleSupplier(MethodHandle handle) {
+            this.handle = handle;
+        }
+
+        public Object get() {
+            try {
+                return (Object) handle.invokeExact();
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        }
+    }
+
+    private static final class HandleSetter implements BiConsumer<Object, Object> {
+        private final MethodHandle handle;
+
+        HandleSetter(MethodHandle handle) {
+            this.handle = handle;
+        }
+
+        public void accept(Object bean, Object value) {
+            try {
+                handle.invokeExact(bean, value);
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package mjson.jsonpath.spi.mapper;
+
+import mjson.Json;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Binds a Json object to a new instance of a class, property by property. A property is a
+ * public <code>setXxx</code> method or, failing that, a non-final field of the same name;
+ * properties of the Json object without a match are ignored and unmatched bean properties
+ * keep their default value.
+ *
+ * <p>The constructor and setters are generated once, when the converter is built, see
+ * {@link Accessors}.</p>
+ */
+final class BeanConverter implements JsonConverter<Object> {
+
+    static final class Property {
+        final BiConsumer<Object, Object> setter;
+        final JsonConverter<?> converter;
+        final boolean primitive;
+
+        Property(BiConsumer<Object, Object> setter, JsonConverter<?> converter, boolean primitive) {
+            this.setter = setter;
+            this.converter = converter;
+            this.primitive = primitive;
+        }
+    }
+
+    private final Class<?> type;
+    private final Supplier<Object> constructor;
+    private final Map<String, Property> properties = new HashMap<String, Property>();
+
+    BeanConverter(Class<?> type, Map<TypeVariable<?>, Type> bindings, TypeConverters converters,
+                  Map<Type, TypeConverters.Deferred> building) {
+        this.type = type;
+        this.constructor = Accessors.constructor(TypeConverters.defaultConstructor(type));
+        for (Class<?> c = type; c != null && c != Object.class; ) {
+            for (Method method : c.getDeclaredMethods()) {
+                if (!isSetter(method))
+                    continue;
+                String name = propertyName(method.getName());
+                if (properties.containsKey(name))
+                    continue;
+                properties.put(name, new Property(Accessors.setter(method),
+                        converters.property(method.getGenericParameterTypes()[0], bindings, building),
+                        method.getParameterTypes()[0].isPrimitive()));
+            }
+            for (Field field : c.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || Modifier.isFinal(modifiers)
+                        || field.isSynthetic() || properties.containsKey(field.getName()))
+                    continue;
+                properties.put(field.getName(), new Property(Accessors.setter(field),
+                        converters.property(field.getGenericType(), bindings, building),
+                        field.getType().isPrimitive()));
+            }
+            Type superType = TypeConverters.resolve(c.getGenericSuperclass(), bindings);
+            c = c.getSuperclass();
+            if (superType instanceof ParameterizedType)
+                bindings = TypeConverters.bindings(c, ((ParameterizedType) superType).getActualTypeArguments());
+        }
+    }
+
+    private static boolean isSetter(Method method) {
+        int modifiers = method.getModifiers();
+        return Modifier.isPublic(modifiers) && !Modifier.isStatic(modifiers)
+                && !method.isBridge() && !method.isSynthetic()
+                && method.getName().length() > 3 && method.getName().startsWith("set")
+                && method.getParameterTypes().length == 1
+                && method.getReturnType() == void.class;
+    }
+
+    /**
+     * <code>setName</code> binds <code>name</code>, <code>setURL</code> binds <code>URL</code>.
+     */
+    static String propertyName(String setter) {
+        String name = setter.substring(3);
+        if (name.length() > 1 && Character.isUpperCase(name.charAt(1)))
+            return name;
+        return Character.toLowerCase(name.charAt(0)) + name.substring(1);
+    }
+
+    public Object convert(Json json) {
+        if (json.isNull())
+            return null;
+        if (!json.isObject())
+            throw TypeConverters.cannotConvert(json, type);
+        Object instance = constructor.get();
+        for (Map.Entry<String, Json> e : json.asJsonMap().entrySet()) {
+            Property property = properties.get(e.getKey());
+            if (property == null || property.primitive && e.getValue().isNull())
+                continue;
+            property.setter.accept(instance, property.converter.convert(e.getValue()));
+        }
+        return instance;
+    }
+}
@@ -0,0 +1,19 @@
+package mjson.jsonpath.spi.mapper;
+
+import mjson.Json;
+
+/**
+ * Converts a {@link Json} element into an instance of a Java type. Converters are built once
+ * per target type by {@link MjsonMappingProvider} and reused for every mapping to that type.
+ *
+ * @param <T> the target type
+ */
+public interface JsonConverter<T> {
+
+    /**
+     * @param json the element to convert, never null but possibly a Json nil
+     * @throws com.jayway.jsonpath.spi.mapper.MappingException if the element cannot be
+     * represented as the target type
+     */
+    T convert(Json json);
+}
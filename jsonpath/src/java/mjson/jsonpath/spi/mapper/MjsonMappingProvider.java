@@ -6,68 +6,65 @@ import com.jayway.jsonpath.spi.mapper.MappingException;
 import com.jayway.jsonpath.spi.mapper.MappingProvider;
 import mjson.Json;
 
-import java.util.ArrayList;
+import java.lang.reflect.Type;
 
 /**
  * Created by Matt Pratap on 2016-11-06.
+ *
+ * <p>Maps path results straight from the <code>Json</code> tree. Each target type, including
+ * the generic ones of a {@link TypeRef} such as <code>List&lt;Order&gt;</code> or
+ * <code>Map&lt;String, Order&gt;</code>, gets a converter that is built on first use and
+ * cached by this provider. Besides scalars, converters handle collections, maps, arrays,
+ * <code>Optional</code>, enums and POJOs, whose fields are bound by name.</p>
+ *
+ * <p>Primitives, their wrappers, <code>String</code>, <code>BigDecimal</code>,
+ * <code>BigInteger</code>, <code>UUID</code> and <code>Instant</code> (from ISO-8601 text or
+ * epoch milliseconds) have built-in converters. Other value types can be added, or the
+ * built-in ones replaced, with {@link #register(Class, JsonConverter)}.</p>
  */
 @SuppressWarnings("unchecked")
 public class MjsonMappingProvider implements MappingProvider {
 
+    private final TypeConverters converters = new TypeConverters();
+
+    /**
+     * Uses <code>converter</code> whenever <code>type</code> is mapped to, on its own or as
+     * part of a larger type. Register converters before the provider is put to use, converters
+     * built earlier are discarded.
+     *
+     * @return this provider
+     */
+    public <T> MjsonMappingProvider register(Class<T> type, JsonConverter<? extends T> converter) {
+        if (type == null || converter == null)
+            throw new IllegalArgumentException("Type and converter may not be null");
+        converters.register(type, converter);
+        return this;
+    }
+
     public <T> T map(Object source, Class<T> targetType, Configuration configuration) {
+        return (T) map(source, (Type) targetType);
+    }
+
+    public <T> T map(Object source, TypeRef<T> targetType, Configuration configuration) {
+        return (T) map(source, targetType.getType());
+    }
+
+    private Object map(Object source, Type targetType) {
         if (source == null) {
             return null;
         }
-        Object o = null;
+        Json json;
         if (source instanceof Json) {
-            String s = targetType.getName();
-            Json json = (Json) source;
-            if (json.isObject() && s.equals("java.lang.Object")) {
-                o = (T) json.getValue();
-            } else if (targetType.isAssignableFrom(json.getValue().getClass())) {
-                o = (T) json.getValue();
-            } else if (s.equals("string") || s.equals("java.lang.String")) {
-                o = (T) json.getValue().toString();
-            } else if (json.isNumber()) {
-                if (s.equals("int") || s.equals("java.lang.Integer")) {
-                    o = json.asInteger();
-                } else if (s.equals("long") || s.equals("java.lang.Long")) {
-                    o = json.asLong();
-                } else if (s.equals("double") || s.equals("java.lang.Double")) {
-                    o = json.asDouble();
-                } else if (s.equals("float") || s.equals("java.lang.Float")) {
-                    o = json.asFloat();
-                } else if (s.equals("short") || s.equals("java.lang.Short")) {
-                    o = json.asShort();
-                } else if (s.equals("byte") || s.equals("java.lang.Byte")) {
-                    o = json.asByte();
-                }
-            } else if (json.isBoolean() && s.equals("boolean") || s.equals("java.lang.Boolean")) {
-                o = json.asBoolean();
-            }
-        } else if (targetType.isAssignableFrom(source.getClass())) {
-            o = (T) source;
-        }
-        if (o != null)
-            return (T) o;
-
-        try {
-            if (targetType.isAssignableFrom(ArrayList.class) && configuration.jsonProvider().isArray(source)) {
-                int length = configuration.jsonProvider().length(source);
-                @SuppressWarnings("rawtypes")
-                ArrayList<Object> list = new ArrayList<Object>(length);
-                for (Object o1 : configuration.jsonProvider().toIterable(source)) {
-                    list.add(o1);
-                }
-                return (T) list;
+            json = (Json) source;
+        } else if (targetType instanceof Class && ((Class<?>) targetType).isAssignableFrom(source.getClass())) {
+            return source;
+        } else {
+            try {
+                json = Json.make(source);
+            } catch (IllegalArgumentException e) {
+                throw new MappingException("Cannot convert a " + source.getClass().getName() + " to a " + targetType);
             }
-        } catch (Exception e) {
-            e.printStackTrace();
         }
-        throw new MappingException("Cannot convert a " + source.getClass().getName() + " to a " + targetType);
-    }
-
-    public <T> T map(Object source, TypeRef<T> targetType, Configuration configuration) {
-        return null;
+        return converters.forType(targetType).convert(json);
     }
 }
@@ -0,0 +1,89 @@
+package mjson.jsonpath.spi.mapper;
+
+import com.jayway.jsonpath.spi.mapper.MappingException;
+import mjson.Json;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Binds a Json object to a record through its canonical constructor. Record components are
+ * matched by name; missing components are passed as null, or zero for primitives.
+ *
+ * <p>This module compiles for Java 8, so records are recognized and their components read
+ * reflectively, once, when the converter is built.</p>
+ */
+final class RecordConverter implements JsonConverter<Object> {
+
+    private final Class<?> type;
+    private final MethodHandle constructor;
+    private final Map<String, Integer> indexes = new HashMap<String, Integer>();
+    private final JsonConverter<?>[] converters;
+    private final boolean[] primitive;
+    private final Object[] defaults;
+
+    static boolean isRecord(Class<?> type) {
+        Class<?> superclass = type.getSuperclass();
+        return superclass != null && "java.lang.Record".equals(superclass.getName());
+    }
+
+    RecordConverter(Class<?> type, Map<TypeVariable<?>, Type> bindings, TypeConverters converters,
+                    Map<Type, TypeConverters.Deferred> building) {
+        this.type = type;
+        Object[] components;
+        Method name, genericType, rawType;
+        try {
+            components = (Object[]) Class.class.getMethod("getRecordComponents").invoke(type);
+            Class<?> component = Class.forName("java.lang.reflect.RecordComponent");
+            name = component.getMethod("getName");
+            genericType = component.getMethod("getGenericType");
+            rawType = component.getMethod("getType");
+        } catch (Exception e) {
+            throw new MappingException("Cannot read the components of record " + type.getName() + ": " + e);
+        }
+        int n = components.length;
+        this.converters = new JsonConverter<?>[n];
+        this.primitive = new boolean[n];
+        this.defaults = new Object[n];
+        Class<?>[] parameterTypes = new Class<?>[n];
+        try {
+            for (int i = 0; i < n; i++) {
+                parameterTypes[i] = (Class<?>) rawType.invoke(components[i]);
+                indexes.put((String) name.invoke(components[i]), i);
+                this.converters[i] = converters.property((Type) genericType.invoke(components[i]), bindings, building);
+                this.primitive[i] = parameterTypes[i].isPrimitive();
+                if (this.primitive[i])
+                    this.defaults[i] = Array.get(Array.newInstance(parameterTypes[i], 1), 0);
+            }
+            this.constructor = Accessors.spreader(type.getDeclaredConstructor(parameterTypes));
+        } catch (NoSuchMethodException e) {
+            throw new MappingException("Record " + type.getName() + " has no canonical constructor");
+        } catch (Exception e) {
+            throw new MappingException("Cannot read the components of record " + type.getName() + ": " + e);
+        }
+    }
+
+    public Object convert(Json json) {
+        if (json.isNull())
+            return null;
+        if (!json.isObject())
+            throw TypeConverters.cannotConvert(json, type);
+        Object[] arguments = defaults.clone();
+        for (Map.Entry<String, Json> e : json.asJsonMap().entrySet()) {
+            Integer index = indexes.get(e.getKey());
+            if (index == null || primitive[index] && e.getValue().isNull())
+                continue;
+            arguments[index] = converters[index].convert(e.getValue());
+        }
+        try {
+            return (Object) constructor.invokeExact(arguments);
+        } catch (Throwable e) {
+            throw Accessors.rethrow(e);
+        }
+    }
+}
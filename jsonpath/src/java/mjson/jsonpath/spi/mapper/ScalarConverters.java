@@ -0,0 +1,207 @@
+package mjson.jsonpath.spi.mapper;
+
+import mjson.Json;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * The built-in converters of primitives, their wrappers and a few value types of the JDK,
+ * keyed by target class. The table is read-only once the class is initialized, so a lookup
+ * is a plain identity map probe.
+ */
+final class ScalarConverters {
+
+    private static final Map<Class<?>, JsonConverter<?>> BUILT_IN = new IdentityHashMap<Class<?>, JsonConverter<?>>();
+
+    private ScalarConverters() {
+    }
+
+    /**
+     * @return the built-in converter for <code>type</code>, or null if there is none
+     */
+    static JsonConverter<?> builtIn(Class<?> type) {
+        return BUILT_IN.get(type);
+    }
+
+    /**
+     * Converts any element whose plain Java value is an instance of the target type, which
+     * covers <code>Map</code>, <code>List</code>, <code>CharSequence</code> and the like.
+     */
+    static JsonConverter<Object> assignable(final Class<?> type) {
+        return new JsonConverter<Object>() {
+            public Object convert(Json json) {
+                Object value = json.getValue();
+                if (value == null || type.isInstance(value))
+                    return value;
+                throw TypeConverters.cannotConvert(json, type);
+            }
+        };
+    }
+
+    private static void put(Class<?> primitive, Class<?> wrapper, JsonConverter<?> converter) {
+        BUILT_IN.put(primitive, new Primitive(primitive, converter));
+        BUILT_IN.put(wrapper, converter);
+    }
+
+    /**
+     * Guards a wrapper's converter against nil, which has no primitive representation.
+     */
+    private static final class Primitive implements JsonConverter<Object> {
+        private final Class<?> type;
+        private final JsonConverter<?> wrapper;
+
+        Primitive(Class<?> type, JsonConverter<?> wrapper) {
+            this.type = type;
+            this.wrapper = wrapper;
+        }
+
+        public Object convert(Json json) {
+            if (json.isNull())
+                throw TypeConverters.cannotConvert(json, type);
+            return wrapper.convert(json);
+        }
+    }
+
+    private abstract static class NumberConverter<T> implements JsonConverter<T> {
+        private final Class<T> type;
+
+        NumberConverter(Class<T> type) {
+            this.type = type;
+        }
+
+        public T convert(Json json) {
+            if (json.isNumber())
+                return number(json);
+            if (json.isNull())
+                return null;
+            throw TypeConverters.cannotConvert(json, type);
+        }
+
+        abstract T number(Json json);
+    }
+
+    static {
+        put(int.class, Integer.class, new NumberConverter<Integer>(Integer.class) {
+            Integer number(Json json) {
+                return json.asInteger();
+            }
+        });
+        put(long.class, Long.class, new NumberConverter<Long>(Long.class) {
+            Long number(Json json) {
+                return json.asLong();
+            }
+        });
+        put(double.class, Double.class, new NumberConverter<Double>(Double.class) {
+            Double number(Json json) {
+                return json.asDouble();
+            }
+        });
+        put(float.class, Float.class, new NumberConverter<Float>(Float.class) {
+            Float number(Json json) {
+                return json.asFloat();
+            }
+        });
+        put(short.class, Short.class, new NumberConverter<Short>(Short.class) {
+            Short number(Json json) {
+                return json.asShort();
+            }
+        });
+        put(byte.class, Byte.class, new NumberConverter<Byte>(Byte.class) {
+            Byte number(Json json) {
+                return json.asByte();
+            }
+        });
+        put(boolean.class, Boolean.class, new JsonConverter<Boolean>() {
+            public Boolean convert(Json json) {
+                if (json.isBoolean())
+                    return json.asBoolean();
+                if (json.isNull())
+                    return null;
+                throw TypeConverters.cannotConvert(json, Boolean.class);
+            }
+        });
+        put(char.class, Character.class, new JsonConverter<Character>() {
+            public Character convert(Json json) {
+                if (json.isString() && json.asString().length() == 1)
+                    return json.asString().charAt(0);
+                if (json.isNull())
+                    return null;
+                throw TypeConverters.cannotConvert(json, Character.class);
+            }
+        });
+        BUILT_IN.put(Number.class, new NumberConverter<Number>(Number.class) {
+            Number number(Json json) {
+                return (Number) json.getValue();
+            }
+        });
+        BUILT_IN.put(BigDecimal.class, new NumberConverter<BigDecimal>(BigDecimal.class) {
+            BigDecimal number(Json json) {
+                Object value = json.getValue();
+                if (value instanceof BigDecimal)
+                    return (BigDecimal) value;
+                if (value instanceof Double || value instanceof Float)
+                    return BigDecimal.valueOf(((Number) value).doubleValue());
+                if (value instanceof BigInteger)
+                    return new BigDecimal((BigInteger) value);
+                return BigDecimal.valueOf(((Number) value).longValue());
+            }
+        });
+        BUILT_IN.put(BigInteger.class, new NumberConverter<BigInteger>(BigInteger.class) {
+            BigInteger number(Json json) {
+                Object value = json.getValue();
+                if (value instanceof BigInteger)
+                    return (BigInteger) value;
+                if (value instanceof BigDecimal)
+                    return ((BigDecimal) value).toBigInteger();
+                return BigInteger.valueOf(((Number) value).longValue());
+            }
+        });
+        BUILT_IN.put(String.class, new JsonConverter<String>() {
+            public String convert(Json json) {
+                if (json.isString())
+                    return json.asString();
+                Object value = json.getValue();
+                return value == null ? null : value.toString();
+            }
+        });
+        BUILT_IN.put(Object.class, new JsonConverter<Object>() {
+            public Object convert(Json json) {
+                return json.getValue();
+            }
+        });
+        BUILT_IN.put(UUID.class, new JsonConverter<UUID>() {
+            public UUID convert(Json json) {
+                if (json.isNull())
+                    return null;
+                try {
+                    if (json.isString())
+                        return UUID.fromString(json.asString());
+                } catch (IllegalArgumentException e) {
+                    // fall through to the mapping error
+                }
+                throw TypeConverters.cannotConvert(json, UUID.class);
+            }
+        });
+        BUILT_IN.put(Instant.class, new JsonConverter<Instant>() {
+            public Instant convert(Json json) {
+                if (json.isNull())
+                    return null;
+                if (json.isNumber())
+                    return Instant.ofEpochMilli(json.asLong());
+                try {
+                    if (json.isString())
+                        return Instant.parse(json.asString());
+                } catch (DateTimeParseException e) {
+                    // fall through to the mapping error
+                }
+                throw TypeConverters.cannotConvert(json, Instant.class);
+            }
+        });
+    }
+}
@@ -0,0 +1,472 @@
+package mjson.jsonpath.spi.mapper;
+
+import com.jayway.jsonpath.spi.mapper.MappingException;
+import mjson.Json;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Builds and caches one {@link JsonConverter} per target {@link Type}. Generic types are
+ * broken down once into a tree of converters, so a repeated typed read only walks the
+ * <code>Json</code> tree and calls the cached converters.
+ *
+ * <p>Converters of plain classes are found through a <code>ClassValue</code>, so mapping to
+ * a class is a single lookup once its converter exists. Parameterized and array types are
+ * cached in a map keyed by the type.</p>
+ */
+final class TypeConverters {
+
+    /**
+     * Holds the converter of one class. It starts out empty, the converter is built outside
+     * of <code>ClassValue.computeValue</code> so self-referencing classes can be resolved.
+     */
+    static final class Slot {
+        volatile JsonConverter<?> converter;
+    }
+
+    static final class Slots extends ClassValue<Slot> {
+        protected Slot computeValue(Class<?> type) {
+            return new Slot();
+        }
+    }
+
+    private final Map<Class<?>, JsonConverter<?>> registered = new ConcurrentHashMap<Class<?>, JsonConverter<?>>();
+    private volatile Slots classes = new Slots();
+    private volatile ConcurrentMap<Type, JsonConverter<?>> generics = new ConcurrentHashMap<Type, JsonConverter<?>>();
+
+    /**
+     * Makes <code>converter</code> the one used for <code>type</code>, wherever it occurs.
+     * Converters built so far are dropped since they may hold the previous one.
+     */
+    void register(Class<?> type, JsonConverter<?> converter) {
+        registered.put(type, converter);
+        classes = new Slots();
+        generics = new ConcurrentHashMap<Type, JsonConverter<?>>();
+    }
+
+    JsonConverter<?> forType(Type type) {
+        JsonConverter<?> converter = cached(type);
+        if (converter != null)
+            return converter;
+        Map<Type, Deferred> building = new HashMap<Type, Deferred>();
+        build(type, building);
+        // the converters of a build are only cached once all of it succeeded, a failed one
+        // may leave converters holding deferred ones that were never resolved
+        for (Map.Entry<Type, Deferred> e : building.entrySet())
+            publish(e.getKey(), e.getValue().target);
+        return cached(type);
+    }
+
+    private JsonConverter<?> cached(Type type) {
+        if (type instanceof Class)
+            return classes.get((Class<?>) type).converter;
+        return generics.get(type);
+    }
+
+    private JsonConverter<?> lookup(Type type, Map<Type, Deferred> building) {
+        JsonConverter<?> converter = cached(type);
+        if (converter != null)
+            return converter;
+        // a type built earlier in this build, or one that refers to itself, e.g. a tree node
+        // with a list of children
+        Deferred deferred = building.get(type);
+        if (deferred != null)
+            return deferred.target != null ? deferred.target : deferred;
+        return build(type, building);
+    }
+
+    private JsonConverter<?> build(Type type, Map<Type, Deferred> building) {
+        Deferred deferred = new Deferred();
+        building.put(type, deferred);
+        deferred.target = create(type, building);
+        return deferred.target;
+    }
+
+    private void publish(Type type, JsonConverter<?> converter) {
+        if (type instanceof Class) {
+            Slot slot = classes.get((Class<?>) type);
+            // racing builds produce equivalent converters, keep whichever landed first
+            if (slot.converter == null)
+                slot.converter = converter;
+        } else {
+            generics.putIfAbsent(type, converter);
+        }
+    }
+
+    private JsonConverter<?> create(Type type, Map<Type, Deferred> building) {
+        if (type instanceof Class)
+            return forClass((Class<?>) type, building);
+        if (type instanceof ParameterizedType) {
+            ParameterizedType parameterized = (ParameterizedType) type;
+            Class<?> raw = (Class<?>) parameterized.getRawType();
+            Type[] arguments = parameterized.getActualTypeArguments();
+            if (raw == Optional.class)
+                return new OptionalConverter(lookup(arguments[0], building));
+            if (Map.class.isAssignableFrom(raw))
+                return new MapConverter(type, raw, keyConverter(arguments[0], building), lookup(arguments[1], building));
+            if (Collection.class.isAssignableFrom(raw) || raw == Iterable.class)
+                return new CollectionConverter(type, raw, lookup(arguments[0], building));
+            return bean(raw, bindings(raw, arguments), building);
+        }
+        if (type instanceof GenericArrayType) {
+            Type component = ((GenericArrayType) type).getGenericComponentType();
+            return new ArrayConverter(rawType(component), lookup(component, building));
+        }
+        if (type instanceof WildcardType)
+            return lookup(((WildcardType) type).getUpperBounds()[0], building);
+        if (type instanceof TypeVariable)
+            return lookup(((TypeVariable<?>) type).getBounds()[0], building);
+        throw new MappingException("Unsupported target type " + type);
+    }
+
+    private JsonConverter<?> forClass(Class<?> type, Map<Type, Deferred> building) {
+        JsonConverter<?> converter = registered.get(type);
+        if (converter == null)
+            converter = ScalarConverters.builtIn(type);
+        if (converter != null)
+            return converter;
+        if (type == Json.class)
+            return IDENTITY;
+        if (type.isArray())
+            return new ArrayConverter(type.getComponentType(), lookup(type.getComponentType(), building));
+        if (type.isEnum())
+            return new EnumConverter(type);
+        if (isScalar(type))
+            return ScalarConverters.assignable(type);
+        return bean(type, Collections.<TypeVariable<?>, Type>emptyMap(), building);
+    }
+
+    private JsonConverter<?> bean(Class<?> type, Map<TypeVariable<?>, Type> bindings, Map<Type, Deferred> building) {
+        if (RecordConverter.isRecord(type))
+            return new RecordConverter(type, bindings, this, building);
+        return new BeanConverter(type, bindings, this, building);
+    }
+
+    /**
+     * Types that are mapped from the element's value rather than bound property by property:
+     * primitives, the JDK's own types, and interfaces or abstract classes we could not
+     * instantiate anyway.
+     */
+    static boolean isScalar(Class<?> type) {
+        return type.isPrimitive()
+                || type.isInterface()
+                || Modifier.isAbstract(type.getModifiers())
+                || type.getName().startsWith("java.");
+    }
+
+    private JsonConverter<?> keyConverter(Type keyType, Map<Type, Deferred> building) {
+        if (keyType == String.class || keyType == Object.class || keyType instanceof WildcardType)
+            return null;
+        return lookup(keyType, building);
+    }
+
+    /**
+     * Looks up the converter of a bean property, resolving the type variables of the bean's
+     * class against the arguments it was parameterized with.
+     */
+    JsonConverter<?> property(Type type, Map<TypeVariable<?>, Type> bindings, Map<Type, Deferred> building) {
+        return lookup(resolve(type, bindings), building);
+    }
+
+    static Map<TypeVariable<?>, Type> bindings(Class<?> raw, Type[] arguments) {
+        TypeVariable<?>[] variables = raw.getTypeParameters();
+        Map<TypeVariable<?>, Type> bindings = new HashMap<TypeVariable<?>, Type>();
+        for (int i = 0; i < variables.length && i < arguments.length; i++)
+            bindings.put(variables[i], arguments[i]);
+        return bindings;
+    }
+
+    static Type resolve(Type type, Map<TypeVariable<?>, Type> bindings) {
+        if (bindings.isEmpty())
+            return type;
+        if (type instanceof TypeVariable) {
+            Type bound = bindings.get(type);
+            return bound != null ? bound : type;
+        }
+        if (type instanceof ParameterizedType) {
+            ParameterizedType parameterized = (ParameterizedType) type;
+            Type[] arguments = parameterized.getActualTypeArguments().clone();
+            boolean changed = false;
+            for (int i = 0; i < arguments.length; i++) {
+                Type resolved = resolve(arguments[i], bindings);
+                changed |= resolved != arguments[i];
+                arguments[i] = resolved;
+            }
+            if (!changed)
+                return type;
+            return new ResolvedType((Class<?>) parameterized.getRawType(), parameterized.getOwnerType(), arguments);
+        }
+        if (type instanceof GenericArrayType) {
+            Type component = resolve(((GenericArrayType) type).getGenericComponentType(), bindings);
+            if (component instanceof Class)
+                return Array.newInstance((Class<?>) component, 0).getClass();
+        }
+        return type;
+    }
+
+    static Class<?> rawType(Type type) {
+        if (type instanceof Class)
+            return (Class<?>) type;
+        if (type instanceof ParameterizedType)
+            return (Class<?>) ((ParameterizedType) type).getRawType();
+        if (type instanceof GenericArrayType)
+            return Array.newInstance(rawType(((GenericArrayType) type).getGenericComponentType()), 0).getClass();
+        if (type instanceof WildcardType)
+            return rawType(((WildcardType) type).getUpperBounds()[0]);
+        if (type instanceof TypeVariable)
+            return rawType(((TypeVariable<?>) type).getBounds()[0]);
+        return Object.class;
+    }
+
+    static MappingException cannotConvert(Json json, Type type) {
+        return new MappingException("Cannot convert a " + json.getClass().getName() + " to a " + type);
+    }
+
+    private static final JsonConverter<Json> IDENTITY = new JsonConverter<Json>() {
+        public Json convert(Json json) {
+            return json;
+        }
+    };
+
+    /**
+     * Stands in for a converter that is still being built when its type is reached again.
+     */
+    static final class Deferred implements JsonConverter<Object> {
+        volatile JsonConverter<?> target;
+
+        public Object convert(Json json) {
+            return target.convert(json);
+        }
+    }
+
+    static final class EnumConverter implements JsonConverter<Object> {
+        private final Class<?> type;
+        private final Map<String, Object> constants = new HashMap<String, Object>();
+
+        EnumConverter(Class<?> type) {
+            this.type = type;
+            for (Object constant : type.getEnumConstants())
+                constants.put(((Enum<?>) constant).name(), constant);
+        }
+
+        public Object convert(Json json) {
+            if (json.isNull())
+                return null;
+            Object constant = json.isString() ? constants.get(json.asString()) : null;
+            if (constant == null)
+                throw cannotConvert(json, type);
+            return constant;
+        }
+    }
+
+    static final class OptionalConverter implements JsonConverter<Optional<?>> {
+        private final JsonConverter<?> element;
+
+        OptionalConverter(JsonConverter<?> element) {
+            this.element = element;
+        }
+
+        public Optional<?> convert(Json json) {
+            if (json.isNull())
+                return Optional.empty();
+            return Optional.ofNullable(element.convert(json));
+        }
+    }
+
+    static final class ArrayConverter implements JsonConverter<Object> {
+        private final Class<?> component;
+        private final JsonConverter<?> element;
+
+        ArrayConverter(Class<?> component, JsonConverter<?> element) {
+            this.component = component;
+            this.element = element;
+        }
+
+        public Object convert(Json json) {
+            if (json.isNull())
+                return null;
+            if (!json.isArray())
+                throw cannotConvert(json, Array.newInstance(component, 0).getClass());
+            List<Json> elements = json.asJsonList();
+            int length = elements.size();
+            Object array = Array.newInstance(component, length);
+            if (component.isPrimitive()) {
+                for (int i = 0; i < length; i++)
+                    Array.set(array, i, element.convert(elements.get(i)));
+            } else {
+                Object[] objects = (Object[]) array;
+                for (int i = 0; i < length; i++)
+                    objects[i] = element.convert(elements.get(i));
+            }
+            return array;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static final class CollectionConverter implements JsonConverter<Collection<Object>> {
+        private final Type type;
+        private final Class<?> raw;
+        private final Supplier<Object> constructor;
+        private final JsonConverter<?> element;
+
+        CollectionConverter(Type type, Class<?> raw, JsonConverter<?> element) {
+            this.type = type;
+            this.raw = raw;
+            this.element = element;
+            this.constructor = isScalar(raw) ? null : Accessors.constructor(defaultConstructor(raw));
+        }
+
+        public Collection<Object> convert(Json json) {
+            if (json.isNull())
+                return null;
+            if (!json.isArray())
+                throw cannotConvert(json, type);
+            List<Json> elements = json.asJsonList();
+            Collection<Object> collection = newCollection(elements.size());
+            for (Json e : elements)
+                collection.add(element.convert(e));
+            return collection;
+        }
+
+        private Collection<Object> newCollection(int size) {
+            if (constructor != null)
+                return (Collection<Object>) constructor.get();
+            if (raw.isAssignableFrom(ArrayList.class))
+                return new ArrayList<Object>(size);
+            if (raw.isAssignableFrom(LinkedHashSet.class))
+                return new LinkedHashSet<Object>(size * 4 / 3 + 1);
+            if (raw.isAssignableFrom(TreeSet.class) || raw == SortedSet.class)
+                return new TreeSet<Object>();
+            throw new MappingException("Cannot instantiate a " + type);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static final class MapConverter implements JsonConverter<Map<Object, Object>> {
+        private final Type type;
+        private final Class<?> raw;
+        private final Supplier<Object> constructor;
+        private final JsonConverter<?> key;
+        private final JsonConverter<?> value;
+
+        MapConverter(Type type, Class<?> raw, JsonConverter<?> key, JsonConverter<?> value) {
+            this.type = type;
+            this.raw = raw;
+            this.key = key;
+            this.value = value;
+            this.constructor = isScalar(raw) ? null : Accessors.constructor(defaultConstructor(raw));
+        }
+
+        public Map<Object, Object> convert(Json json) {
+            if (json.isNull())
+                return null;
+            if (!json.isObject())
+                throw cannotConvert(json, type);
+            Map<String, Json> properties = json.asJsonMap();
+            Map<Object, Object> map = newMap(properties.size());
+            for (Map.Entry<String, Json> e : properties.entrySet()) {
+                Object k = key == null ? e.getKey() : key.convert(Json.make(e.getKey()));
+                map.put(k, value.convert(e.getValue()));
+            }
+            return map;
+        }
+
+        private Map<Object, Object> newMap(int size) {
+            if (constructor != null)
+                return (Map<Object, Object>) constructor.get();
+            if (raw.isAssignableFrom(LinkedHashMap.class))
+                return new LinkedHashMap<Object, Object>(size * 4 / 3 + 1);
+            if (raw.isAssignableFrom(TreeMap.class) || raw == SortedMap.class)
+                return new TreeMap<Object, Object>();
+            if (raw.isAssignableFrom(ConcurrentHashMap.class))
+                return new ConcurrentHashMap<Object, Object>(size * 4 / 3 + 1);
+            throw new MappingException("Cannot instantiate a " + type);
+        }
+    }
+
+    static Constructor<?> defaultConstructor(Class<?> type) {
+        try {
+            return type.getDeclaredConstructor();
+        } catch (NoSuchMethodException e) {
+            throw new MappingException("Cannot map to " + type.getName() + ", it has no default constructor");
+        }
+    }
+
+    /**
+     * A parameterized type whose type variables were substituted, comparable with the JDK's
+     * own implementation so both hit the same cache entry.
+     */
+    static final class ResolvedType implements ParameterizedType {
+        private final Class<?> raw;
+        private final Type owner;
+        private final Type[] arguments;
+
+        ResolvedType(Class<?> raw, Type owner, Type[] arguments) {
+            this.raw = raw;
+            this.owner = owner;
+            this.arguments = arguments;
+        }
+
+        public Type[] getActualTypeArguments() {
+            return arguments.clone();
+        }
+
+        public Type getRawType() {
+            return raw;
+        }
+
+        public Type getOwnerType() {
+            return owner;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof ParameterizedType))
+                return false;
+            ParameterizedType other = (ParameterizedType) o;
+            return raw.equals(other.getRawType())
+                    && (owner == null ? other.getOwnerType() == null : owner.equals(other.getOwnerType()))
+                    && Arrays.equals(arguments, other.getActualTypeArguments());
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(arguments) ^ (owner == null ? 0 : owner.hashCode()) ^ raw.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder(raw.getName()).append('<');
+            for (int i = 0; i < arguments.length; i++) {
+                if (i > 0)
+                    sb.append(", ");
+                sb.append(arguments[i].getTypeName());
+            }
+            return sb.append('>').toString();
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package mjson.jsonpath.stream;
+
+import mjson.Json;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Many paths evaluated together, in one traversal of a <code>Json</code> tree.
+ *
+ * <p>The paths are compiled into a trie of their segments, so paths that share a prefix,
+ * such as <code>$.order.customer.name</code> and <code>$.order.customer.id</code>, walk it
+ * once. The traversal carries the set of trie edges that apply to the current node; members
+ * and elements named by those edges are looked up directly, and a node's children are only
+ * enumerated when a wildcard, a slice or a deep scan asks for it.</p>
+ *
+ * <pre>
+ * JsonPathSet fields = JsonPathSet.compile("$.order.id", "$.order.customer.name", "$.order.lines[*].sku");
+ * Map&lt;String, Object&gt; values = fields.read(document);
+ * </pre>
+ *
+ * <p>A definite path maps to its <code>Json</code> value, or to null if it is not found. An
+ * indefinite path maps to the <code>List</code> of its matches, in document order. A path
+ * ending in a property list, such as <code>$.customer['name', 'id']</code>, maps to a
+ * <code>Map</code> of the properties present, or to a list of such maps. These are the
+ * results of <code>JsonPath.read</code> with the mjson provider, a name or index listed
+ * twice selecting its value twice, except that the elements of an index list such as
+ * <code>[2, 0]</code> come in document order rather than in the order listed, and that
+ * they are not collected into new <code>Json</code> arrays and objects: adding a value to a
+ * <code>Json</code> container records the container as one of its parents, which would
+ * grow the document with each read.</p>
+ *
+ * <p>The supported syntax is that of {@link StreamingJsonPath}. A compiled set is immutable
+ * and may be shared between threads.</p>
+ */
+public final class JsonPathSet {
+
+    private static final int[] NONE = new int[0];
+
+    /**
+     * A segment of one or more paths, and the segments that follow it.
+     */
+    private static final class Edge {
+        final Segment segment;
+        final List<Edge> next = new ArrayList<Edge>();
+        int[] terminals = NONE;
+        // a trailing property list, whose result is an object of the properties present
+        boolean merging;
+
+        Edge(Segment segment) {
+            this.segment = segment;
+        }
+    }
+
+    private final List<String> paths;
+    private final boolean[] definite;
+    private final List<Edge> root = new ArrayList<Edge>();
+    private int[] rootTerminals = NONE;
+
+    private JsonPathSet(List<String> paths) {
+        this.paths = Collections.unmodifiableList(new ArrayList<String>(paths));
+        this.definite = new boolean[paths.size()];
+        for (int i = 0; i < paths.size(); i++) {
+            Segment[] segments = Segment.compile(paths.get(i));
+            boolean single = true;
+            List<Edge> edges = root;
+            Edge edge = null;
+            for (int j = 0; j < segments.length; j++) {
+                Segment segment = segments[j];
+                boolean last = j == segments.length - 1;
+                single &= !segment.deep && (segment.isSingle() || last && segment.names() != null);
+                edge = edge(edges, segment);
+                edges = edge.next;
+            }
+            definite[i] = single;
+            if (edge == null) {
+                rootTerminals = append(rootTerminals, i);
+            } else {
+                edge.terminals = append(edge.terminals, i);
+                edge.merging = !edge.segment.deep && edge.segment.names() != null && !edge.segment.isSingle();
+            }
+        }
+    }
+
+    /**
+     * @throws com.jayway.jsonpath.InvalidPathException if a path is malformed or uses syntax
+     * {@link StreamingJsonPath} does not support
+     */
+    public static JsonPathSet compile(String... paths) {
+        return compile(Arrays.asList(paths));
+    }
+
+    public static JsonPathSet compile(Collection<String> paths) {
+        if (paths == null || paths.contains(null))
+            throw new IllegalArgumentException("Paths may not be null");
+        return new JsonPathSet(new ArrayList<String>(paths));
+    }
+
+    public List<String> getPaths() {
+        return paths;
+    }
+
+    /**
+     * Evaluates every path against <code>document</code>.
+     *
+     * @return the result of each path, keyed by path in the order they were given
+     */
+    public Map<String, Object> read(Json document) {
+        Object[] results = new Object[paths.size()];
+        for (int i = 0; i < results.length; i++) {
+            if (!definite[i])
+                results[i] = new ArrayList<Object>();
+        }
+        for (int i : rootTerminals)
+            results[i] = document;
+        visit(document, root, results);
+        Map<String, Object> values = new LinkedHashMap<String, Object>();
+        for (int i = 0; i < results.length; i++) {
+            Object result = results[i];
+            values.put(paths.get(i), definite[i] ? result : Collections.unmodifiableList((List<?>) result));
+        }
+        return values;
+    }
+
+    private static Edge edge(List<Edge> edges, Segment segment) {
+        String key = segment.toString();
+        for (Edge edge : edges) {
+            if (edge.segment.toString().equals(key))
+                return edge;
+        }
+        Edge edge = new Edge(segment);
+        edges.add(edge);
+        return edge;
+    }
+
+    private static int[] append(int[] array, int value) {
+        int[] appended = Arrays.copyOf(array, array.length + 1);
+        appended[array.length] = value;
+        return appended;
+    }
+
+    private void visit(Json node, List<Edge> active, Object[] results) {
+        if (node.isObject()) {
+            for (Edge edge : active) {
+                if (edge.merging)
+                    record(edge, merge(node, edge.segment.names()), results);
+            }
+            if (enumerates(active, true)) {
+                for (Map.Entry<String, Json> e : node.asJsonMap().entrySet())
+                    child(e.getValue(), active, e.getKey(), -1, results);
+            } else {
+                List<String> looked = new ArrayList<String>();
+                for (Edge edge : active) {
+                    String[] names = edge.segment.names();
+                    if (names == null)
+                        continue;
+                    for (String name : names) {
+                        if (looked.contains(name))
+                            continue;
+                        looked.add(name);
+                        Json child = node.at(name);
+                        if (child != null)
+                            child(child, active, name, -1, results);
+                    }
+                }
+            }
+        } else if (node.isArray()) {
+            List<Json> elements = node.asJsonList();
+            if (enumerates(active, false)) {
+                for (int i = 0; i < elements.size(); i++)
+                    child(elements.get(i), active, null, i, results);
+            } else {
+                List<Integer> looked = new ArrayList<Integer>();
+                for (Edge edge : active) {
+                    int[] indexes = edge.segment.indexes();
+                    if (indexes == null)
+                        continue;
+                    for (int index : indexes) {
+                        if (index < elements.size() && !looked.contains(index)) {
+                            looked.add(index);
+                            child(elements.get(index), active, null, index, results);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Whether the children of an object, or of an array, must be enumerated rather than
+     * looked up.
+     */
+    private static boolean enumerates(List<Edge> active, boolean object) {
+        for (Edge edge : active) {
+            Segment segment = edge.segment;
+            if (segment.deep || segment instanceof Segment.Wildcard || !object && segment instanceof Segment.Slice)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Applies the active edges to the member <code>name</code> or, if it is null, to the
+     * element at <code>index</code>, and carries on below it with the edges that follow.
+     */
+    private void child(Json child, List<Edge> active, String name, int index, Object[] results) {
+        List<Edge> next = null;
+        for (Edge edge : active) {
+            if (edge.segment.deep) {
+                if (next == null)
+                    next = new ArrayList<Edge>();
+                next.add(edge);
+            }
+            // an index or name listed twice, as in $.x[0, 0], selects the child twice
+            int count = name != null ? edge.segment.count(name) : edge.segment.count(index);
+            for (int i = 0; i < count; i++) {
+                if (!edge.merging)
+                    record(edge, child, results);
+                if (!edge.next.isEmpty()) {
+                    if (next == null)
+                        next = new ArrayList<Edge>();
+                    next.addAll(edge.next);
+                }
+            }
+        }
+        if (next != null)
+            visit(child, next, results);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void record(Edge edge, Object value, Object[] results) {
+        for (int i : edge.terminals) {
+            if (definite[i])
+                results[i] = value;
+            else
+                ((List<Object>) results[i]).add(value);
+        }
+    }
+
+    private static Map<String, Json> merge(Json object, String[] names) {
+        Map<String, Json> merged = new LinkedHashMap<String, Json>();
+        for (String name : names) {
+            Json value = object.at(name);
+            if (value != null)
+                merged.put(name, value);
+        }
+        return Collections.unmodifiableMap(merged);
+    }
+}
@@ -0,0 +1,446 @@
+package mjson.jsonpath.stream;
+
+import com.jayway.jsonpath.InvalidJsonException;
+import mjson.Json;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A pull tokenizer over a {@link Reader}. Each call to {@link #next()} reads one token; the
+ * text of a name, string or number token is then available from {@link #text()}.
+ *
+ * <p>The input may hold any number of top-level values separated by whitespace, as in
+ * newline delimited JSON; {@link #END} is returned once it is exhausted. Only a fixed window
+ * of characters and the stack of open containers are held in memory. A value can be skipped
+ * without decoding it, {@link #skip(int)}, or read into a <code>Json</code>,
+ * {@link #read(int)}. Skipped values are scanned for their extent but not validated.</p>
+ */
+final class JsonTokenizer implements Closeable {
+
+    static final int END = 0;
+    static final int START_OBJECT = 1;
+    static final int END_OBJECT = 2;
+    static final int START_ARRAY = 3;
+    static final int END_ARRAY = 4;
+    static final int NAME = 5;
+    static final int STRING = 6;
+    static final int NUMBER = 7;
+    static final int TRUE = 8;
+    static final int FALSE = 9;
+    static final int NULL = 10;
+
+    static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    // what the next token may be
+    private static final int EXPECT_VALUE = 0;
+    private static final int FIRST_ELEMENT = 1;
+    private static final int FIRST_MEMBER = 2;
+    private static final int AFTER_VALUE = 3;
+
+    private final Reader reader;
+    private final char[] buffer;
+    private int position;
+    private int limit;
+    private long offset;
+    private boolean eof;
+
+    private final StringBuilder text = new StringBuilder();
+    private boolean decimal;
+
+    private boolean[] objects = new boolean[32];
+    private int depth;
+    private int state = EXPECT_VALUE;
+
+    JsonTokenizer(Reader reader) {
+        this(reader, DEFAULT_BUFFER_SIZE);
+    }
+
+    JsonTokenizer(Reader reader, int bufferSize) {
+        if (bufferSize < 1)
+            throw new IllegalArgumentException("Buffer size must be at least 1, was " + bufferSize);
+        this.reader = reader;
+        this.buffer = new char[bufferSize];
+    }
+
+    /**
+     * The decoded text of the last name or string token, or the literal of the last number.
+     */
+    String text() {
+        return text.toString();
+    }
+
+    /**
+     * The value of the last number token: a <code>Long</code>, a <code>BigInteger</code> if
+     * it does not fit, or a <code>Double</code> if it has a fraction or an exponent, as
+     * <code>Json.read</code> would have it.
+     */
+    Number number() {
+        String literal = text.toString();
+        if (decimal)
+            return Double.valueOf(literal);
+        try {
+            return Long.valueOf(literal);
+        } catch (NumberFormatException e) {
+            return new BigInteger(literal);
+        }
+    }
+
+    int next() {
+        int c = skipWhitespace();
+        switch (state) {
+            case AFTER_VALUE:
+                if (depth == 0) {
+                    if (c < 0)
+                        return END;
+                    return value(c);
+                }
+                if (c == ',') {
+                    position++;
+                    if (objects[depth - 1])
+                        return name(skipWhitespace());
+                    return value(skipWhitespace());
+                }
+                if (c == (objects[depth - 1] ? '}' : ']')) {
+                    position++;
+                    return end();
+                }
+                throw error(objects[depth - 1] ? "Expected ',' or '}'" : "Expected ',' or ']'");
+            case FIRST_MEMBER:
+                if (c == '}') {
+                    position++;
+                    return end();
+                }
+                return name(c);
+            case FIRST_ELEMENT:
+                if (c == ']') {
+                    position++;
+                    return end();
+                }
+                return value(c);
+            default:
+                return value(c);
+        }
+    }
+
+    /**
+     * Consumes the rest of the value whose first token is <code>token</code>.
+     */
+    void skip(int token) {
+        if (token != START_OBJECT && token != START_ARRAY)
+            return;
+        int level = 1;
+        while (level > 0) {
+            if (position == limit && !fill())
+                throw error("Unexpected end of input");
+            char c = buffer[position++];
+            if (c == '"')
+                string(false);
+            else if (c == '{' || c == '[')
+                level++;
+            else if (c == '}' || c == ']')
+                level--;
+        }
+        depth--;
+        state = AFTER_VALUE;
+    }
+
+    /**
+     * Reads the value whose first token is <code>token</code> into a <code>Json</code>,
+     * consuming the rest of it.
+     */
+    Json read(int token) {
+        if (token != START_OBJECT && token != START_ARRAY)
+            return scalar(token);
+        Json root = token == START_OBJECT ? Json.object() : Json.array();
+        List<Json> open = new ArrayList<Json>();
+        open.add(root);
+        String name = null;
+        while (!open.isEmpty()) {
+            int t = next();
+            if (t == END_OBJECT || t == END_ARRAY) {
+                open.remove(open.size() - 1);
+                continue;
+            }
+            if (t == NAME) {
+                name = text.toString();
+                continue;
+            }
+            Json value = t == START_OBJECT ? Json.object() : t == START_ARRAY ? Json.array() : scalar(t);
+            Json parent = open.get(open.size() - 1);
+            if (parent.isObject())
+                parent.set(name, value);
+            else
+                parent.add(value);
+            if (t == START_OBJECT || t == START_ARRAY)
+                open.add(value);
+        }
+        return root;
+    }
+
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private Json scalar(int token) {
+        switch (token) {
+            case STRING:
+                return Json.make(text.toString());
+            case NUMBER:
+                return Json.make(number());
+            case TRUE:
+                return Json.make(true);
+            case FALSE:
+                return Json.make(false);
+            case NULL:
+                return Json.nil();
+            default:
+                throw new IllegalStateException("Token " + token + " does not start a value");
+        }
+    }
+
+    private int end() {
+        depth--;
+        state = AFTER_VALUE;
+        return objects[depth] ? END_OBJECT : END_ARRAY;
+    }
+
+    private void open(boolean object) {
+        if (depth == objects.length) {
+            boolean[] grown = new boolean[depth * 2];
+            System.arraycopy(objects, 0, grown, 0, depth);
+            objects = grown;
+        }
+        objects[depth++] = object;
+    }
+
+    private int name(int c) {
+        if (c != '"')
+            throw error(c < 0 ? "Unexpected end of input" : "Expected a property name");
+        position++;
+        string(true);
+        if (skipWhitespace() != ':')
+            throw error("Expected ':'");
+        position++;
+        state = EXPECT_VALUE;
+        return NAME;
+    }
+
+    private int value(int c) {
+        switch (c) {
+            case '{':
+                position++;
+                open(true);
+                state = FIRST_MEMBER;
+                return START_OBJECT;
+            case '[':
+                position++;
+                open(false);
+                state = FIRST_ELEMENT;
+                return START_ARRAY;
+            case '"':
+                position++;
+                string(true);
+                state = AFTER_VALUE;
+                return STRING;
+            case 't':
+                literal("true");
+                return TRUE;
+            case 'f':
+                literal("false");
+                return FALSE;
+            case 'n':
+                literal("null");
+                return NULL;
+            case -1:
+                if (depth == 0)
+                    return END;
+                throw error("Unexpected end of input");
+            default:
+                if (c == '-' || c >= '0' && c <= '9') {
+                    number(c);
+                    state = AFTER_VALUE;
+                    return NUMBER;
+                }
+                throw error("Unexpected character '" + (char) c + "'");
+        }
+    }
+
+    private void literal(String literal) {
+        for (int i = 0; i < literal.length(); i++) {
+            if (position == limit && !fill() || buffer[position] != literal.charAt(i))
+                throw error("Expected '" + literal + "'");
+            position++;
+        }
+        state = AFTER_VALUE;
+    }
+
+    private void number(int c) {
+        text.setLength(0);
+        decimal = false;
+        if (c == '-')
+            c = append(c);
+        if (c == '0')
+            c = append(c);
+        else if (!digits(c))
+            throw error("Expected a digit");
+        else
+            c = peekAfterDigits();
+        if (c == '.') {
+            decimal = true;
+            if (!digits(append(c)))
+                throw error("Expected a digit after '.'");
+            c = peekAfterDigits();
+        }
+        if (c == 'e' || c == 'E') {
+            decimal = true;
+            c = append(c);
+            if (c == '+' || c == '-')
+                c = append(c);
+            if (!digits(c))
+                throw error("Expected a digit in the exponent");
+            peekAfterDigits();
+        }
+    }
+
+    private boolean digits(int c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private int peekAfterDigits() {
+        int c = peek();
+        while (digits(c))
+            c = append(c);
+        return c;
+    }
+
+    /**
+     * Appends <code>c</code>, the current character, to the text and returns the one after it.
+     */
+    private int append(int c) {
+        text.append((char) c);
+        position++;
+        return peek();
+    }
+
+    /**
+     * Reads a string whose opening quote has been consumed, into the text if
+     * <code>keep</code>.
+     */
+    private void string(boolean keep) {
+        if (keep)
+            text.setLength(0);
+        while (true) {
+            if (position == limit && !fill())
+                throw error("Unterminated string");
+            int start = position;
+            while (position < limit) {
+                char c = buffer[position];
+                if (c == '"' || c == '\\')
+                    break;
+                if (c < 0x20)
+                    throw error("Control character in string");
+                position++;
+            }
+            if (keep)
+                text.append(buffer, start, position - start);
+            if (position == limit)
+                continue;
+            if (buffer[position++] == '"')
+                return;
+            escape(keep);
+        }
+    }
+
+    private void escape(boolean keep) {
+        if (position == limit && !fill())
+            throw error("Unterminated string");
+        char c = buffer[position++];
+        char decoded;
+        switch (c) {
+            case '"':
+            case '\\':
+            case '/':
+                decoded = c;
+                break;
+            case 'b':
+                decoded = '\b';
+                break;
+            case 'f':
+                decoded = '\f';
+                break;
+            case 'n':
+                decoded = '\n';
+                break;
+            case 'r':
+                decoded = '\r';
+                break;
+            case 't':
+                decoded = '\t';
+                break;
+            case 'u':
+                int code = 0;
+                for (int i = 0; i < 4; i++) {
+                    if (position == limit && !fill())
+                        throw error("Unterminated string");
+                    int digit = Character.digit(buffer[position++], 16);
+                    if (digit < 0)
+                        throw error("Invalid unicode escape");
+                    code = code << 4 | digit;
+                }
+                decoded = (char) code;
+                break;
+            default:
+                throw error("Invalid escape '\\" + c + "'");
+        }
+        if (keep)
+            text.append(decoded);
+    }
+
+    private int skipWhitespace() {
+        while (true) {
+            if (position == limit && !fill())
+                return -1;
+            char c = buffer[position];
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t')
+                return c;
+            position++;
+        }
+    }
+
+    private int peek() {
+        if (position == limit && !fill())
+            return -1;
+        return buffer[position];
+    }
+
+    private boolean fill() {
+        if (eof)
+            return false;
+        int count;
+        try {
+            do {
+                count = reader.read(buffer, 0, buffer.length);
+            } while (count == 0);
+        } catch (IOException e) {
+            throw new InvalidJsonException("IOException", e);
+        }
+        offset += limit;
+        position = 0;
+        limit = 0;
+        if (count < 0) {
+            eof = true;
+            return false;
+        }
+        limit = count;
+        return true;
+    }
+
+    private InvalidJsonException error(String message) {
+        return new InvalidJsonException(message + " at position " + (offset + position));
+    }
+}
@@ -0,0 +1,357 @@
+package mjson.jsonpath.stream;
+
+import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.InvalidJsonException;
+import com.jayway.jsonpath.JsonPath;
+import com.jayway.jsonpath.PathNotFoundException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+
+/**
+ * Evaluates a set of compiled paths against every line of a newline delimited JSON input,
+ * in parallel.
+ *
+ * <p>The input is cut into chunks of whole lines, about {@link #DEFAULT_CHUNK_SIZE} bytes
+ * each. Files are memory-mapped, a window at a time, so chunks are views of the page cache
+ * rather than copies; other streams are read into one buffer per chunk. Each chunk is parsed
+ * and evaluated by a task of a <code>ForkJoinPool</code>, the common pool unless another is
+ * given, and only a few chunks per worker are in flight at any time. Lines are independent,
+ * so throughput grows with the number of workers until the input cannot be read any faster.</p>
+ *
+ * <pre>
+ * NdjsonReader reader = new NdjsonReader(MjsonJsonPath.configuration(),
+ *         MjsonJsonPath.compile("$.user.id"), MjsonJsonPath.compile("$.event"));
+ * reader.read(file, line -&gt; store(line.getValue(0), line.getValue(1)));
+ * </pre>
+ *
+ * <p>Lines are decoded as UTF-8; blank lines are skipped and a trailing carriage return is
+ * ignored. A path that is not found in a line yields null. By default lines are handed to
+ * the action in input order, on the calling thread. Without {@link #inOrder(boolean) order}
+ * the action is called by the workers as soon as a line is evaluated, concurrently, which
+ * saves holding the results of a chunk.</p>
+ */
+public final class NdjsonReader {
+
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+    static final int DEFAULT_WINDOW_SIZE = 1 << 28;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final Configuration configuration;
+    private final JsonPath[] paths;
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+    private final int windowSize;
+    private final boolean ordered;
+
+    public NdjsonReader(Configuration configuration, JsonPath... paths) {
+        this(configuration, paths, ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE, DEFAULT_WINDOW_SIZE, true);
+    }
+
+    private NdjsonReader(Configuration configuration, JsonPath[] paths, ForkJoinPool pool,
+                         int chunkSize, int windowSize, boolean ordered) {
+        if (configuration == null || paths == null || pool == null)
+            throw new IllegalArgumentException("Configuration, paths and pool may not be null");
+        if (chunkSize < 1 || windowSize < chunkSize)
+            throw new IllegalArgumentException("Invalid chunk size " + chunkSize + " for a window of " + windowSize);
+        this.configuration = configuration;
+        this.paths = paths.clone();
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+        this.windowSize = windowSize;
+        this.ordered = ordered;
+    }
+
+    /**
+     * @return a reader evaluating lines on <code>pool</code>
+     */
+    public NdjsonReader withPool(ForkJoinPool pool) {
+        return new NdjsonReader(configuration, paths, pool, chunkSize, windowSize, ordered);
+    }
+
+    /**
+     * @return a reader cutting its input into chunks of about <code>bytes</code> bytes
+     */
+    public NdjsonReader withChunkSize(int bytes) {
+        return new NdjsonReader(configuration, paths, pool, bytes, Math.max(windowSize, bytes), ordered);
+    }
+
+    /**
+     * @return a reader handing lines to the action in input order on the calling thread if
+     * <code>ordered</code>, or as they are evaluated on the workers if not
+     */
+    public NdjsonReader inOrder(boolean ordered) {
+        return new NdjsonReader(configuration, paths, pool, chunkSize, windowSize, ordered);
+    }
+
+    NdjsonReader withWindowSize(int bytes) {
+        return new NdjsonReader(configuration, paths, pool, chunkSize, bytes, ordered);
+    }
+
+    /**
+     * Evaluates the paths against each line of <code>file</code>, which is memory-mapped.
+     * Returns once every line has been handed to <code>action</code>.
+     */
+    public void read(Path file, Consumer<? super Line> action) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        Pipeline pipeline = new Pipeline(action);
+        try {
+            long size = channel.size();
+            long position = 0;
+            long windowStart = 0;
+            ByteBuffer window = null;
+            int mapping = windowSize;
+            while (position < size) {
+                if (window == null) {
+                    windowStart = position;
+                    window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(mapping, size - position));
+                }
+                int from = (int) (position - windowStart);
+                int end = lineEnd(window, Math.max(from, Math.min(from + chunkSize, window.limit()) - 1));
+                if (end < 0) {
+                    if (windowStart + window.limit() == size) {
+                        end = window.limit();
+                    } else {
+                        // the line goes on past the window: map again from here, larger if
+                        // the line is longer than a whole window
+                        if (from == 0) {
+                            if (mapping == Integer.MAX_VALUE)
+                                throw new InvalidJsonException("Line at byte offset " + position + " is longer than 2GB");
+                            mapping = (int) Math.min(2L * mapping, Integer.MAX_VALUE);
+                        }
+                        window = null;
+                        continue;
+                    }
+                }
+                // through Buffer, whose methods return Buffer on every JDK this runs on
+                Buffer chunk = window.duplicate();
+                chunk.limit(end);
+                chunk.position(from);
+                pipeline.submit(((ByteBuffer) chunk).slice(), position);
+                position = windowStart + end;
+                mapping = windowSize;
+            }
+            pipeline.finish();
+        } finally {
+            pipeline.cancel();
+            channel.close();
+        }
+    }
+
+    /**
+     * Evaluates the paths against each line read from <code>in</code>, which is not closed.
+     * Returns once every line has been handed to <code>action</code>.
+     */
+    public void read(InputStream in, Consumer<? super Line> action) throws IOException {
+        Pipeline pipeline = new Pipeline(action);
+        try {
+            byte[] buffer = new byte[chunkSize];
+            int length = 0;
+            long offset = 0;
+            boolean eof = false;
+            while (!eof) {
+                while (length < buffer.length) {
+                    int count = in.read(buffer, length, buffer.length - length);
+                    if (count < 0) {
+                        eof = true;
+                        break;
+                    }
+                    length += count;
+                }
+                int end = length;
+                if (!eof) {
+                    end = lastLineEnd(buffer, length);
+                    if (end < 0) {
+                        buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                        continue;
+                    }
+                }
+                byte[] next = new byte[Math.max(chunkSize, length - end)];
+                System.arraycopy(buffer, end, next, 0, length - end);
+                if (end > 0)
+                    pipeline.submit(ByteBuffer.wrap(buffer, 0, end), offset);
+                offset += end;
+                length -= end;
+                buffer = next;
+            }
+            pipeline.finish();
+        } finally {
+            pipeline.cancel();
+        }
+    }
+
+    /**
+     * The index just past the first line feed at or after <code>from</code>, or -1 if there
+     * is none before the limit of <code>buffer</code>.
+     */
+    private static int lineEnd(ByteBuffer buffer, int from) {
+        for (int i = from; i < buffer.limit(); i++) {
+            if (buffer.get(i) == '\n')
+                return i + 1;
+        }
+        return -1;
+    }
+
+    /**
+     * The index just past the last line feed in the first <code>length</code> bytes of
+     * <code>buffer</code>, or -1 if there is none.
+     */
+    private static int lastLineEnd(byte[] buffer, int length) {
+        for (int i = length - 1; i >= 0; i--) {
+            if (buffer[i] == '\n')
+                return i + 1;
+        }
+        return -1;
+    }
+
+    /**
+     * The values of the paths for one line.
+     */
+    public static final class Line {
+        private final long offset;
+        private final Object[] values;
+
+        Line(long offset, Object[] values) {
+            this.offset = offset;
+            this.values = values;
+        }
+
+        /**
+         * @return the byte offset of the line in the input
+         */
+        public long getOffset() {
+            return offset;
+        }
+
+        /**
+         * @return the value of the path at <code>index</code> in the reader's paths, or null
+         * if it was not found
+         */
+        public Object getValue(int index) {
+            return values[index];
+        }
+
+        public List<Object> getValues() {
+            return Collections.unmodifiableList(Arrays.asList(values));
+        }
+    }
+
+    /**
+     * Submits chunks to the pool, at most a few per worker at a time, and hands their lines
+     * to the action.
+     */
+    private final class Pipeline {
+        private final Consumer<? super Line> action;
+        private final ArrayDeque<ForkJoinTask<List<Line>>> inFlight = new ArrayDeque<ForkJoinTask<List<Line>>>();
+        private final int maxInFlight = 4 * pool.getParallelism();
+
+        Pipeline(Consumer<? super Line> action) {
+            this.action = action;
+        }
+
+        void submit(ByteBuffer chunk, long offset) {
+            if (inFlight.size() >= maxInFlight)
+                deliver(inFlight.poll());
+            inFlight.add(pool.submit(new Chunk(chunk, offset, ordered ? null : action)));
+        }
+
+        void finish() {
+            while (!inFlight.isEmpty())
+                deliver(inFlight.poll());
+        }
+
+        void cancel() {
+            for (ForkJoinTask<List<Line>> task : inFlight)
+                task.cancel(false);
+            inFlight.clear();
+        }
+
+        private void deliver(ForkJoinTask<List<Line>> task) {
+            for (Line line : task.join())
+                action.accept(line);
+        }
+    }
+
+    /**
+     * Parses and evaluates the lines of one chunk. With an action the lines are handed to it
+     * straight away, otherwise they are returned in order.
+     */
+    private final class Chunk extends RecursiveTask<List<Line>> {
+        private static final long serialVersionUID = 1L;
+
+        private final ByteBuffer bytes;
+        private final long offset;
+        private final Consumer<? super Line> action;
+
+        Chunk(ByteBuffer bytes, long offset, Consumer<? super Line> action) {
+            this.bytes = bytes;
+            this.offset = offset;
+            this.action = action;
+        }
+
+        @Override
+        protected List<Line> compute() {
+            List<Line> lines = action == null ? new ArrayList<Line>() : Collections.<Line>emptyList();
+            byte[] text = new byte[256];
+            int limit = bytes.limit();
+            int start = 0;
+            while (start < limit) {
+                int end = start;
+                while (end < limit && bytes.get(end) != '\n')
+                    end++;
+                int length = end - start;
+                if (length > 0 && bytes.get(end - 1) == '\r')
+                    length--;
+                if (length > text.length)
+                    text = new byte[Math.max(length, 2 * text.length)];
+                ((Buffer) bytes).position(start);
+                bytes.get(text, 0, length);
+                String json = new String(text, 0, length, UTF_8);
+                if (!json.trim().isEmpty()) {
+                    Line line = evaluate(json, offset + start);
+                    if (action == null)
+                        lines.add(line);
+                    else
+                        action.accept(line);
+                }
+                start = end + 1;
+            }
+            return lines;
+        }
+    }
+
+    private Line evaluate(String json, long offset) {
+        Object document;
+        try {
+            document = configuration.jsonProvider().parse(json);
+        } catch (RuntimeException e) {
+            throw new InvalidJsonException("Invalid JSON at byte offset " + offset + ": " + e.getMessage(), e);
+        }
+        Object[] values = new Object[paths.length];
+        for (int i = 0; i < paths.length; i++) {
+            try {
+                values[i] = paths[i].read(document, configuration);
+            } catch (PathNotFoundException e) {
+                values[i] = null;
+            }
+        }
+        return new Line(offset, values);
+    }
+}
@@ -0,0 +1,331 @@
+package mjson.jsonpath.stream;
+
+import com.jayway.jsonpath.InvalidPathException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * One step of a streaming path: which children of a node it selects and whether it applies
+ * at any depth below the node (<code>..</code>) rather than to its direct children only.
+ */
+abstract class Segment {
+
+    /**
+     * The number of segments a path may have, states are kept as the bits of a long.
+     */
+    static final int MAX_SEGMENTS = 63;
+
+    final boolean deep;
+
+    Segment(boolean deep) {
+        this.deep = deep;
+    }
+
+    abstract boolean matches(String name);
+
+    abstract boolean matches(int index);
+
+    /**
+     * The number of times this segment selects the member <code>name</code>, more than once
+     * if it lists the name more than once.
+     */
+    int count(String name) {
+        return matches(name) ? 1 : 0;
+    }
+
+    /**
+     * The number of times this segment selects the element at <code>index</code>.
+     */
+    int count(int index) {
+        return matches(index) ? 1 : 0;
+    }
+
+    /**
+     * The names this segment selects, or null if it does not select members by name.
+     */
+    String[] names() {
+        return null;
+    }
+
+    /**
+     * The indexes this segment selects, or null if it does not select elements by index.
+     */
+    int[] indexes() {
+        return null;
+    }
+
+    /**
+     * Whether this segment selects at most one child, so that it keeps a path definite.
+     */
+    boolean isSingle() {
+        return false;
+    }
+
+    /**
+     * The segment in bracket notation, paths that select the same nodes the same way share
+     * it.
+     */
+    @Override
+    public String toString() {
+        return deep ? ".." + selector() : selector();
+    }
+
+    abstract String selector();
+
+    /**
+     * Compiles a path made of property names, wildcards, array indexes, slices and deep scans.
+     * Filters, scripts, functions and anything else that needs more than the path from the
+     * root to a node, such as negative indexes, cannot be evaluated while streaming and are
+     * rejected.
+     */
+    static Segment[] compile(String path) {
+        String p = path.trim();
+        if (!p.startsWith("$"))
+            throw new InvalidPathException("Path must start with '$': " + path);
+        List<Segment> segments = new ArrayList<Segment>();
+        int i = 1;
+        while (i < p.length()) {
+            boolean deep = false;
+            char c = p.charAt(i);
+            if (c == '.') {
+                deep = i + 1 < p.length() && p.charAt(i + 1) == '.';
+                i += deep ? 2 : 1;
+                if (i == p.length())
+                    throw new InvalidPathException("Path must not end with '.': " + path);
+                c = p.charAt(i);
+                if (c == '*') {
+                    segments.add(new Wildcard(deep));
+                    i++;
+                    continue;
+                } else if (c != '[') {
+                    int end = i;
+                    while (end < p.length() && p.charAt(end) != '.' && p.charAt(end) != '[')
+                        end++;
+                    String name = p.substring(i, end).trim();
+                    if (name.isEmpty())
+                        throw new InvalidPathException("Empty property name in " + path);
+                    if (name.indexOf('(') >= 0)
+                        throw unsupported(path, name);
+                    segments.add(new Names(deep, name));
+                    i = end;
+                    continue;
+                }
+            } else if (c != '[') {
+                throw new InvalidPathException("Unexpected '" + c + "' in " + path);
+            }
+            int end = closingBracket(p, i);
+            segments.add(bracket(deep, p.substring(i + 1, end).trim(), path));
+            i = end + 1;
+        }
+        if (segments.size() > MAX_SEGMENTS)
+            throw new InvalidPathException("Path has more than " + MAX_SEGMENTS + " segments: " + path);
+        return segments.toArray(new Segment[segments.size()]);
+    }
+
+    private static int closingBracket(String p, int open) {
+        char quote = 0;
+        for (int i = open + 1; i < p.length(); i++) {
+            char c = p.charAt(i);
+            if (quote != 0) {
+                if (c == '\\')
+                    i++;
+                else if (c == quote)
+                    quote = 0;
+            } else if (c == '\'' || c == '"') {
+                quote = c;
+            } else if (c == ']') {
+                return i;
+            }
+        }
+        throw new InvalidPathException("Unclosed '[' in " + p);
+    }
+
+    private static Segment bracket(boolean deep, String content, String path) {
+        if (content.equals("*"))
+            return new Wildcard(deep);
+        if (content.isEmpty() || content.startsWith("?") || content.startsWith("("))
+            throw unsupported(path, "[" + content + "]");
+        if (content.charAt(0) == '\'' || content.charAt(0) == '"')
+            return new Names(deep, names(content, path));
+        try {
+            if (content.indexOf(':') >= 0) {
+                String[] bounds = content.split(":", -1);
+                if (bounds.length > 2)
+                    throw unsupported(path, "[" + content + "]");
+                int from = bounds[0].trim().isEmpty() ? 0 : Integer.parseInt(bounds[0].trim());
+                int to = bounds[1].trim().isEmpty() ? Integer.MAX_VALUE : Integer.parseInt(bounds[1].trim());
+                if (from < 0 || to < 0)
+                    throw unsupported(path, "[" + content + "]");
+                return new Slice(deep, from, to);
+            }
+            String[] parts = content.split(",");
+            int[] indexes = new int[parts.length];
+            for (int i = 0; i < parts.length; i++) {
+                indexes[i] = Integer.parseInt(parts[i].trim());
+                if (indexes[i] < 0)
+                    throw unsupported(path, "[" + content + "]");
+            }
+            return new Indexes(deep, indexes);
+        } catch (NumberFormatException e) {
+            throw new InvalidPathException("Invalid array index in " + path);
+        }
+    }
+
+    private static String[] names(String content, String path) {
+        List<String> names = new ArrayList<String>();
+        int i = 0;
+        while (i < content.length()) {
+            char quote = content.charAt(i);
+            if (quote != '\'' && quote != '"')
+                throw new InvalidPathException("Expected a quoted property name in " + path);
+            StringBuilder name = new StringBuilder();
+            for (i++; i < content.length() && content.charAt(i) != quote; i++) {
+                if (content.charAt(i) == '\\' && i + 1 < content.length())
+                    i++;
+                name.append(content.charAt(i));
+            }
+            names.add(name.toString());
+            i++;
+            while (i < content.length() && (content.charAt(i) == ' ' || content.charAt(i) == ','))
+                i++;
+        }
+        return names.toArray(new String[names.size()]);
+    }
+
+    private static InvalidPathException unsupported(String path, String segment) {
+        return new InvalidPathException("Cannot evaluate " + segment + " while streaming: " + path);
+    }
+
+    static final class Wildcard extends Segment {
+        Wildcard(boolean deep) {
+            super(deep);
+        }
+
+        boolean matches(String name) {
+            return true;
+        }
+
+        boolean matches(int index) {
+            return true;
+        }
+
+        String selector() {
+            return "[*]";
+        }
+    }
+
+    static final class Names extends Segment {
+        private final String[] names;
+
+        Names(boolean deep, String... names) {
+            super(deep);
+            this.names = names;
+        }
+
+        boolean matches(String name) {
+            for (String n : names)
+                if (n.equals(name))
+                    return true;
+            return false;
+        }
+
+        boolean matches(int index) {
+            return false;
+        }
+
+        int count(String name) {
+            int count = 0;
+            for (String n : names)
+                if (n.equals(name))
+                    count++;
+            return count;
+        }
+
+        String[] names() {
+            return names;
+        }
+
+        boolean isSingle() {
+            return names.length == 1;
+        }
+
+        String selector() {
+            StringBuilder sb = new StringBuilder("[");
+            for (String name : names) {
+                if (sb.length() > 1)
+                    sb.append(", ");
+                sb.append('\'').append(name.replace("\\", "\\\\").replace("'", "\\'")).append('\'');
+            }
+            return sb.append(']').toString();
+        }
+    }
+
+    static final class Indexes extends Segment {
+        private final int[] indexes;
+
+        Indexes(boolean deep, int[] indexes) {
+            super(deep);
+            this.indexes = indexes.clone();
+            Arrays.sort(this.indexes);
+        }
+
+        boolean matches(String name) {
+            return false;
+        }
+
+        boolean matches(int index) {
+            return Arrays.binarySearch(indexes, index) >= 0;
+        }
+
+        int count(int index) {
+            int count = 0;
+            for (int i : indexes)
+                if (i == index)
+                    count++;
+            return count;
+        }
+
+        int[] indexes() {
+            return indexes;
+        }
+
+        boolean isSingle() {
+            return indexes.length == 1;
+        }
+
+        String selector() {
+            StringBuilder sb = new StringBuilder("[");
+            for (int index : indexes) {
+                if (sb.length() > 1)
+                    sb.append(", ");
+                sb.append(index);
+            }
+            return sb.append(']').toString();
+        }
+    }
+
+    static final class Slice extends Segment {
+        private final int from;
+        private final int to;
+
+        Slice(boolean deep, int from, int to) {
+            super(deep);
+            this.from = from;
+            this.to = to;
+        }
+
+        boolean matches(String name) {
+            return false;
+        }
+
+        boolean matches(int index) {
+            return index >= from && index < to;
+        }
+
+        String selector() {
+            return "[" + from + ":" + (to == Integer.MAX_VALUE ? "" : String.valueOf(to)) + "]";
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package mjson.jsonpath.stream;
+
+import com.jayway.jsonpath.InvalidJsonException;
+import mjson.Json;
+import mjson.jsonpath.spi.json.JsonEncoding;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+/**
+ * A path evaluated while the document is being read, without building its tree. Parse events
+ * are pushed through the compiled path; values outside of it are skipped without being
+ * decoded, and only the values it selects are read into a <code>Json</code>. Memory use is
+ * therefore bounded by the size of the largest match and the nesting depth of the input, and
+ * each match is available as soon as its last character has been read.
+ *
+ * <pre>
+ * StreamingJsonPath ids = StreamingJsonPath.compile("$.events[*].user.id");
+ * ids.forEach(reader, id -&gt; System.out.println(id));
+ * </pre>
+ *
+ * <p>The supported paths are made of property names (<code>.name</code>,
+ * <code>['name', 'other']</code>), wildcards, array indexes (<code>[0]</code>,
+ * <code>[1, 3]</code>), slices with non-negative bounds (<code>[2:5]</code>) and deep scans
+ * (<code>..name</code>). Filters, functions and negative indexes need more of the document
+ * than the path to a node and are rejected with an <code>InvalidPathException</code>.</p>
+ *
+ * <p>Matches are produced one at a time and in document order; a match nested in another
+ * match, as with <code>$..name</code>, follows it. The input may hold several top-level
+ * values separated by whitespace, such as newline delimited JSON, and the path is applied
+ * to each of them in turn. Compiled paths are immutable and may be shared between
+ * threads.</p>
+ */
+public final class StreamingJsonPath {
+
+    private final String path;
+    private final Segment[] segments;
+
+    private StreamingJsonPath(String path, Segment[] segments) {
+        this.path = path;
+        this.segments = segments;
+    }
+
+    /**
+     * @throws com.jayway.jsonpath.InvalidPathException if the path is malformed or cannot be
+     * evaluated while streaming
+     */
+    public static StreamingJsonPath compile(String path) {
+        if (path == null)
+            throw new IllegalArgumentException("Path may not be null");
+        return new StreamingJsonPath(path, Segment.compile(path));
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Returns the matches in <code>reader</code>, reading it only as far as needed to find
+     * the next one. The reader is closed with the returned iterator.
+     */
+    public Matches matches(Reader reader) {
+        return new Matches(segments, new JsonTokenizer(reader));
+    }
+
+    /**
+     * Returns the matches in <code>in</code>, decoded according to its byte order mark,
+     * <code>charset</code> or the RFC 4627 heuristic, in that order.
+     */
+    public Matches matches(InputStream in, String charset) {
+        try {
+            return matches(JsonEncoding.reader(in, charset));
+        } catch (IOException e) {
+            throw new InvalidJsonException("IOException", e);
+        }
+    }
+
+    /**
+     * Passes each match in <code>reader</code> to <code>action</code> as soon as it is read,
+     * then closes the reader.
+     */
+    public void forEach(Reader reader, Consumer<? super Json> action) {
+        Matches matches = matches(reader);
+        try {
+            while (matches.hasNext())
+                action.accept(matches.next());
+        } finally {
+            matches.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+
+    /**
+     * The matches of a path in one input. Not thread safe.
+     */
+    public static final class Matches implements Iterator<Json>, Closeable {
+
+        private final Segment[] segments;
+        private final long done;
+        private final JsonTokenizer tokenizer;
+        private final ArrayDeque<Json> pending = new ArrayDeque<Json>();
+
+        // per open container: the states active in it and the index of its next element,
+        // -1 for objects
+        private long[] states = new long[16];
+        private int[] indexes = new int[16];
+        private int depth;
+        private boolean finished;
+
+        Matches(Segment[] segments, JsonTokenizer tokenizer) {
+            this.segments = segments;
+            this.done = 1L << segments.length;
+            this.tokenizer = tokenizer;
+        }
+
+        public boolean hasNext() {
+            while (pending.isEmpty() && !finished)
+                step();
+            return !pending.isEmpty();
+        }
+
+        public Json next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            return pending.poll();
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        /**
+         * Closes the underlying reader, any remaining matches are dropped.
+         */
+        public void close() {
+            finished = true;
+            pending.clear();
+            try {
+                tokenizer.close();
+            } catch (IOException e) {
+                throw new InvalidJsonException("IOException", e);
+            }
+        }
+
+        private void step() {
+            int token = tokenizer.next();
+            if (depth == 0) {
+                if (token == JsonTokenizer.END)
+                    finished = true;
+                else
+                    value(1L, token);
+                return;
+            }
+            switch (token) {
+                case JsonTokenizer.END_OBJECT:
+                case JsonTokenizer.END_ARRAY:
+                    depth--;
+                    break;
+                case JsonTokenizer.NAME:
+                    long named = transition(states[depth - 1], tokenizer.text(), -1);
+                    value(named, tokenizer.next());
+                    break;
+                default:
+                    value(transition(states[depth - 1], null, indexes[depth - 1]++), token);
+            }
+        }
+
+        /**
+         * Handles the value starting with <code>token</code>, whose path leads to the given
+         * states.
+         */
+        private void value(long active, int token) {
+            if (active == 0) {
+                tokenizer.skip(token);
+            } else if (active == done) {
+                pending.add(tokenizer.read(token));
+            } else if ((active & done) != 0) {
+                scan(token, active & ~done);
+            } else if (token == JsonTokenizer.START_OBJECT || token == JsonTokenizer.START_ARRAY) {
+                if (depth == states.length) {
+                    long[] grownStates = new long[depth * 2];
+                    int[] grownIndexes = new int[depth * 2];
+                    System.arraycopy(states, 0, grownStates, 0, depth);
+                    System.arraycopy(indexes, 0, grownIndexes, 0, depth);
+                    states = grownStates;
+                    indexes = grownIndexes;
+                }
+                states[depth] = active;
+                indexes[depth++] = token == JsonTokenizer.START_ARRAY ? 0 : -1;
+            }
+        }
+
+        /**
+         * The states reached from <code>active</code> by the member <code>name</code> or, if it
+         * is null, the element at <code>index</code>.
+         */
+        private long transition(long active, String name, int index) {
+            long next = 0;
+            for (long remaining = active; remaining != 0; remaining &= remaining - 1) {
+                int i = Long.numberOfTrailingZeros(remaining);
+                Segment segment = segments[i];
+                if (segment.deep)
+                    next |= 1L << i;
+                if (name != null ? segment.matches(name) : segment.matches(index))
+                    next |= 1L << (i + 1);
+            }
+            return next;
+        }
+
+        /**
+         * Reads a match inside which a deep scan continues, adding the matches nested in it
+         * as they start, so they follow it in document order.
+         */
+        private void scan(int token, long active) {
+            if (token != JsonTokenizer.START_OBJECT && token != JsonTokenizer.START_ARRAY) {
+                pending.add(tokenizer.read(token));
+                return;
+            }
+            Json match = token == JsonTokenizer.START_OBJECT ? Json.object() : Json.array();
+            pending.add(match);
+            List<Json> open = new ArrayList<Json>();
+            long[] actives = new long[8];
+            int[] elements = new int[8];
+            open.add(match);
+            actives[0] = active;
+            String name = null;
+            while (!open.isEmpty()) {
+                int t = tokenizer.next();
+                if (t == JsonTokenizer.END_OBJECT || t == JsonTokenizer.END_ARRAY) {
+                    open.remove(open.size() - 1);
+                    continue;
+                }
+                if (t == JsonTokenizer.NAME) {
+                    name = tokenizer.text();
+                    continue;
+                }
+                int top = open.size() - 1;
+                Json parent = open.get(top);
+                Json value = t == JsonTokenizer.START_OBJECT ? Json.object()
+                        : t == JsonTokenizer.START_ARRAY ? Json.array() : tokenizer.read(t);
+                long reached;
+                if (parent.isObject()) {
+                    reached = transition(actives[top], name, -1);
+                    parent.set(name, value);
+                } else {
+                    reached = transition(actives[top], null, elements[top]++);
+                    parent.add(value);
+                }
+                if ((reached & done) != 0)
+                    pending.add(value);
+                if (t == JsonTokenizer.START_OBJECT || t == JsonTokenizer.START_ARRAY) {
+                    if (open.size() == actives.length) {
+                        actives = Arrays.copyOf(actives, actives.length * 2);
+                        elements = Arrays.copyOf(elements, elements.length * 2);
+                    }
+                    actives[open.size()] = reached & ~done;
+                    elements[open.size()] = 0;
+                    open.add(value);
+                }
+            }
+        }
+    }
+}
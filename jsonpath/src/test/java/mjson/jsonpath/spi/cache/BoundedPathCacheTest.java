@@ -0,0 +1,102 @@
+package mjson.jsonpath.spi.cache;
+
+import com.jayway.jsonpath.JsonPath;
+import mjson.Json;
+import mjson.jsonpath.MjsonJsonPath;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BoundedPathCacheTest {
+
+    @Test
+    public void compiled_paths_are_reused() {
+        BoundedPathCache cache = new BoundedPathCache(10);
+        JsonPath first = cache.compile("$.store.book[0]");
+        JsonPath second = cache.compile("$.store.book[0]");
+
+        assertThat(second).isSameAs(first);
+        assertThat(cache.missCount()).isEqualTo(1);
+        assertThat(cache.hitCount()).isEqualTo(1);
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void lru_evicts_least_recently_used() throws InterruptedException {
+        BoundedPathCache cache = new BoundedPathCache(2, BoundedPathCache.Eviction.LRU);
+        cache.compile("$.a");
+        Thread.sleep(1);
+        cache.compile("$.b");
+        Thread.sleep(1);
+        cache.compile("$.a");
+        Thread.sleep(1);
+        cache.compile("$.c");
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.evictionCount()).isEqualTo(1);
+        assertThat(cache.get("$.a")).isNotNull();
+        assertThat(cache.get("$.b")).isNull();
+        assertThat(cache.get("$.c")).isNotNull();
+    }
+
+    @Test
+    public void lfu_evicts_least_frequently_used() {
+        BoundedPathCache cache = new BoundedPathCache(2, BoundedPathCache.Eviction.LFU);
+        cache.compile("$.a");
+        cache.compile("$.b");
+        cache.compile("$.a");
+        cache.compile("$.a");
+        cache.compile("$.b");
+        cache.compile("$.c");
+        cache.compile("$.c");
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.evictionCount()).isEqualTo(1);
+        assertThat(cache.get("$.a")).isNotNull();
+        assertThat(cache.get("$.b")).isNull();
+    }
+
+    @Test
+    public void size_stays_bounded_under_concurrent_use() throws InterruptedException {
+        final BoundedPathCache cache = new BoundedPathCache(16);
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            final int offset = t;
+            threads[t] = new Thread() {
+                public void run() {
+                    try {
+                        start.await();
+                        for (int i = 0; i < 2000; i++)
+                            cache.compile("$.p" + ((i * 7 + offset) % 64));
+                    } catch (Throwable e) {
+                        failure.set(e);
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        start.countDown();
+        for (Thread thread : threads)
+            thread.join();
+
+        assertThat(failure.get()).isNull();
+        assertThat(cache.size()).isLessThanOrEqualTo(16);
+        assertThat(cache.hitCount() + cache.missCount()).isEqualTo(8 * 2000);
+    }
+
+    @Test
+    public void shared_configuration_reads_mjson() {
+        Json doc = Json.read("{\"a\":{\"b\":[1,2,3]}}");
+        Json element = MjsonJsonPath.read(doc, "$.a.b[1]");
+        Integer typed = MjsonJsonPath.using().parse("{\"a\":{\"b\":[1,2,3]}}").read("$.a.b[2]", Integer.class);
+
+        assertThat(element.asInteger()).isEqualTo(2);
+        assertThat(typed).isEqualTo(3);
+        assertThat(MjsonJsonPath.compile("$.a.b[1]")).isSameAs(MjsonJsonPath.compile("$.a.b[1]"));
+    }
+}
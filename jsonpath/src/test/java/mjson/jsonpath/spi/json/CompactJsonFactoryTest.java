@@ -0,0 +1,195 @@
+package mjson.jsonpath.spi.json;
+
+import com.jayway.jsonpath.DocumentContext;
+import mjson.Json;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static com.jayway.jsonpath.JsonPath.using;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CompactJsonFactoryTest extends BaseTest {
+
+    private final CompactJsonFactory factory = new CompactJsonFactory();
+
+    @Before
+    public void attach() {
+        Json.attachFactory(factory);
+    }
+
+    @After
+    public void detach() {
+        Json.detachFactory();
+    }
+
+    private Json readDefault(String json) {
+        Json.attachFactory(Json.defaultFactory);
+        try {
+            return Json.read(json);
+        } finally {
+            Json.attachFactory(factory);
+        }
+    }
+
+    @Test
+    public void parsed_documents_equal_default_ones() {
+        Json compact = Json.read(JSON_DOCUMENT);
+        Json plain = readDefault(JSON_DOCUMENT);
+
+        assertThat(compact).isInstanceOf(CompactJsonFactory.ObjectJson.class);
+        assertThat(compact).isEqualTo(plain);
+        assertThat(compact.getValue()).isEqualTo(plain.getValue());
+        assertThat(Json.read(compact.toString())).isEqualTo(plain);
+        assertThat(compact.at("long-max-property").getValue()).isEqualTo(Long.MAX_VALUE);
+        assertThat(compact.at("null-property").isNull()).isTrue();
+    }
+
+    @Test
+    public void paths_are_read_through_the_provider() {
+        DocumentContext document = using(MJSON_CONFIGURATION).parse(JSON_DOCUMENT);
+
+        Json authors = document.read("$.store.book[*].author");
+        Json prices = document.read("$..display-price");
+        Json cheap = document.read("$.store.book[?(@.display-price < 10)].title");
+        Json bicycle = document.read("$.store.bicycle['color', 'foo']");
+
+        assertThat(authors.asList()).containsExactly("Nigel Rees", "Evelyn Waugh", "Herman Melville", "J. R. R. Tolkien");
+        assertThat(prices.asList()).hasSize(5).contains(8.95, 19.95);
+        assertThat(cheap.asList()).containsExactly("Sayings of the Century", "Moby Dick");
+        assertThat(bicycle.at("color").asString()).isEqualTo("red");
+        assertThat(document.read("$.store.book.length()", Integer.class)).isEqualTo(4);
+    }
+
+    @Test
+    public void documents_are_updated_through_the_provider() {
+        DocumentContext compact = using(MJSON_CONFIGURATION).parse(JSON_DOCUMENT);
+        Json plain = readDefault(JSON_DOCUMENT);
+        DocumentContext expected = using(MJSON_CONFIGURATION).parse(plain);
+
+        for (DocumentContext document : Arrays.asList(compact, expected)) {
+            document.set("$.store.book[0].display-price", 1.5);
+            document.add("$.store.book", Json.read("{\"title\": \"Ulysses\"}").getValue());
+            document.put("$.store.bicycle", "gears", 21);
+            document.delete("$.store.book[1]");
+            document.delete("$.store.bicycle.foo");
+        }
+
+        assertThat((Object) compact.json()).isEqualTo(expected.json());
+        assertThat(compact.read("$.store.book[*].title", Json.class).asList())
+                .containsExactly("Sayings of the Century", "Moby Dick", "The Lord of the Rings", "Ulysses");
+    }
+
+    @Test
+    public void numeric_arrays_are_stored_as_primitives() {
+        CompactJsonFactory.ArrayJson array = (CompactJsonFactory.ArrayJson) Json.read("[1, 2, 3]");
+        assertThat(array.longs).isNotNull();
+
+        array.add(2.5);
+        assertThat(array.longs).isNull();
+        assertThat(array.doubles).isNotNull();
+        assertThat(array.at(0).getValue()).isEqualTo(1L);
+        assertThat(array.at(3).getValue()).isEqualTo(2.5);
+
+        array.add(Long.MAX_VALUE);
+        assertThat(array.doubles).isNull();
+        array.add("x").add(Json.nil()).add(true);
+
+        assertThat(array.asList()).containsExactly(1L, 2L, 3L, 2.5, Long.MAX_VALUE, "x", null, true);
+        assertThat(array.toString()).isEqualTo("[1,2,3,2.5," + Long.MAX_VALUE + ",\"x\",null,true]");
+        assertThat(array).isEqualTo(readDefault(array.toString()));
+    }
+
+    @Test
+    public void numeric_arrays_stay_primitive_after_writes_of_ints() {
+        CompactJsonFactory.ArrayJson longs = (CompactJsonFactory.ArrayJson) Json.read("[1, 2, 3]");
+        CompactJsonFactory.ArrayJson doubles = (CompactJsonFactory.ArrayJson) Json.read("[1.5, 2.5]");
+
+        longs.add(5).set(0, 7).add(Json.make((short) 8));
+        doubles.add(5).set(0, 0.5f);
+
+        assertThat(longs.longs).isNotNull();
+        assertThat(longs.values).isNull();
+        assertThat(longs.at(0).getValue()).isEqualTo(7L);
+        assertThat(longs.asList()).containsExactly(7L, 2L, 3L, 5L, 8L);
+        assertThat(doubles.doubles).isNotNull();
+        assertThat(doubles.values).isNull();
+        assertThat(doubles.asList()).containsExactly(0.5, 2.5, 5L);
+    }
+
+    @Test
+    public void arrays_are_edited_through_their_list_view() {
+        Json array = Json.read("[1.5, 2, 3]");
+        List<Json> elements = array.asJsonList();
+
+        elements.add(1, Json.make(7L));
+        elements.remove(0);
+        elements.set(2, Json.make(0.25));
+        array.delAt(0);
+        array.set(0, 4L);
+
+        assertThat(array.asList()).containsExactly(4L, 0.25);
+        assertThat(((CompactJsonFactory.ArrayJson) array).doubles).isNotNull();
+        assertThat(array.atDel(1).getValue()).isEqualTo(0.25);
+        assertThat(elements).hasSize(1);
+    }
+
+    @Test
+    public void large_objects_are_indexed() {
+        Json object = Json.object();
+        for (int i = 0; i < 100; i++)
+            object.set("k" + i, i);
+        object.delAt("k10");
+        object.atDel("k50");
+        Iterator<String> keys = object.asJsonMap().keySet().iterator();
+        keys.next();
+        keys.remove();
+
+        CompactJsonFactory.ObjectJson compact = (CompactJsonFactory.ObjectJson) object;
+        assertThat(compact.index).isNotNull();
+        assertThat(compact.size).isEqualTo(97);
+        for (int i = 1; i < 100; i++)
+            assertThat(object.has("k" + i)).isEqualTo(i != 10 && i != 50);
+        assertThat(object.at("k99").asInteger()).isEqualTo(99);
+        assertThat(object.asJsonMap().keySet()).startsWith("k1", "k2");
+    }
+
+    @Test
+    public void names_are_shared_and_elements_know_their_parent() {
+        CompactJsonFactory.ObjectJson first = (CompactJsonFactory.ObjectJson) Json.read("{\"name\": \"a\", \"tags\": [\"x\"]}");
+        CompactJsonFactory.ObjectJson second = (CompactJsonFactory.ObjectJson) Json.read("{\"name\": \"b\"}");
+
+        assertThat(second.names[0]).isSameAs(first.names[0]);
+        assertThat(first.at("tags").up()).isSameAs(first);
+        assertThat(first.at("tags").at(0).up()).isSameAs(first.at("tags"));
+        assertThat(first.at("name").up()).isSameAs(first);
+    }
+
+    @Test
+    public void merges_match_the_default_factory() {
+        String objects = "[{\"id\": 1}, {\"id\": 3}, {\"id\": 5}]";
+        String others = "[{\"id\": 2}, {\"id\": 3, \"x\": true}, {\"id\": 6}, {\"id\": 2}]";
+        Object[][] merges = {
+                {objects, others, new Json[0]},
+                {objects, others, new Json[] {Json.object("compareBy", "/id", "dup", true)}},
+                {"[1, 3, 5]", "[2, 3, 6, 7]", new Json[] {Json.object("sort", true)}}
+        };
+        for (Object[] merge : merges) {
+            Json[] options = (Json[]) merge[2];
+            Json compact = Json.read((String) merge[0]).with(Json.read((String) merge[1]), options);
+            Json plain = readDefault((String) merge[0]).with(readDefault((String) merge[1]), options);
+            assertThat(compact).isEqualTo(plain);
+        }
+
+        Json object = Json.read("{\"a\": {\"b\": 1}, \"c\": [1]}")
+                .with(Json.read("{\"a\": {\"d\": 2}, \"e\": 3}"), Json.object("merge", true));
+        Map<String, Object> merged = object.asMap();
+        assertThat(merged).containsKeys("a", "c", "e");
+        assertThat(object.at("a").asMap()).containsKeys("b", "d");
+    }
+}
@@ -0,0 +1,185 @@
+package mjson.jsonpath.spi.json;
+
+import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.DocumentContext;
+import com.jayway.jsonpath.InvalidJsonException;
+import mjson.Json;
+import mjson.jsonpath.spi.mapper.MjsonMappingProvider;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.jayway.jsonpath.JsonPath.using;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class LazyJsonFactoryTest extends BaseTest {
+
+    private static final Configuration LAZY_CONFIGURATION = Configuration
+            .builder()
+            .mappingProvider(new MjsonMappingProvider())
+            .jsonProvider(MjsonJsonProvider.lazy())
+            .build();
+
+    private final LazyJsonFactory factory = new LazyJsonFactory();
+
+    private static int decoded(Json[] values) {
+        int count = 0;
+        for (Json value : values) {
+            if (value != null)
+                count++;
+        }
+        return count;
+    }
+
+    @Test
+    public void documents_equal_eagerly_read_ones() {
+        Json lazy = factory.read(JSON_DOCUMENT);
+        Json eager = Json.read(JSON_DOCUMENT);
+
+        assertThat(lazy).isEqualTo(eager);
+        assertThat(lazy.getValue()).isEqualTo(eager.getValue());
+        assertThat(Json.read(lazy.toString())).isEqualTo(eager);
+        assertThat(lazy.at("store").at("bicycle").at("escape")).isEqualTo(eager.at("store").at("bicycle").at("escape"));
+        assertThat(lazy.at("long-max-property").getValue()).isEqualTo(Long.MAX_VALUE);
+        assertThat(factory.read("[18446744073709551616, -1.5e3, \"\\u00e9\"]").asList())
+                .isEqualTo(Json.read("[18446744073709551616, -1.5e3, \"\\u00e9\"]").asList());
+    }
+
+    @Test
+    public void only_the_values_read_are_decoded() {
+        LazyJsonFactory.ObjectJson root = (LazyJsonFactory.ObjectJson) factory.read(JSON_DOCUMENT);
+
+        Json isbn = root.at("store").at("book").at(2).at("isbn");
+
+        assertThat(isbn.asString()).isEqualTo("0-553-21311-3");
+        assertThat(decoded(root.decoded)).isEqualTo(1);
+        LazyJsonFactory.ArrayJson books = (LazyJsonFactory.ArrayJson) root.at("store").at("book");
+        assertThat(decoded(books.decoded)).isEqualTo(1);
+        assertThat(root.at("store").at("book")).isSameAs(books);
+        assertThat(isbn.up().up()).isSameAs(books);
+    }
+
+    @Test
+    public void copies_keep_changes_to_decoded_values() {
+        Json doc = factory.read("{\"a\": {\"x\": 1}, \"b\": [1, 2], \"c\": [{\"y\": 1}, 2]}");
+        doc.at("a").set("x", 99);
+        doc.at("b").add(3);
+        doc.at("c").at(0).set("y", 2);
+
+        Json copy = doc.dup();
+
+        assertThat(copy).isEqualTo(doc);
+        assertThat(doc).isEqualTo(copy);
+        assertThat(Json.read(copy.toString())).isEqualTo(Json.read("{\"a\": {\"x\": 99}, \"b\": [1, 2, 3], \"c\": [{\"y\": 2}, 2]}"));
+        assertThat(copy.at("c").at(0).up()).isSameAs(copy.at("c"));
+        copy.at("a").set("x", 100);
+        assertThat(doc.at("a").at("x").asInteger()).isEqualTo(99);
+    }
+
+    @Test
+    public void paths_are_read_through_the_lazy_provider() {
+        DocumentContext lazy = using(LAZY_CONFIGURATION).parse(JSON_DOCUMENT);
+        DocumentContext eager = using(MJSON_CONFIGURATION).parse(JSON_DOCUMENT);
+
+        for (String path : Arrays.asList("$.store.book[*].author", "$..display-price", "$.store.book[?(@.display-price < 10)].title",
+                "$.store.book[-1:]", "$..*")) {
+            Json expected = eager.read(path);
+            // deep scans follow the member order, which a default tree does not keep
+            assertThat(lazy.read(path, Json.class).asList()).as(path)
+                    .hasSameSizeAs(expected.asList()).containsOnlyElementsOf(expected.asList());
+        }
+        assertThat((Object) lazy.read("$.store.bicycle['color', 'foo']")).isEqualTo(eager.read("$.store.bicycle['color', 'foo']"));
+        assertThat(lazy.read("$.store.book.length()", Integer.class)).isEqualTo(4);
+    }
+
+    @Test
+    public void documents_are_updated_through_the_lazy_provider() {
+        DocumentContext lazy = using(LAZY_CONFIGURATION).parse(JSON_DOCUMENT);
+        DocumentContext eager = using(MJSON_CONFIGURATION).parse(JSON_DOCUMENT);
+
+        for (DocumentContext document : Arrays.asList(lazy, eager)) {
+            document.set("$.store.book[0].display-price", 1.5);
+            document.add("$.store.book", Json.read("{\"title\": \"Ulysses\"}").getValue());
+            document.put("$.store.bicycle", "gears", 21);
+            document.delete("$.store.book[1]");
+            document.delete("$.store.bicycle.foo");
+        }
+
+        assertThat((Object) lazy.json()).isEqualTo(eager.json());
+    }
+
+    @Test
+    public void streams_are_read_lazily() throws Exception {
+        byte[] doc = JSON_BOOK_DOCUMENT.getBytes("UTF-16LE");
+
+        Object read = MjsonJsonProvider.lazy().parse(new ByteArrayInputStream(doc), null);
+
+        assertThat(read).isInstanceOf(LazyJsonFactory.ObjectJson.class);
+        assertThat(((Json) read).at("author").asString()).isEqualTo("Nigel Rees");
+    }
+
+    @Test
+    public void large_objects_find_names_through_an_index() {
+        StringBuilder sb = new StringBuilder("{");
+        for (int i = 0; i < 40; i++)
+            sb.append("\"k").append(i).append("\": ").append(i).append(", ");
+        sb.append("\"k3\": \"last\", \"\\u006bey\": true}");
+        LazyJsonFactory.ObjectJson object = (LazyJsonFactory.ObjectJson) factory.read(sb.toString());
+
+        assertThat(object.at("k39").asInteger()).isEqualTo(39);
+        assertThat(object.slots).isNotNull();
+        assertThat(object.at("k3").asString()).isEqualTo("last");
+        assertThat(object.at("key").asBoolean()).isTrue();
+        assertThat(object.has("k40")).isFalse();
+        assertThat(object.asJsonMap().keySet()).startsWith("k0", "k1").endsWith("key");
+    }
+
+    @Test
+    public void duplicate_names_are_counted_once() {
+        StringBuilder sb = new StringBuilder("{\"a\": 1, \"b\": 2, \"\\u0061\": 3");
+        List<String> names = new ArrayList<String>(Arrays.asList("a", "b"));
+        for (int i = 0; i < 20; i++) {
+            sb.append(", \"k").append(i % 10).append("\": ").append(i);
+            if (i < 10)
+                names.add("k" + i);
+        }
+        String[] documents = {"{\"a\": 1, \"b\": 2, \"\\u0061\": 3}", sb.append('}').toString()};
+
+        for (String document : documents) {
+            Json lazy = factory.read(document);
+            List<String> expected = document.length() < 30 ? names.subList(0, 2) : names;
+
+            assertThat(lazy.asJsonMap()).hasSize(expected.size());
+            assertThat(lazy.asJsonMap().keySet()).containsExactlyElementsOf(expected);
+            assertThat(lazy.at("a").asInteger()).isEqualTo(3);
+            assertThat(lazy).isEqualTo(Json.read(document));
+            lazy.set("b", 4);
+            assertThat(lazy.asJsonMap().keySet()).containsExactlyElementsOf(expected);
+        }
+    }
+
+    @Test
+    public void malformed_documents_report_their_position() {
+        String[][] documents = {
+                {"{\"a\": 1,}", "Expected a property name at position 8"},
+                {"[1 2]", "Expected ',' or ']' at position 3"},
+                {"{\"a\" 1}", "Expected ':' at position 5"},
+                {"[1]x", "Unexpected character after the document at position 3"},
+                {"[\"abc", "Unterminated string at position 5"},
+                {"[tru]", "Unexpected character 't' at position 1"},
+                {"{\"a\": [1}", "Expected ',' or ']' at position 8"}
+        };
+        for (String[] document : documents) {
+            try {
+                factory.read(document[0]);
+                fail("Expected " + document[0] + " to be rejected");
+            } catch (InvalidJsonException e) {
+                assertThat(e.getMessage()).isEqualTo(document[1]);
+            }
+        }
+    }
+}
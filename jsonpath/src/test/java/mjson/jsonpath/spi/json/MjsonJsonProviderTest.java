@@ -1,11 +1,23 @@
 package mjson.jsonpath.spi.json;
 
+import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.DocumentContext;
+import com.jayway.jsonpath.TypeRef;
+import com.jayway.jsonpath.spi.json.JsonProvider;
+import com.jayway.jsonpath.spi.mapper.MappingException;
 import mjson.Json;
+import mjson.jsonpath.spi.mapper.MjsonMappingProvider;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 
@@ -41,6 +53,109 @@ public class MjsonJsonProviderTest extends BaseTest {
         }
     }
 
+    @Test
+    public void utf8_byte_order_mark_is_skipped() throws IOException {
+        byte[] bom = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+        byte[] doc = concat(bom, JSON_BOOK_DOCUMENT.getBytes("UTF-8"));
+        Json node = using(MJSON_CONFIGURATION).parse(new ByteArrayInputStream(doc)).read("$.author");
+        assertThat(node.asString()).isEqualTo("Nigel Rees");
+    }
+
+    @Test
+    public void utf16_byte_order_mark_overrides_declared_charset() throws IOException {
+        byte[] doc = "{\"name\":\"\u00e9t\u00e9\"}".getBytes("UTF-16");
+        Json node = (Json) new MjsonJsonProvider().parse(new ByteArrayInputStream(doc), "UTF-8");
+        assertThat(node.at("name").asString()).isEqualTo("\u00e9t\u00e9");
+    }
+
+    @Test
+    public void encoding_is_detected_without_byte_order_mark() throws IOException {
+        MjsonJsonProvider provider = new MjsonJsonProvider();
+        String json = "{\"name\":\"\u00e9t\u00e9\"}";
+        for (String charset : new String[] {"UTF-8", "UTF-16BE", "UTF-16LE", "UTF-32BE", "UTF-32LE"}) {
+            Json node = (Json) provider.parse(new ByteArrayInputStream(json.getBytes(charset)), null);
+            assertThat(node.at("name").asString()).as(charset).isEqualTo("\u00e9t\u00e9");
+        }
+    }
+
+    @Test
+    public void large_stream_is_parsed_across_buffer_boundaries() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < 20000; i++) {
+            if (i > 0)
+                sb.append(',');
+            sb.append("{\"id\":").append(i).append(",\"price\":").append(i * 0.5).append('}');
+        }
+        sb.append(']');
+        byte[] doc = sb.toString().getBytes();
+        Json node = using(MJSON_CONFIGURATION).parse(new ByteArrayInputStream(doc)).read("$");
+        assertThat(node.asJsonList()).hasSize(20000);
+        assertThat(node.at(19999).at("id").asInteger()).isEqualTo(19999);
+        assertThat(node.at(12345).at("price").asDouble()).isEqualTo(6172.5D);
+    }
+
+    @Test
+    public void reader_iterator_steps_back_over_refills() {
+        ReaderCharacterIterator it = new ReaderCharacterIterator(new StringReader("[1234,5]"), 2);
+        assertThat(Json.read(it)).isEqualTo(Json.array(1234, 5));
+        assertThat(it.getEndIndex()).isEqualTo(8);
+    }
+
+    @Test
+    public void mapped_file_is_parsed() throws IOException {
+        Json node = (Json) new MjsonJsonProvider().parse(Paths.get("./src/test/resources/json-test-doc.json"));
+        assertThat(node.at("type").asString()).isEqualTo("donut");
+        assertThat(node.at("batters").at("batter").asJsonList()).hasSize(4);
+    }
+
+    @Test
+    public void mapped_segments_split_characters() throws IOException {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < 500; i++)
+            sb.append(i > 0 ? "," : "").append("\"\u00e9\u20ac\ud83c\udf69").append(i).append('"');
+        String json = sb.append(']').toString();
+        for (String charset : new String[] {"UTF-8", "UTF-16", "UTF-32LE"}) {
+            File file = File.createTempFile("mapped", ".json");
+            file.deleteOnExit();
+            FileOutputStream out = new FileOutputStream(file);
+            out.write(json.getBytes(charset));
+            out.close();
+            // segments of odd sizes end inside multi-byte characters
+            for (int segmentSize : new int[] {17, 31, 4099}) {
+                MappedFileReader reader = new MappedFileReader(file.toPath(), null, segmentSize);
+                assertThat(Json.read(new ReaderCharacterIterator(reader))).as(charset).isEqualTo(Json.read(json));
+                reader.close();
+            }
+        }
+    }
+
+    @Test
+    public void mapped_reader_returns_surrogate_pairs_one_char_at_a_time() throws IOException {
+        File file = File.createTempFile("mapped", ".json");
+        file.deleteOnExit();
+        FileOutputStream out = new FileOutputStream(file);
+        out.write("\"\ud83c\udf69\"".getBytes("UTF-8"));
+        out.close();
+        MappedFileReader reader = new MappedFileReader(file.toPath(), null);
+        StringBuilder chars = new StringBuilder();
+        for (int c = reader.read(); c >= 0; c = reader.read())
+            chars.append((char) c);
+        reader.close();
+        assertThat(chars.toString()).isEqualTo("\"\ud83c\udf69\"");
+    }
+
+    @Test(expected = Json.MalformedJsonException.class)
+    public void truncated_stream_is_rejected() {
+        new MjsonJsonProvider().parse(new ByteArrayInputStream("{\"a\": [1, 2".getBytes()), "UTF-8");
+    }
+
+    private static byte[] concat(byte[] a, byte[] b) {
+        byte[] result = new byte[a.length + b.length];
+        System.arraycopy(a, 0, result, 0, a.length);
+        System.arraycopy(b, 0, result, a.length, b.length);
+        return result;
+    }
+
     @Test
     public void strings_are_unwrapped() {
         String jsonPath = "$.string-property";
@@ -158,6 +273,82 @@ public class MjsonJsonProviderTest extends BaseTest {
         assertThat(objs.asList()).containsExactly(8.95D, 12.99D, 8.99D, 22.99D);
     }
 
+    @Test
+    public void properties_and_elements_can_be_deleted() {
+        DocumentContext context = using(MJSON_CONFIGURATION).parse(JSON_DOCUMENT);
+        context.delete("$.store.bicycle.color");
+        context.delete("$.store.book[0]");
+        Json store = context.read("$.store");
+        assertThat(store.at("bicycle").has("color")).isFalse();
+        assertThat(store.at("book").asJsonList()).hasSize(3);
+        assertThat(store.at("book").at(0).at("author").asString()).isEqualTo("Evelyn Waugh");
+    }
+
+    @Test
+    public void property_keys_are_copied_by_default() {
+        Json object = Json.read("{\"a\":1,\"b\":2}");
+        Collection<String> keys = new MjsonJsonProvider().getPropertyKeys(object);
+        object.set("c", 3);
+        assertThat(keys).containsOnly("a", "b");
+    }
+
+    @Test
+    public void live_property_keys_are_a_read_only_view() {
+        Json object = Json.read("{\"a\":1,\"b\":2}");
+        Collection<String> keys = new MjsonJsonProvider(true).getPropertyKeys(object);
+        object.set("c", 3);
+        assertThat(keys).containsOnly("a", "b", "c");
+        try {
+            keys.remove("a");
+            fail("live key view should be read-only");
+        } catch (UnsupportedOperationException e) {
+            assertThat(object.has("a")).isTrue();
+        }
+    }
+
+    @Test
+    public void array_property_keys_are_the_union_of_object_keys() {
+        MjsonJsonProvider provider = new MjsonJsonProvider(true);
+        assertThat(provider.getPropertyKeys(Json.read("[1, \"x\"]"))).isEmpty();
+        assertThat(provider.getPropertyKeys(Json.read("[1, {\"a\":1}]"))).containsOnly("a");
+        assertThat(provider.getPropertyKeys(Json.read("[{\"a\":1}, 2, {\"b\":1, \"a\":2}]"))).containsOnly("a", "b");
+        assertThat(provider.getPropertyKeys(Json.read("\"x\""))).isEmpty();
+    }
+
+    @Test
+    public void deep_scan_with_live_keys_matches_copied_keys() {
+        Configuration live = Configuration.builder()
+                .jsonProvider(new MjsonJsonProvider(true))
+                .mappingProvider(new MjsonMappingProvider())
+                .build();
+        for (String path : new String[] {"$..display-price", "$.store.*", "$..book[?(@.isbn)].title"}) {
+            Json expected = using(MJSON_CONFIGURATION).parse(JSON_DOCUMENT).read(path);
+            Json actual = using(live).parse(JSON_DOCUMENT).read(path);
+            assertThat(actual).as(path).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    public void missing_keys_are_undefined_and_null_values_are_not() {
+        MjsonJsonProvider provider = new MjsonJsonProvider();
+        Json object = Json.read("{\"a\":null,\"b\":1}");
+        assertThat(provider.getMapValue(object, "missing")).isSameAs(JsonProvider.UNDEFINED);
+        assertThat(provider.getMapValue(object, "a")).isEqualTo(Json.nil());
+        assertThat(provider.getMapValue(object, "b")).isEqualTo(Json.make(1));
+        assertThat(provider.getMapValue(Json.array(1), "b")).isSameAs(JsonProvider.UNDEFINED);
+    }
+
+    @Test
+    public void array_elements_are_replaced_not_inserted() {
+        DocumentContext context = using(MJSON_CONFIGURATION).parse("{\"a\":[1,2,3]}");
+        context.set("$.a[1]", 20);
+        context.add("$.a", 4);
+        Json a = context.read("$.a");
+        assertThat(a).isEqualTo(Json.array(1, 20, 3, 4));
+        assertThat(MJSON_CONFIGURATION.jsonProvider().length(a)).isEqualTo(4);
+        assertThat(MJSON_CONFIGURATION.jsonProvider().getArrayIndex(a, 3)).isEqualTo(Json.make(4));
+    }
+
     @Test
     public void equality_check_does_not_break_evaluation() {
         assertHasOneResult("[{\"value\":\"5\"}]", "$[?(@.value=='5')]", MJSON_CONFIGURATION);
@@ -183,39 +374,54 @@ public class MjsonJsonProviderTest extends BaseTest {
         assertThat(none2.size()).isEqualTo(4);
 
     }
-//    @Test
-//    public void an_object_can_be_mapped_to_pojo() {
-//
-//        String json = "{\n" +
-//                "   \"foo\" : \"foo\",\n" +
-//                "   \"bar\" : 10,\n" +
-//                "   \"baz\" : true\n" +
-//                "}";
-//
-//
-//        TestClazz testClazz = JsonPath.using(MJSON_CONFIGURATION).parse(json).read("$", TestClazz.class);
-//
-//        assertThat(testClazz.foo).isEqualTo("foo");
-//        assertThat(testClazz.bar).isEqualTo(10L);
-//        assertThat(testClazz.baz).isEqualTo(true);
-//
-//    }
-//
-//    @Test
-//    public void test_type_ref() throws IOException {
-//        TypeRef<List<FooBarBaz<Gen>>> typeRef = new TypeRef<List<FooBarBaz<Gen>>>() {};
-//
-//        List<FooBarBaz<Gen>> list = JsonPath.using(MJSON_CONFIGURATION).parse(JSON_POJO).read("$", typeRef);
-//
-//        assertThat(list.get(0).gen.eric).isEqualTo("yepp");
-//    }
-
-//    @Test(expected = MappingException.class)
-//    public void test_type_ref_fail() throws IOException {
-//        TypeRef<List<FooBarBaz<Integer>>> typeRef = new TypeRef<List<FooBarBaz<Integer>>>() {};
-//
-//        Json node = using(MJSON_CONFIGURATION).parse(JSON_POJO).read("$");
-//    }
+    @Test
+    public void an_object_can_be_mapped_to_pojo() {
+
+        String json = "{\n" +
+                "   \"foo\" : \"foo\",\n" +
+                "   \"bar\" : 10,\n" +
+                "   \"baz\" : true\n" +
+                "}";
+
+
+        TestClazz testClazz = using(MJSON_CONFIGURATION).parse(json).read("$", TestClazz.class);
+
+        assertThat(testClazz.foo).isEqualTo("foo");
+        assertThat(testClazz.bar).isEqualTo(10L);
+        assertThat(testClazz.baz).isEqualTo(true);
+
+    }
+
+    @Test
+    public void test_type_ref() throws IOException {
+        TypeRef<List<FooBarBaz<Gen>>> typeRef = new TypeRef<List<FooBarBaz<Gen>>>() {};
+
+        List<FooBarBaz<Gen>> list = using(MJSON_CONFIGURATION).parse(JSON_POJO).read("$", typeRef);
+
+        assertThat(list.get(0).gen.eric).isEqualTo("yepp");
+    }
+
+    @Test(expected = MappingException.class)
+    public void test_type_ref_fail() throws IOException {
+        TypeRef<List<FooBarBaz<Integer>>> typeRef = new TypeRef<List<FooBarBaz<Integer>>>() {};
+
+        using(MJSON_CONFIGURATION).parse(JSON_POJO).read("$", typeRef);
+    }
+
+    private static final String JSON_POJO = "[\n" +
+            "  {\n" +
+            "    \"foo\" : \"foo0\",\n" +
+            "    \"bar\" : 0,\n" +
+            "    \"baz\" : true,\n" +
+            "    \"gen\" : {\"eric\" : \"yepp\"}" +
+            "  },\n" +
+            "  {\n" +
+            "    \"foo\" : \"foo1\",\n" +
+            "    \"bar\" : 1,\n" +
+            "    \"baz\" : true,\n" +
+            "    \"gen\" : {\"eric\" : \"yepp\"}" +
+            "  }\n" +
+            "]";
 
     /**
      * Used for testing JSON to POJO
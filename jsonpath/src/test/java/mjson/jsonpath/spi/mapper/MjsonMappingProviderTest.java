@@ -0,0 +1,264 @@
+package mjson.jsonpath.spi.mapper;
+
+import com.jayway.jsonpath.DocumentContext;
+import com.jayway.jsonpath.TypeRef;
+import com.jayway.jsonpath.spi.mapper.MappingException;
+import mjson.Json;
+import mjson.jsonpath.MjsonJsonPath;
+import org.junit.Test;
+
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class MjsonMappingProviderTest {
+
+    private static final String ORDERS = "{\n" +
+            "   \"orders\" : [\n" +
+            "      {\"id\" : 1, \"status\" : \"OPEN\", \"total\" : 9.5, \"tags\" : [\"a\", \"b\"],\n" +
+            "       \"lines\" : [{\"sku\" : \"x\", \"qty\" : 2}], \"customer\" : {\"name\" : \"ann\"}},\n" +
+            "      {\"id\" : 2, \"status\" : \"SHIPPED\", \"total\" : 20, \"tags\" : [],\n" +
+            "       \"lines\" : [], \"customer\" : null, \"unknown\" : true}\n" +
+            "   ],\n" +
+            "   \"stock\" : {\"x\" : [1, 2], \"y\" : [3]},\n" +
+            "   \"matrix\" : [[1, 2], [3, 4]],\n" +
+            "   \"tree\" : {\"name\" : \"root\", \"children\" : [{\"name\" : \"leaf\", \"children\" : []}]}\n" +
+            "}";
+
+    public enum Status { OPEN, SHIPPED }
+
+    public static class Order {
+        public int id;
+        public Status status;
+        public double total;
+        public Set<String> tags;
+        public List<Line> lines;
+        public Customer customer;
+    }
+
+    public static class Line {
+        private String sku;
+        private long qty;
+    }
+
+    public static class Customer {
+        public String name;
+    }
+
+    public static class Node {
+        public String name;
+        public List<Node> children;
+    }
+
+    public static class BrokenNode {
+        public List<BrokenNode> children;
+        public NoDefault bad;
+    }
+
+    public static class NoDefault {
+        public NoDefault(int value) {
+        }
+    }
+
+    public static class Page<T> {
+        public List<T> items;
+    }
+
+    public static class OrderPage extends Page<Order> {
+    }
+
+    public static class Account {
+        private String owner;
+        private long balance;
+        private boolean ownerSetByMethod;
+
+        public void setOwner(String owner) {
+            this.owner = owner;
+            this.ownerSetByMethod = true;
+        }
+
+        public void setBalance(long balance) {
+            this.balance = balance;
+        }
+    }
+
+    static class Hidden {
+        private int value;
+
+        private Hidden() {
+        }
+    }
+
+    private DocumentContext orders() {
+        return MjsonJsonPath.using().parse(ORDERS);
+    }
+
+    @Test
+    public void type_ref_maps_list_of_pojos() {
+        List<Order> orders = orders().read("$.orders", new TypeRef<List<Order>>() {});
+
+        assertThat(orders).hasSize(2);
+        Order first = orders.get(0);
+        assertThat(first.id).isEqualTo(1);
+        assertThat(first.status).isEqualTo(Status.OPEN);
+        assertThat(first.total).isEqualTo(9.5);
+        assertThat(first.tags).containsExactly("a", "b");
+        assertThat(first.lines).hasSize(1);
+        assertThat(first.lines.get(0).sku).isEqualTo("x");
+        assertThat(first.lines.get(0).qty).isEqualTo(2L);
+        assertThat(first.customer.name).isEqualTo("ann");
+        assertThat(orders.get(1).total).isEqualTo(20.0);
+        assertThat(orders.get(1).customer).isNull();
+    }
+
+    @Test
+    public void type_ref_maps_maps_and_arrays() {
+        Map<String, int[]> stock = orders().read("$.stock", new TypeRef<Map<String, int[]>>() {});
+        Long[][] matrix = orders().read("$.matrix", new TypeRef<Long[][]>() {});
+        Map<String, List<Integer>> lists = orders().read("$.stock", new TypeRef<Map<String, List<Integer>>>() {});
+
+        assertThat(stock.keySet()).containsExactly("x", "y");
+        assertThat(stock.get("x")).containsExactly(1, 2);
+        assertThat(matrix[1]).containsExactly(3L, 4L);
+        assertThat(lists.get("y")).containsExactly(3);
+    }
+
+    @Test
+    public void type_ref_maps_optional() {
+        Optional<Customer> present = orders().read("$.orders[0].customer", new TypeRef<Optional<Customer>>() {});
+        Optional<Customer> absent = orders().read("$.orders[1].customer", new TypeRef<Optional<Customer>>() {});
+
+        assertThat(present.get().name).isEqualTo("ann");
+        assertThat(absent.isPresent()).isFalse();
+    }
+
+    @Test
+    public void generic_and_recursive_pojos_are_bound() {
+        Node tree = orders().read("$.tree", Node.class);
+        OrderPage page = MjsonJsonPath.using().parse("{\"items\":[{\"id\":7}]}").read("$", OrderPage.class);
+        Page<Customer> customers = MjsonJsonPath.using().parse("{\"items\":[{\"name\":\"bob\"}]}")
+                .read("$", new TypeRef<Page<Customer>>() {});
+
+        assertThat(tree.children.get(0).name).isEqualTo("leaf");
+        assertThat(tree.children.get(0).children).isEmpty();
+        assertThat(page.items.get(0).id).isEqualTo(7);
+        assertThat(customers.items.get(0).name).isEqualTo("bob");
+    }
+
+    @Test
+    public void converters_are_cached_per_type() {
+        TypeConverters converters = new TypeConverters();
+        JsonConverter<?> first = converters.forType(new TypeRef<List<Order>>() {}.getType());
+        JsonConverter<?> second = converters.forType(new TypeRef<List<Order>>() {}.getType());
+
+        assertThat(second).isSameAs(first);
+        assertThat(converters.forType(Order.class)).isSameAs(converters.forType(Order.class));
+    }
+
+    @Test
+    public void failed_builds_cache_no_converters() {
+        TypeConverters converters = new TypeConverters();
+        Type children = new TypeRef<List<BrokenNode>>() {}.getType();
+        for (Type type : Arrays.asList(BrokenNode.class, children)) {
+            try {
+                converters.forType(type);
+                fail("Expected " + type + " to be rejected");
+            } catch (MappingException e) {
+                assertThat(e.getMessage()).contains("NoDefault");
+            }
+        }
+        assertThat(converters.forType(new TypeRef<List<Node>>() {}.getType())).isNotNull();
+    }
+
+    @Test(expected = MappingException.class)
+    public void mismatched_structure_is_rejected() {
+        orders().read("$.stock", new TypeRef<List<Integer>>() {});
+    }
+
+    @Test
+    public void scalars_are_converted_from_numbers_strings_and_booleans() {
+        DocumentContext doc = MjsonJsonPath.using().parse(SCALARS);
+
+        assertThat(doc.read("$.int", long.class)).isEqualTo(42L);
+        assertThat(doc.read("$.int", Double.class)).isEqualTo(42.0);
+        assertThat(doc.read("$.double", Integer.class)).isEqualTo(1);
+        assertThat(doc.read("$.double", BigDecimal.class)).isEqualTo(new BigDecimal("1.25"));
+        assertThat(doc.read("$.int", BigInteger.class)).isEqualTo(BigInteger.valueOf(42));
+        assertThat(doc.read("$.int", String.class)).isEqualTo("42");
+        assertThat(doc.read("$.bool", Boolean.class)).isTrue();
+        assertThat(doc.read("$.uuid", UUID.class)).isEqualTo(UUID.fromString("123e4567-e89b-12d3-a456-426655440000"));
+        assertThat(doc.read("$.instant", Instant.class)).isEqualTo(Instant.parse("2016-11-06T10:15:30Z"));
+        assertThat(doc.read("$.int", Instant.class)).isEqualTo(Instant.ofEpochMilli(42));
+        assertThat((Integer) doc.read("$.nil", Integer.class)).isNull();
+    }
+
+    @Test(expected = MappingException.class)
+    public void boolean_targets_require_boolean_elements() {
+        MjsonJsonPath.using().parse(SCALARS).read("$.uuid", Boolean.class);
+    }
+
+    @Test(expected = MappingException.class)
+    public void null_is_not_a_primitive() {
+        MjsonJsonPath.using().parse(SCALARS).read("$.nil", int.class);
+    }
+
+    @Test
+    public void registered_converters_apply_everywhere() {
+        MjsonMappingProvider provider = new MjsonMappingProvider()
+                .register(Instant.class, new JsonConverter<Instant>() {
+                    public Instant convert(Json json) {
+                        return Instant.ofEpochSecond(json.asLong());
+                    }
+                });
+        Json doc = Json.read(SCALARS);
+
+        Instant instant = provider.map(doc.at("int"), Instant.class, null);
+        List<Instant> instants = provider.map(Json.array(1, 2), new TypeRef<List<Instant>>() {}, null);
+
+        assertThat(instant).isEqualTo(Instant.ofEpochSecond(42));
+        assertThat(instants).containsExactly(Instant.ofEpochSecond(1), Instant.ofEpochSecond(2));
+    }
+
+    @Test
+    public void beans_are_bound_through_setters() {
+        Account account = MjsonJsonPath.using().parse("{\"owner\":\"ann\",\"balance\":12,\"extra\":[1]}")
+                .read("$", Account.class);
+
+        assertThat(account.owner).isEqualTo("ann");
+        assertThat(account.ownerSetByMethod).isTrue();
+        assertThat(account.balance).isEqualTo(12L);
+    }
+
+    @Test
+    public void non_public_beans_are_bound() {
+        Hidden hidden = MjsonJsonPath.using().parse("{\"value\":3}").read("$", Hidden.class);
+
+        assertThat(hidden.value).isEqualTo(3);
+    }
+
+    @Test
+    public void large_arrays_are_bound() {
+        Json lines = Json.array();
+        for (int i = 0; i < 10000; i++)
+            lines.add(Json.object("sku", "s" + i, "qty", i));
+
+        Line[] bound = new MjsonMappingProvider().map(lines, Line[].class, null);
+
+        assertThat(bound).hasSize(10000);
+        assertThat(bound[9999].sku).isEqualTo("s9999");
+        assertThat(bound[9999].qty).isEqualTo(9999L);
+    }
+
+    private static final String SCALARS = "{\"int\" : 42, \"double\" : 1.25, \"bool\" : true, \"nil\" : null,\n" +
+            "   \"uuid\" : \"123e4567-e89b-12d3-a456-426655440000\", \"instant\" : \"2016-11-06T10:15:30Z\"}";
+}
@@ -0,0 +1,116 @@
+package mjson.jsonpath.stream;
+
+import mjson.Json;
+import mjson.jsonpath.MjsonJsonPath;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SuppressWarnings("unchecked")
+public class JsonPathSetTest {
+
+    private static final Json ORDER = Json.read("{" +
+            "  \"order\": {" +
+            "    \"id\": 17," +
+            "    \"customer\": {\"id\": \"c-1\", \"name\": \"Ada\", \"address\": {\"city\": \"London\", \"zip\": null}}," +
+            "    \"lines\": [" +
+            "      {\"sku\": \"a\", \"qty\": 1, \"price\": 2.5}," +
+            "      {\"sku\": \"b\", \"qty\": 3, \"price\": 1.25, \"options\": {\"price\": 0.5}}," +
+            "      {\"sku\": \"c\", \"qty\": 2, \"price\": 4}" +
+            "    ]" +
+            "  }," +
+            "  \"tags\": [\"x\", \"y\"]" +
+            "}");
+
+    private static final String[] PATHS = {
+            "$",
+            "$.order.id",
+            "$.order.customer",
+            "$.order.customer.name",
+            "$['order']['customer']['id']",
+            "$.order.customer.address.zip",
+            "$.order.customer.*",
+            "$.order.customer['name', 'id']",
+            "$.order.lines[1].sku",
+            "$.order.lines[*].sku",
+            "$.order.lines[0, 2].qty",
+            "$.order.lines[1:].price",
+            "$..price",
+            "$.order..city",
+            "$.tags[*]",
+            "$.tags[0, 0]",
+            "$.order.lines[0, 2, 0].sku",
+            "$['tags', 'tags'][1]",
+            "$.tags"
+    };
+
+    @Test
+    public void results_agree_with_reading_each_path() {
+        Map<String, Object> results = JsonPathSet.compile(PATHS).read(ORDER);
+
+        assertThat(results.keySet()).containsExactly(PATHS);
+        for (String path : PATHS) {
+            Json expected = MjsonJsonPath.read(ORDER.dup(), path);
+            Object actual = results.get(path);
+            if (path.endsWith("'id']") && path.contains(",")) {
+                assertThat(actual).as(path).isEqualTo(expected.asJsonMap());
+            } else if (MjsonJsonPath.compile(path).isDefinite()) {
+                assertThat(actual).as(path).isEqualTo(expected);
+            } else {
+                assertThat((List<Object>) actual).as(path).hasSameSizeAs(expected.asJsonList())
+                        .containsOnlyElementsOf(expected.asJsonList());
+            }
+        }
+    }
+
+    @Test
+    public void missing_definite_paths_are_null() {
+        Map<String, Object> results = JsonPathSet.compile("$.order.id", "$.order.total", "$.order.lines[7].sku").read(ORDER);
+
+        assertThat(results.get("$.order.id")).isEqualTo(Json.make(17));
+        assertThat(results).containsEntry("$.order.total", null).containsEntry("$.order.lines[7].sku", null);
+    }
+
+    @Test
+    public void missing_indefinite_paths_are_empty() {
+        Map<String, Object> results = JsonPathSet.compile("$.order.lines[*].discount", "$..nothing").read(ORDER);
+
+        assertThat((List<Object>) results.get("$.order.lines[*].discount")).isEmpty();
+        assertThat((List<Object>) results.get("$..nothing")).isEmpty();
+    }
+
+    @Test
+    public void a_path_can_be_a_prefix_of_another() {
+        Map<String, Object> results = JsonPathSet.compile("$.order.lines[*]", "$.order.lines[*].options.price",
+                "$.order.customer['name', 'address']", "$.order.customer['name', 'address'].city").read(ORDER);
+
+        assertThat((List<Object>) results.get("$.order.lines[*]")).hasSize(3);
+        assertThat((List<Object>) results.get("$.order.lines[*].options.price")).containsExactly(Json.make(0.5));
+        assertThat(results.get("$.order.customer['name', 'address']"))
+                .isEqualTo(Json.read("{\"name\": \"Ada\", \"address\": {\"city\": \"London\", \"zip\": null}}").asJsonMap());
+        assertThat((List<Object>) results.get("$.order.customer['name', 'address'].city")).containsExactly(Json.make("London"));
+    }
+
+    @Test
+    public void documents_are_not_modified() {
+        Json document = ORDER.dup();
+        Json line = document.at("order").at("lines").at(0);
+        JsonPathSet set = JsonPathSet.compile("$.order.lines[*]", "$..price", "$.order.customer['name', 'id']");
+
+        set.read(document);
+        set.read(document);
+
+        assertThat(line.up()).isSameAs(document.at("order").at("lines"));
+        assertThat(document).isEqualTo(ORDER);
+    }
+
+    @Test
+    public void equivalent_notations_share_the_trie() {
+        JsonPathSet set = JsonPathSet.compile("$.order.id", "$['order'].id", "$.order['id']");
+
+        assertThat(set.read(ORDER).values()).containsOnly(Json.make(17));
+    }
+}
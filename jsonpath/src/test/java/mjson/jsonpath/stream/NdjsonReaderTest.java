@@ -0,0 +1,125 @@
+package mjson.jsonpath.stream;
+
+import com.jayway.jsonpath.InvalidJsonException;
+import mjson.Json;
+import mjson.jsonpath.MjsonJsonPath;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class NdjsonReaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final int LINES = 5000;
+
+    private final NdjsonReader reader = new NdjsonReader(MjsonJsonPath.configuration(),
+            MjsonJsonPath.compile("$.id"), MjsonJsonPath.compile("$.user.name"), MjsonJsonPath.compile("$.tags[1]"));
+
+    private static byte[] feed() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < LINES; i++) {
+            sb.append("{\"id\": ").append(i).append(", \"user\": {\"name\": \"user-").append(i).append("\u00e9\"}");
+            if (i % 7 == 0)
+                sb.append(", \"tags\": [\"a\", \"b").append(i).append("\"]");
+            if (i % 1000 == 0)
+                sb.append(", \"padding\": \"").append(new String(new char[3000]).replace('\0', 'x')).append('"');
+            sb.append(i % 3 == 0 ? "}\r\n" : "}\n");
+            if (i % 11 == 0)
+                sb.append("\n");
+        }
+        return sb.toString().getBytes("UTF-8");
+    }
+
+    private static void assertLines(List<NdjsonReader.Line> lines) {
+        assertThat(lines).hasSize(LINES);
+        for (int i = 0; i < LINES; i++) {
+            NdjsonReader.Line line = lines.get(i);
+            assertThat(line.getValue(0)).isEqualTo(Json.make(i));
+            assertThat(line.getValue(1)).isEqualTo(Json.make("user-" + i + "\u00e9"));
+            assertThat(line.getValue(2)).isEqualTo(i % 7 == 0 ? Json.make("b" + i) : null);
+        }
+    }
+
+    private static Consumer<NdjsonReader.Line> into(final List<NdjsonReader.Line> lines) {
+        return new Consumer<NdjsonReader.Line>() {
+            public void accept(NdjsonReader.Line line) {
+                lines.add(line);
+            }
+        };
+    }
+
+    @Test
+    public void files_are_read_in_order() throws Exception {
+        File file = folder.newFile("feed.ndjson");
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(feed());
+        out.close();
+        List<NdjsonReader.Line> lines = new ArrayList<NdjsonReader.Line>();
+
+        // small windows so that lines cross them and some are longer than a window
+        reader.withChunkSize(512).withWindowSize(2048).read(file.toPath(), into(lines));
+
+        assertLines(lines);
+    }
+
+    @Test
+    public void streams_are_read_in_order() throws Exception {
+        List<NdjsonReader.Line> lines = new ArrayList<NdjsonReader.Line>();
+
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            reader.withChunkSize(1000).withPool(pool).read(new ByteArrayInputStream(feed()), into(lines));
+        } finally {
+            pool.shutdown();
+        }
+
+        assertLines(lines);
+    }
+
+    @Test
+    public void unordered_lines_are_all_delivered() throws Exception {
+        final Queue<NdjsonReader.Line> delivered = new ConcurrentLinkedQueue<NdjsonReader.Line>();
+
+        reader.withChunkSize(4096).inOrder(false).read(new ByteArrayInputStream(feed()), new Consumer<NdjsonReader.Line>() {
+            public void accept(NdjsonReader.Line line) {
+                delivered.add(line);
+            }
+        });
+
+        List<NdjsonReader.Line> lines = new ArrayList<NdjsonReader.Line>(delivered);
+        Collections.sort(lines, new Comparator<NdjsonReader.Line>() {
+            public int compare(NdjsonReader.Line a, NdjsonReader.Line b) {
+                return Long.compare(a.getOffset(), b.getOffset());
+            }
+        });
+        assertLines(lines);
+    }
+
+    @Test
+    public void invalid_lines_report_their_offset() throws Exception {
+        byte[] feed = "{\"id\": 1}\n{\"id\": 2\n{\"id\": 3}\n".getBytes("UTF-8");
+        try {
+            reader.read(new ByteArrayInputStream(feed), into(new ArrayList<NdjsonReader.Line>()));
+            fail("Expected the second line to be rejected");
+        } catch (InvalidJsonException e) {
+            assertThat(e.getMessage()).contains("byte offset 10");
+        }
+    }
+}
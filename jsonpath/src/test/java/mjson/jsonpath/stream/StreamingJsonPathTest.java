@@ -0,0 +1,176 @@
+package mjson.jsonpath.stream;
+
+import com.jayway.jsonpath.InvalidJsonException;
+import com.jayway.jsonpath.InvalidPathException;
+import mjson.Json;
+import mjson.jsonpath.MjsonJsonPath;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class StreamingJsonPathTest {
+
+    private static final String STORE = "{" +
+            "  \"store\": {" +
+            "    \"book\": [" +
+            "      {\"category\": \"reference\", \"author\": \"Nigel Rees\", \"title\": \"Sayings of the Century\", \"price\": 8.95}," +
+            "      {\"category\": \"fiction\", \"author\": \"Evelyn Waugh\", \"title\": \"Sword of Honour\", \"price\": 12.99}," +
+            "      {\"category\": \"fiction\", \"author\": \"J. R. R. Tolkien\", \"title\": \"The \\\"Lord\\\" of the Rings\", \"isbn\": \"0-395-19395-8\", \"price\": 22.99}" +
+            "    ]," +
+            "    \"bicycle\": {\"color\": \"red\", \"price\": 19.95, \"tags\": [\"a\", {\"price\": 1}]}" +
+            "  }," +
+            "  \"expensive\": 10" +
+            "}";
+
+    private static List<Json> stream(String path, String json) {
+        final List<Json> matches = new ArrayList<Json>();
+        StreamingJsonPath.compile(path).forEach(new StringReader(json), new Consumer<Json>() {
+            public void accept(Json json) {
+                matches.add(json);
+            }
+        });
+        return matches;
+    }
+
+    private static List<Json> tree(String path, String json) {
+        Json result = MjsonJsonPath.read(Json.read(json), path);
+        return result.isArray() ? result.asJsonList() : Collections.singletonList(result);
+    }
+
+    @Test
+    public void matches_agree_with_tree_evaluation() {
+        String[] paths = {
+                "$.store.book[*].author",
+                "$.store.book[1]",
+                "$.store.book[0,2].title",
+                "$.store.book[1:]",
+                "$.store.book[:2].price",
+                "$.store['bicycle'].color",
+                "$.store.*",
+                "$..author",
+                "$.store..price",
+                "$.expensive",
+                "$"
+        };
+        for (String path : paths) {
+            List<Json> expected = tree(path, STORE);
+            assertThat(stream(path, STORE)).as(path).hasSameSizeAs(expected).containsOnlyElementsOf(expected);
+        }
+    }
+
+    @Test
+    public void matches_are_in_document_order() {
+        assertThat(stream("$..price", STORE)).containsExactly(
+                Json.make(8.95), Json.make(12.99), Json.make(22.99), Json.make(19.95), Json.make(1));
+    }
+
+    @Test
+    public void property_lists_match_each_property() {
+        assertThat(stream("$.store['bicycle']['price', 'color']", STORE)).containsExactly(Json.make("red"), Json.make(19.95));
+    }
+
+    @Test
+    public void nested_matches_follow_their_enclosing_match() {
+        List<Json> matches = stream("$..a", "{\"a\": {\"a\": {\"a\": 1}}, \"b\": [{\"a\": 2}]}");
+
+        assertThat(matches).containsExactly(
+                Json.read("{\"a\": {\"a\": 1}}"), Json.read("{\"a\": 1}"), Json.make(1), Json.make(2));
+        assertThat(stream("$..a", "{\"a\": {\"b\": {\"a\": 2}, \"a\": 1}}")).containsExactly(
+                Json.read("{\"b\": {\"a\": 2}, \"a\": 1}"), Json.make(2), Json.make(1));
+    }
+
+    @Test
+    public void values_are_read_as_json_read_would() {
+        String json = "[\"x\\u00e9\\n\\/\", 1, -12345678901, 123456789012345678901234, 1.5e2, true, false, null, {}, []]";
+
+        assertThat(stream("$[*]", json)).containsExactlyElementsOf(Json.read(json).asJsonList());
+        for (Json value : stream("$[*]", json))
+            if (value.isNumber())
+                assertThat(value.getValue().getClass()).isEqualTo(Json.read(value.toString()).getValue().getClass());
+    }
+
+    @Test
+    public void every_top_level_value_is_evaluated() {
+        String ndjson = "{\"user\": {\"id\": 1}}\n{\"user\": {\"id\": 2}}\n\n{\"other\": 3}\n{\"user\": {\"id\": 4}}\n";
+
+        assertThat(stream("$.user.id", ndjson)).containsExactly(Json.make(1), Json.make(2), Json.make(4));
+    }
+
+    @Test
+    public void first_match_is_available_before_the_input_is_read() {
+        final String head = "{\"events\": [{\"user\": {\"id\": 7}, \"padding\": \"" + repeat('x', 20000) + "\"}, ";
+        Reader reader = new Reader() {
+            private final StringReader delegate = new StringReader(head);
+
+            public int read(char[] buffer, int offset, int length) throws IOException {
+                int count = delegate.read(buffer, offset, length);
+                if (count < 0)
+                    throw new IOException("The rest of the input is not there yet");
+                return count;
+            }
+
+            public void close() {
+            }
+        };
+        Iterator<Json> matches = StreamingJsonPath.compile("$.events[*].user.id").matches(reader);
+
+        assertThat(matches.next()).isEqualTo(Json.make(7));
+        try {
+            matches.hasNext();
+            fail("Expected the reader to run dry");
+        } catch (InvalidJsonException e) {
+            assertThat(e.getCause()).isInstanceOf(IOException.class);
+        }
+    }
+
+    @Test
+    public void input_streams_are_decoded() throws Exception {
+        byte[] utf16 = "{\"name\": \"\u00e9t\u00e9\"}".getBytes("UTF-16LE");
+        StreamingJsonPath.Matches matches = StreamingJsonPath.compile("$.name").matches(new ByteArrayInputStream(utf16), null);
+
+        assertThat(matches.next()).isEqualTo(Json.make("\u00e9t\u00e9"));
+        assertThat(matches.hasNext()).isFalse();
+    }
+
+    @Test
+    public void small_buffers_read_the_same_values() {
+        JsonTokenizer tokenizer = new JsonTokenizer(new StringReader(STORE), 1);
+        Json document = tokenizer.read(tokenizer.next());
+
+        assertThat(document).isEqualTo(Json.read(STORE));
+        assertThat(tokenizer.next()).isEqualTo(JsonTokenizer.END);
+    }
+
+    @Test(expected = InvalidPathException.class)
+    public void filters_cannot_be_streamed() {
+        StreamingJsonPath.compile("$.store.book[?(@.price > 10)]");
+    }
+
+    @Test(expected = InvalidPathException.class)
+    public void negative_indexes_cannot_be_streamed() {
+        StreamingJsonPath.compile("$.store.book[-1]");
+    }
+
+    @Test(expected = InvalidJsonException.class)
+    public void malformed_input_is_reported() {
+        stream("$.a", "{\"a\": [1, 2,]}");
+    }
+
+    private static String repeat(char c, int count) {
+        StringBuilder sb = new StringBuilder(count);
+        for (int i = 0; i < count; i++)
+            sb.append(c);
+        return sb.toString();
+    }
+}
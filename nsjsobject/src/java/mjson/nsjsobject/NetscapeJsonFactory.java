@@ -8,15 +8,33 @@
  */
 package mjson.nsjsobject;
 
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.RandomAccess;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 
+import javax.management.JMException;
+import javax.management.ObjectName;
+
 import mjson.Json;
 import netscape.javascript.JSObject;
 
@@ -36,8 +54,322 @@ import netscape.javascript.JSObject;
  */
 public class NetscapeJsonFactory extends Json.DefaultFactory implements java.io.Closeable
 {
-    JSObject global;
+    /**
+     * Functions injected into the page once per factory, so that operations touching many
+     * values cross the bridge once instead of once per value. Results that are mostly
+     * primitive travel as one JSON string; objects and arrays travel as handles next to it.
+     * <ul>
+     * <li><code>entries(o)</code> returns <code>[json, handle...]</code> where <code>json</code>
+     * is <code>[names, values, kinds]</code> for the own properties of <code>o</code> that are
+     * not undefined. <code>kinds</code> has one character per property: <code>p</code> for a
+     * primitive, whose value is in <code>values</code>, or <code>o</code>/<code>a</code> for
+     * an object/array, whose value is the next handle.</li>
+     * <li><code>stringify(v, max)</code> is <code>JSON.stringify(v)</code>, cut to
+     * <code>max</code> characters followed by <code>...</code> when longer.</li>
+     * <li><code>parse(text)</code> is <code>JSON.parse(text)</code>.</li>
+     * <li><code>clone(v)</code> deep copies <code>v</code> with <code>structuredClone</code>
+     * where the engine has it, and a <code>JSON.stringify</code>/<code>JSON.parse</code> round
+     * trip otherwise.</li>
+     * <li><code>resolve(v, path)</code> follows <code>path</code>, a JSON array of property
+     * names and indices, from <code>v</code>.</li>
+     * <li><code>kind(v)</code> is <code>'a'</code> for an array and <code>'o'</code> for any
+     * other object.</li>
+     * <li><code>elements(a)</code> is <code>entries</code> for the elements of an array,
+     * <code>json</code> being <code>[values, kinds]</code>. Undefined elements read as null.</li>
+     * <li><code>append(a, json, handle...)</code> pushes the elements encoded by
+     * <code>json</code>, <code>[values, kinds]</code> where kind <code>h</code> stands for the
+     * next handle argument, and returns the new length. <code>replace</code> does the same
+     * after emptying the array.</li>
+     * <li><code>appendArray(a, b)</code> pushes all elements of array <code>b</code>.</li>
+     * <li><code>removeAt(a, i)</code> and <code>remove(a, v)</code> splice one element out by
+     * index or by value.</li>
+     * <li><code>merge(a, b, pointers, dup)</code> appends the elements of <code>b</code> whose
+     * key is not in <code>a</code> yet, cloned if <code>dup</code>. The key of an element is the
+     * JSON text, with the names of every object sorted, of the values at <code>pointers</code>,
+     * a JSON array of JSON pointers, or of the whole element if <code>pointers</code> is
+     * <code>null</code>. Both arrays are walked once.</li>
+     * <li><code>apply(json, handle...)</code> applies the writes recorded by a
+     * {@link WriteLog}, in order. <code>json</code> is an array of
+     * <code>[op, target, key, handle, value]</code> where <code>target</code> and a non zero
+     * <code>handle</code> are argument positions, and <code>value</code> is used when
+     * <code>handle</code> is 0. <code>op</code> is <code>s</code> to set a property or slot,
+     * <code>d</code> to delete a property, <code>p</code> to push, <code>r</code> to splice out
+     * an index and <code>x</code> to splice out a value.</li>
+     * <li><code>patch(v, json)</code> applies the RFC 6902 JSON Patch <code>json</code> to
+     * <code>v</code> in place and returns the number of operations. An add or replace of the
+     * whole document replaces the content of <code>v</code>. A failed <code>test</code> throws,
+     * leaving the operations before it applied.</li>
+     * <li><code>member(o, name)</code> is <code>o[name]</code>, or the <code>none</code>
+     * object of the helpers if it is undefined. <code>has(o, name)</code> tells whether it is
+     * defined.</li>
+     * <li><code>watch(v, listener)</code> returns a proxy of <code>v</code> that calls
+     * <code>listener.invalidate()</code> on the first write made through it, or through the
+     * proxies it hands out for the objects it holds, after Java last read through the
+     * helpers.</li>
+     * </ul>
+     * Pushes are done in chunks, since engines limit the number of arguments of a call.
+     */
+    static final String HELPERS =
+        "(function() {\n" +
+        "  function pushAll(a, values) {\n" +
+        "    for (var i = 0; i < values.length; i += 8192)\n" +
+        "      Array.prototype.push.apply(a, values.slice(i, i + 8192));\n" +
+        "    return a.length;\n" +
+        "  }\n" +
+        "  function clone(v) {\n" +
+        "    if (typeof structuredClone === 'function') {\n" +
+        "      try { return structuredClone(v); } catch (e) { }\n" +
+        "    }\n" +
+        "    return JSON.parse(JSON.stringify(v));\n" +
+        "  }\n" +
+        "  function pointer(v, p) {\n" +
+        "    var parts = p.split('/');\n" +
+        "    for (var i = 0; i < parts.length; i++) {\n" +
+        "      if (parts[i] === '') continue;\n" +
+        "      if (v === null || typeof v !== 'object') return undefined;\n" +
+        "      v = v[parts[i].replace(/~1/g, '/').replace(/~0/g, '~')];\n" +
+        "    }\n" +
+        "    return v;\n" +
+        "  }\n" +
+        "  function sorted(k, v) {\n" +
+        "    if (v === null || typeof v !== 'object' || Array.isArray(v)) return v;\n" +
+        "    var names = Object.keys(v).sort(), o = {};\n" +
+        "    for (var i = 0; i < names.length; i++) o[names[i]] = v[names[i]];\n" +
+        "    return o;\n" +
+        "  }\n" +
+        "  function key(v, pointers) {\n" +
+        "    if (pointers === null) return JSON.stringify(v, sorted);\n" +
+        "    var k = [];\n" +
+        "    for (var i = 0; i < pointers.length; i++) k.push(pointer(v, pointers[i]));\n" +
+        "    return JSON.stringify(k, sorted);\n" +
+        "  }\n" +
+        "  var none = {}, listener = null, dirty = false, proxies = new WeakMap(), targets = new WeakMap();\n" +
+        "  function changed() {\n" +
+        "    if (!dirty && listener !== null) { dirty = true; listener.invalidate(); }\n" +
+        "  }\n" +
+        "  function watched(v) {\n" +
+        "    if (v === null || typeof v !== 'object' || targets.has(v)) return v;\n" +
+        "    var p = proxies.get(v);\n" +
+        "    if (!p) {\n" +
+        "      p = new Proxy(v, {\n" +
+        "        get: function(t, k) { return watched(t[k]); },\n" +
+        "        set: function(t, k, x) { t[k] = targets.get(x) || x; changed(); return true; },\n" +
+        "        deleteProperty: function(t, k) { delete t[k]; changed(); return true; }\n" +
+        "      });\n" +
+        "      proxies.set(v, p);\n" +
+        "      targets.set(p, v);\n" +
+        "    }\n" +
+        "    return p;\n" +
+        "  }\n" +
+        "  function locate(v, path) {\n" +
+        "    var i = path.lastIndexOf('/');\n" +
+        "    return [pointer(v, path.substring(0, i)), path.substring(i + 1).replace(/~1/g, '/').replace(/~0/g, '~')];\n" +
+        "  }\n" +
+        "  function insert(v, path, value) {\n" +
+        "    var at = locate(v, path);\n" +
+        "    if (Array.isArray(at[0])) at[0].splice(at[1] === '-' ? at[0].length : +at[1], 0, value);\n" +
+        "    else at[0][at[1]] = value;\n" +
+        "  }\n" +
+        "  function take(v, path) {\n" +
+        "    var at = locate(v, path), value = at[0][at[1]];\n" +
+        "    if (Array.isArray(at[0])) at[0].splice(+at[1], 1);\n" +
+        "    else delete at[0][at[1]];\n" +
+        "    return value;\n" +
+        "  }\n" +
+        "  function reset(v, value) {\n" +
+        "    if (Array.isArray(v) !== Array.isArray(value) || value === null || typeof value !== 'object')\n" +
+        "      throw new Error('Cannot replace the whole document with a value of another kind');\n" +
+        "    if (Array.isArray(v)) { v.length = 0; pushAll(v, value); return; }\n" +
+        "    var names = Object.keys(v);\n" +
+        "    for (var i = 0; i < names.length; i++) delete v[names[i]];\n" +
+        "    for (var name in value)\n" +
+        "      if (Object.prototype.hasOwnProperty.call(value, name)) v[name] = value[name];\n" +
+        "  }\n" +
+        "  function same(a, b) {\n" +
+        "    if (a === b) return true;\n" +
+        "    if (a === null || b === null || typeof a !== 'object' || typeof b !== 'object' || Array.isArray(a) !== Array.isArray(b)) return false;\n" +
+        "    var names = Object.keys(a);\n" +
+        "    if (names.length !== Object.keys(b).length) return false;\n" +
+        "    for (var i = 0; i < names.length; i++)\n" +
+        "      if (!Object.prototype.hasOwnProperty.call(b, names[i]) || !same(a[names[i]], b[names[i]])) return false;\n" +
+        "    return true;\n" +
+        "  }\n" +
+        "  function decode(json, args) {\n" +
+        "    var p = JSON.parse(json), values = p[0], kinds = p[1], h = 2;\n" +
+        "    for (var i = 0; i < values.length; i++)\n" +
+        "      if (kinds.charAt(i) === 'h') values[i] = args[h++];\n" +
+        "    return values;\n" +
+        "  }\n" +
+        "  return {\n" +
+        "  none: none,\n" +
+        "  member: function(o, name) {\n" +
+        "    dirty = false;\n" +
+        "    var v = o[name];\n" +
+        "    return typeof v === 'undefined' ? none : v;\n" +
+        "  },\n" +
+        "  has: function(o, name) {\n" +
+        "    dirty = false;\n" +
+        "    return typeof o[name] !== 'undefined';\n" +
+        "  },\n" +
+        "  watch: function(v, l) {\n" +
+        "    if (typeof Proxy !== 'function') throw new Error('This engine has no Proxy');\n" +
+        "    listener = l;\n" +
+        "    return watched(v);\n" +
+        "  },\n" +
+        "  entries: function(o) {\n" +
+        "    dirty = false;\n" +
+        "    var names = Object.getOwnPropertyNames(o), keys = [], values = [], kinds = '', out = [null];\n" +
+        "    for (var i = 0; i < names.length; i++) {\n" +
+        "      var v = o[names[i]], t = typeof v;\n" +
+        "      if (t === 'undefined') continue;\n" +
+        "      keys.push(names[i]);\n" +
+        "      if (v !== null && (t === 'object' || t === 'function')) {\n" +
+        "        kinds += Array.isArray(v) ? 'a' : 'o'; values.push(null); out.push(v);\n" +
+        "      } else {\n" +
+        "        kinds += 'p'; values.push(v);\n" +
+        "      }\n" +
+        "    }\n" +
+        "    out[0] = JSON.stringify([keys, values, kinds]);\n" +
+        "    return out;\n" +
+        "  },\n" +
+        "  stringify: function(v, max) {\n" +
+        "    var s = JSON.stringify(v);\n" +
+        "    return s.length > max ? s.substring(0, max) + '...' : s;\n" +
+        "  },\n" +
+        "  parse: function(text) {\n" +
+        "    return JSON.parse(text);\n" +
+        "  },\n" +
+        "  clone: clone,\n" +
+        "  resolve: function(v, path) {\n" +
+        "    path = JSON.parse(path);\n" +
+        "    for (var i = 0; i < path.length; i++) v = v[path[i]];\n" +
+        "    return v;\n" +
+        "  },\n" +
+        "  kind: function(v) {\n" +
+        "    return Array.isArray(v) ? 'a' : 'o';\n" +
+        "  },\n" +
+        "  elements: function(a) {\n" +
+        "    dirty = false;\n" +
+        "    var values = [], kinds = '', out = [null];\n" +
+        "    for (var i = 0; i < a.length; i++) {\n" +
+        "      var v = a[i], t = typeof v;\n" +
+        "      if (v !== null && (t === 'object' || t === 'function')) {\n" +
+        "        kinds += Array.isArray(v) ? 'a' : 'o'; values.push(null); out.push(v);\n" +
+        "      } else {\n" +
+        "        kinds += 'p'; values.push(t === 'undefined' ? null : v);\n" +
+        "      }\n" +
+        "    }\n" +
+        "    out[0] = JSON.stringify([values, kinds]);\n" +
+        "    return out;\n" +
+        "  },\n" +
+        "  append: function(a, json) {\n" +
+        "    return pushAll(a, decode(json, arguments));\n" +
+        "  },\n" +
+        "  replace: function(a, json) {\n" +
+        "    a.length = 0;\n" +
+        "    return pushAll(a, decode(json, arguments));\n" +
+        "  },\n" +
+        "  appendArray: function(a, b) {\n" +
+        "    return pushAll(a, b);\n" +
+        "  },\n" +
+        "  removeAt: function(a, i) {\n" +
+        "    return i < a.length ? a.splice(i, 1)[0] : null;\n" +
+        "  },\n" +
+        "  remove: function(a, v) {\n" +
+        "    var i = a.indexOf(v);\n" +
+        "    if (i > -1) a.splice(i, 1);\n" +
+        "    return i;\n" +
+        "  },\n" +
+        "  merge: function(a, b, pointers, dup) {\n" +
+        "    pointers = JSON.parse(pointers);\n" +
+        "    var seen = Object.create(null), added = [];\n" +
+        "    for (var i = 0; i < a.length; i++) seen[key(a[i], pointers)] = true;\n" +
+        "    for (var j = 0; j < b.length; j++) {\n" +
+        "      var k = key(b[j], pointers);\n" +
+        "      if (seen[k]) continue;\n" +
+        "      seen[k] = true;\n" +
+        "      added.push(dup ? clone(b[j]) : b[j]);\n" +
+        "    }\n" +
+        "    return pushAll(a, added);\n" +
+        "  },\n" +
+        "  apply: function(json) {\n" +
+        "    var ops = JSON.parse(json);\n" +
+        "    for (var i = 0; i < ops.length; i++) {\n" +
+        "      var op = ops[i], t = arguments[op[1]], v = op[3] > 0 ? arguments[op[3]] : op[4], j;\n" +
+        "      switch (op[0]) {\n" +
+        "      case 's': t[op[2]] = v; break;\n" +
+        "      case 'd': delete t[op[2]]; break;\n" +
+        "      case 'p': t.push(v); break;\n" +
+        "      case 'r': if (op[2] < t.length) t.splice(op[2], 1); break;\n" +
+        "      case 'x': j = t.indexOf(v); if (j > -1) t.splice(j, 1); break;\n" +
+        "      }\n" +
+        "    }\n" +
+        "    return ops.length;\n" +
+        "  },\n" +
+        "  patch: function(v, json) {\n" +
+        "    var ops = JSON.parse(json);\n" +
+        "    for (var i = 0; i < ops.length; i++) {\n" +
+        "      var op = ops[i], at;\n" +
+        "      switch (op.op) {\n" +
+        "      case 'add': if (op.path === '') reset(v, op.value); else insert(v, op.path, op.value); break;\n" +
+        "      case 'replace': if (op.path === '') reset(v, op.value); else { at = locate(v, op.path); at[0][at[1]] = op.value; } break;\n" +
+        "      case 'remove': take(v, op.path); break;\n" +
+        "      case 'move': insert(v, op.path, take(v, op.from)); break;\n" +
+        "      case 'copy': insert(v, op.path, clone(pointer(v, op.from))); break;\n" +
+        "      case 'test': if (!same(pointer(v, op.path), op.value)) throw new Error('Test failed at ' + op.path); break;\n" +
+        "      default: throw new Error('Unknown patch operation ' + op.op);\n" +
+        "      }\n" +
+        "    }\n" +
+        "    return ops.length;\n" +
+        "  }\n" +
+        "}; })()";
+    
+    /**
+     * The most handles passed to the engine in one <code>append</code> call.
+     */
+    static final int HANDLES_PER_CALL = 8192;
+    
+    final JSObject global;
+    volatile JSObject helpers;
+    volatile boolean nativeStringify = true;
+    
+    /**
+     * The thread owning the engine and a task queue running on it, <code>null</code> if
+     * the factory is used on that thread only.
+     */
+    volatile Engine engine;
+    
+    /**
+     * The writes not yet sent to the engine, <code>null</code> unless in write-behind mode.
+     */
+    volatile WriteLog writes;
+    
+    volatile boolean readCache;
+    volatile JSObject none;
+    
+    volatile BridgeMetrics metrics;
     
+    /**
+     * Bumped by every write made through the factory and by the page writing to a watched
+     * object: cached reads made before are stale. Writes behind, the page and direct writes
+     * bump it from different threads.
+     */
+    final AtomicLong epoch = new AtomicLong();
+    
+    /**
+     * The wrappers handed out so far, so that a JavaScript object met again, e.g. on every
+     * walk down a tree, gets the same wrapper back without asking the engine what it is.
+     * Wrappers are weakly referenced since they hold on to their key.
+     */
+    final Map<JSObject, WeakReference<Json>> wrappers = new WeakHashMap<JSObject, WeakReference<Json>>();
+    
+    /**
+     * Creates a factory and attaches it to the current thread, so that the static
+     * <code>Json</code> methods, e.g. <code>Json.object()</code>, make elements living in the
+     * engine until {@link #close()}. This suits code running on the engine thread only: on any
+     * other thread those methods still use the default factory. Code sharing an engine between
+     * threads uses a factory made with the constructor instead, see {@link #engine(Executor)}.
+     */
     public static NetscapeJsonFactory enter(JSObject global)
     {
         NetscapeJsonFactory factory = new NetscapeJsonFactory(global);
@@ -45,55 +377,1026 @@ public class NetscapeJsonFactory extends Json.DefaultFactory implements java.io.
         return factory;
     }
     
+    /**
+     * Creates a factory for the page of <code>global</code> without attaching it to any
+     * thread. It is an explicit handle to the page, passed to the code building elements in
+     * it, which calls its {@link #object()}, {@link #array()} and {@link #make(Object)}. The
+     * elements made by a factory, and those read from them, belong to it whatever the factory
+     * attached to the thread using them.
+     */
     public NetscapeJsonFactory(JSObject global)
     {
         this.global = global;
     }
     
+    /**
+     * Detaches the factory attached by {@link #enter(JSObject)} from the current thread.
+     */
     @Override
     public void close()
     {
         Json.detachFactory();
     }
     
+    /**
+     * Runs every call this factory and its elements make into the engine on the engine
+     * thread, so that elements can be read, written and made from any thread. This method is
+     * called on the engine thread, and <code>executor</code> runs tasks on it, e.g.
+     * <code>Platform::runLater</code>. A call made on the engine thread runs at once, and one
+     * made on another thread is handed to <code>executor</code> and waited for.
+     * 
+     * <p>To keep worker threads from waiting on the engine thread once per call, reads and
+     * the making of new elements are grouped in one task with {@link #onEngine(Supplier)},
+     * and writes are recorded by {@link #writeBehind(Executor)} without waiting at all.
+     * Passing <code>null</code> goes back to making calls on the calling thread.</p>
+     */
+    public NetscapeJsonFactory engine(Executor executor)
+    {
+        engine = executor == null ? null : new Engine(Thread.currentThread(), executor);
+        return this;
+    }
+    
+    /**
+     * Runs <code>work</code> on the engine thread, see {@link #engine(Executor)}, and returns
+     * its result. All the calls into the engine it makes run there at once, so a batch of
+     * reads costs a single wait however many calls it makes. An exception thrown by
+     * <code>work</code> is thrown again here.
+     */
+    public <T> T onEngine(Supplier<T> work)
+    {
+        Engine e = engine;
+        if (e == null || Thread.currentThread() == e.thread)
+            return work.get();
+        FutureTask<T> task = new FutureTask<T>(work::get);
+        e.executor.execute(task);
+        try
+        {
+            return task.get();
+        }
+        catch (InterruptedException x)
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for the engine thread", x);
+        }
+        catch (ExecutionException x)
+        {
+            if (x.getCause() instanceof RuntimeException)
+                throw (RuntimeException)x.getCause();
+            if (x.getCause() instanceof Error)
+                throw (Error)x.getCause();
+            throw new IllegalStateException(x.getCause());
+        }
+    }
+    
+    static final class Engine
+    {
+        final Thread thread;
+        final Executor executor;
+        
+        Engine(Thread thread, Executor executor)
+        {
+            this.thread = thread;
+            this.executor = executor;
+        }
+    }
+    
+    /**
+     * Chooses how objects and arrays are serialized by <code>toString</code>: with the
+     * engine's <code>JSON.stringify</code> in a single call (the default), or element by
+     * element from Java, which matches the text of the default factory more closely, e.g.
+     * for numbers, but crosses the bridge for every node.
+     */
+    public NetscapeJsonFactory nativeStringify(boolean nativeStringify)
+    {
+        this.nativeStringify = nativeStringify;
+        return this;
+    }
+    
+    /**
+     * Switches write-behind mode on or off, see {@link #writeBehind(Executor)}, flushing on
+     * the executor of the {@link #engine(Executor)} if there is one. Switching it off sends
+     * the pending writes first.
+     */
+    public NetscapeJsonFactory writeBehind(boolean writeBehind)
+    {
+        Engine e = engine;
+        if (writeBehind)
+            return writeBehind(e == null ? null : e.executor);
+        sync();
+        writes = null;
+        return this;
+    }
+    
+    /**
+     * Records the writes made through elements of this factory, <code>set</code>,
+     * <code>add</code>, <code>remove</code> and <code>delAt</code>, instead of making a
+     * LiveConnect call for each. The log is sent to the engine in one call by
+     * {@link #flush()}, and before anything is read through the factory, so that reading an
+     * element always shows the writes made before. Writes that need a read, like
+     * <code>atDel</code>, or that are already a single call, like <code>with</code>, send the
+     * log and run at once.
+     * 
+     * <p>Writes can be recorded from any thread, without locking or waiting. When
+     * <code>flusher</code> is not <code>null</code>, the first write of every batch hands it
+     * a flush, so that passing a task queue of the engine thread, e.g.
+     * <code>Platform::runLater</code>, sends all the writes made until the task runs,
+     * typically once per frame, in one call. The log is only ever sent from the engine
+     * thread, see {@link #engine(Executor)}, which keeps the writes in the order they were
+     * recorded. The JavaScript objects returned by <code>getValue</code> show the pending
+     * writes only once they are flushed.</p>
+     */
+    public NetscapeJsonFactory writeBehind(Executor flusher)
+    {
+        sync();
+        writes = new WriteLog(flusher);
+        return this;
+    }
+    
+    /**
+     * Chooses whether objects and arrays remember what was read from them. With the read
+     * cache on, a member or element read once is returned from Java until something is
+     * written: a write made through this factory, or a write the page makes through an
+     * element handed out by {@link #watch(Json)}, drops all cached reads. Repeated reads of
+     * an unchanged structure, e.g. in a render loop, then do not cross the bridge at all.
+     * 
+     * <p>Writes the page makes to objects it did not get through a watched element are not
+     * seen; call {@link #invalidate()} after those.</p>
+     */
+    public NetscapeJsonFactory readCache(boolean readCache)
+    {
+        this.readCache = readCache;
+        invalidate();
+        return this;
+    }
+    
+    /**
+     * Returns an element over a proxy of the JavaScript object or array of <code>el</code>
+     * that notifies this factory, through {@link #invalidate()}, when the page writes to it
+     * or to any object or array it reads through it. Hand the page the value of the returned
+     * element instead of the original for its writes to drop the cached reads.
+     */
+    public Json watch(Json el)
+    {
+        if (!(el instanceof ObjectJson || el instanceof ArrayJson))
+            throw new IllegalArgumentException("Only objects and arrays living in the engine can be watched: " + el);
+        return wrap((JSObject)call(helpers(), "watch", el.getValue(), this), el.isArray() ? 'a' : 'o');
+    }
+    
+    /**
+     * Drops the reads cached so far. Called by watched objects when the page writes to them.
+     */
+    public void invalidate()
+    {
+        epoch.incrementAndGet();
+    }
+    
+    /**
+     * Counts and times every crossing of the bridge made by elements of this factory in
+     * <code>metrics</code>, or stops counting if it is <code>null</code>. Counting costs a
+     * stack walk per crossing, to find the element method that made it.
+     */
+    public NetscapeJsonFactory metrics(BridgeMetrics metrics)
+    {
+        this.metrics = metrics;
+        return this;
+    }
+    
+    public BridgeMetrics metrics()
+    {
+        return metrics;
+    }
+    
+    /*
+     * Every call into the engine goes through one of these, so that it can be counted.
+     */
+    
+    Object call(JSObject target, String method, Object... args)
+    {
+        BridgeMetrics m = metrics;
+        if (m == null)
+            return cross('c', target, method, args);
+        long start = System.nanoTime();
+        try { return cross('c', target, method, args); }
+        finally { m.record("call " + method, start); }
+    }
+    
+    Object eval(JSObject target, String script)
+    {
+        BridgeMetrics m = metrics;
+        if (m == null)
+            return cross('e', target, script, null);
+        long start = System.nanoTime();
+        try { return cross('e', target, script, null); }
+        finally { m.record("eval", start); }
+    }
+    
+    Object getMember(JSObject target, String name)
+    {
+        BridgeMetrics m = metrics;
+        if (m == null)
+            return cross('g', target, name, null);
+        long start = System.nanoTime();
+        try { return cross('g', target, name, null); }
+        finally { m.record("getMember", start); }
+    }
+    
+    void setMember(JSObject target, String name, Object value)
+    {
+        BridgeMetrics m = metrics;
+        if (m == null)
+        {
+            cross('s', target, name, value);
+            return;
+        }
+        long start = System.nanoTime();
+        try { cross('s', target, name, value); }
+        finally { m.record("setMember", start); }
+    }
+    
+    void removeMember(JSObject target, String name)
+    {
+        BridgeMetrics m = metrics;
+        if (m == null)
+        {
+            cross('r', target, name, null);
+            return;
+        }
+        long start = System.nanoTime();
+        try { cross('r', target, name, null); }
+        finally { m.record("removeMember", start); }
+    }
+    
+    Object getSlot(JSObject target, int index)
+    {
+        BridgeMetrics m = metrics;
+        if (m == null)
+            return cross('g', target, index, null);
+        long start = System.nanoTime();
+        try { return cross('g', target, index, null); }
+        finally { m.record("getSlot", start); }
+    }
+    
+    void setSlot(JSObject target, int index, Object value)
+    {
+        BridgeMetrics m = metrics;
+        if (m == null)
+        {
+            cross('s', target, index, value);
+            return;
+        }
+        long start = System.nanoTime();
+        try { cross('s', target, index, value); }
+        finally { m.record("setSlot", start); }
+    }
+    
+    /**
+     * Makes one <code>JSObject</code> call, on the engine thread if there is one:
+     * <code>op</code> is <code>c</code> to call the method <code>key</code> with the
+     * arguments <code>arg</code>, <code>e</code> to evaluate the script <code>key</code>, and
+     * <code>g</code>, <code>s</code> or <code>r</code> to get, set to <code>arg</code> or
+     * remove the member or slot <code>key</code>.
+     */
+    Object cross(char op, JSObject target, Object key, Object arg)
+    {
+        Engine e = engine;
+        if (e != null && Thread.currentThread() != e.thread)
+            return onEngine(() -> cross(op, target, key, arg));
+        switch (op)
+        {
+        case 'c':
+            return target.call((String)key, (Object[])arg);
+        case 'e':
+            return target.eval((String)key);
+        case 'g':
+            return key instanceof Integer ? target.getSlot((Integer)key) : target.getMember((String)key);
+        case 's':
+            if (key instanceof Integer)
+                target.setSlot((Integer)key, arg);
+            else
+                target.setMember((String)key, arg);
+            return null;
+        case 'r':
+            target.removeMember((String)key);
+            return null;
+        default:
+            throw new IllegalArgumentException("Unknown crossing " + op);
+        }
+    }
+    
+    /**
+     * The JMX view of {@link BridgeMetrics}.
+     */
+    public interface BridgeMetricsMXBean
+    {
+        long getCrossings();
+        long getNanos();
+        /**
+         * Crossings by <code>operation kind</code>, e.g. <code>ObjectJson.at call member</code>
+         * for the <code>member</code> helper called by <code>ObjectJson.at</code>.
+         */
+        Map<String, Long> getCrossingsByOperation();
+        Map<String, Long> getNanosByOperation();
+        void reset();
+    }
+    
+    /**
+     * Counts and times the crossings of the bridge made by the elements of the factories it
+     * is given to, see {@link NetscapeJsonFactory#metrics(BridgeMetrics)}. Each crossing is
+     * filed under the element or factory method that made it, and under what it was:
+     * <code>eval</code>, <code>getMember</code>, <code>setMember</code>,
+     * <code>removeMember</code>, <code>getSlot</code>, <code>setSlot</code> or
+     * <code>call</code> followed by the name of the function called.
+     * 
+     * <p>Counters only go up until {@link #reset()}, so that they can be exported as is, to
+     * JMX with {@link #register(String)} or to a metrics library reading them as function
+     * counters. Tests can bound the crossings of a piece of code with
+     * {@link #assertAtMost(long, Runnable)}.</p>
+     */
+    public static class BridgeMetrics implements BridgeMetricsMXBean
+    {
+        final ConcurrentHashMap<String, LongAdder[]> counters = new ConcurrentHashMap<String, LongAdder[]>();
+        
+        void record(String kind, long start)
+        {
+            long nanos = System.nanoTime() - start;
+            String key = caller() + " " + kind;
+            LongAdder[] counter = counters.get(key);
+            if (counter == null)
+            {
+                LongAdder[] created = { new LongAdder(), new LongAdder() };
+                counter = counters.putIfAbsent(key, created);
+                if (counter == null)
+                    counter = created;
+            }
+            counter[0].increment();
+            counter[1].add(nanos);
+        }
+        
+        /**
+         * The outermost method of the factory or its elements on the stack, e.g.
+         * <code>ObjectJson.at</code>.
+         */
+        static String caller()
+        {
+            String factory = NetscapeJsonFactory.class.getName();
+            StackTraceElement found = null;
+            for (StackTraceElement frame : new Throwable().getStackTrace())
+            {
+                String className = frame.getClassName();
+                if (className.equals(factory) || className.startsWith(factory + "$"))
+                    found = frame;
+                else if (found != null)
+                    break;
+            }
+            String className = found.getClassName();
+            return className.substring(className.lastIndexOf('$') + 1) + "." + found.getMethodName();
+        }
+        
+        private static long sum(Map<String, LongAdder[]> counters, int which)
+        {
+            long total = 0;
+            for (LongAdder[] counter : counters.values())
+                total += counter[which].sum();
+            return total;
+        }
+        
+        private static Map<String, Long> byOperation(Map<String, LongAdder[]> counters, int which)
+        {
+            Map<String, Long> m = new TreeMap<String, Long>();
+            for (Map.Entry<String, LongAdder[]> e : counters.entrySet())
+                m.put(e.getKey(), e.getValue()[which].sum());
+            return m;
+        }
+        
+        public long getCrossings() { return sum(counters, 0); }
+        public long getNanos() { return sum(counters, 1); }
+        public Map<String, Long> getCrossingsByOperation() { return byOperation(counters, 0); }
+        public Map<String, Long> getNanosByOperation() { return byOperation(counters, 1); }
+        public void reset() { counters.clear(); }
+        
+        /**
+         * Registers these metrics with the platform MBean server as
+         * <code>mjson.nsjsobject:type=BridgeMetrics,name=</code><code>name</code>.
+         */
+        public ObjectName register(String name) throws JMException
+        {
+            ObjectName objectName = new ObjectName("mjson.nsjsobject:type=BridgeMetrics,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            return objectName;
+        }
+        
+        /**
+         * Runs <code>work</code> and returns the crossings made by operation while it ran,
+         * leaving out the operations that made none.
+         */
+        public Map<String, Long> crossings(Runnable work)
+        {
+            Map<String, Long> before = getCrossingsByOperation();
+            work.run();
+            Map<String, Long> made = getCrossingsByOperation();
+            for (Iterator<Map.Entry<String, Long>> i = made.entrySet().iterator(); i.hasNext(); )
+            {
+                Map.Entry<String, Long> e = i.next();
+                Long previous = before.get(e.getKey());
+                e.setValue(e.getValue() - (previous == null ? 0 : previous));
+                if (e.getValue() == 0)
+                    i.remove();
+            }
+            return made;
+        }
+        
+        /**
+         * Runs <code>work</code> and fails with an <code>AssertionError</code> listing the
+         * crossings it made by operation if there were more than <code>budget</code>.
+         */
+        public void assertAtMost(long budget, Runnable work)
+        {
+            Map<String, Long> made = crossings(work);
+            long total = 0;
+            for (long count : made.values())
+                total += count;
+            if (total > budget)
+                throw new AssertionError("Expected at most " + budget + " bridge crossings, but there were " + total + ": " + made);
+        }
+    }
+    
+    /**
+     * Reads one member with a single call, <code>null</code> if it is undefined.
+     */
+    Json member(JSObject object, String property)
+    {
+        Object value = call(helpers(), "member", object, property);
+        if (none == null)
+            none = (JSObject)getMember(injected(), "none");
+        return none.equals(value) ? null : make(value);
+    }
+    
+    /**
+     * Sends the writes recorded in write-behind mode to the engine in one call per
+     * {@link #HANDLES_PER_CALL} objects they involve.
+     */
+    public void flush()
+    {
+        sync();
+    }
+    
+    void sync()
+    {
+        WriteLog log = writes;
+        if (log != null)
+            log.flush();
+    }
+    
+    /**
+     * Copies a Java side JSON structure into the JavaScript engine with a single
+     * <code>JSON.parse</code> call and returns the resulting element. Elements already
+     * living in the engine and primitives are returned as they are.
+     */
+    public Json importJson(Json json)
+    {
+        if (json instanceof ObjectJson || json instanceof ArrayJson || !(json.isObject() || json.isArray()))
+            return json;
+        return make(toJs(json));
+    }
+    
+    /**
+     * Returns a deep copy of <code>json</code> that is only made once it is modified. Until
+     * then, the copy and every element reached through it read the original, so taking a
+     * snapshot of a large structure that is mostly read costs no bridge call at all. The
+     * first modification of any element of the copy clones the whole structure inside the
+     * engine in one call.
+     * 
+     * <p>Only modifications made through the copy are detected. Changes made to the original,
+     * through other <code>Json</code> elements or by scripts in the page, are visible through
+     * the copy until it is first modified.</p>
+     */
+    public Json copyOnWrite(Json json)
+    {
+        if (json instanceof ObjectJson)
+            return new LazyObjectJson(new CopyOnWrite(((ObjectJson)json).object), new Object[0]);
+        else if (json instanceof ArrayJson)
+            return new LazyArrayJson(new CopyOnWrite(((ArrayJson)json).array), new Object[0]);
+        else
+            return json.dup();
+    }
+    
+    /**
+     * Returns the RFC 6902 JSON Patch turning <code>from</code> into <code>to</code>, as a
+     * Java side array of <code>add</code>, <code>remove</code> and <code>replace</code>
+     * operations. Objects are compared member by member and arrays element by element,
+     * after leaving out the elements they start and end with in common, so that inserting
+     * or removing elements at one place is a few operations. Elements living in the engine
+     * are read with one call each before comparing.
+     */
+    public static Json diff(Json from, Json to)
+    {
+        StringBuilder patch = new StringBuilder("[");
+        diff(local(from), local(to), "", patch);
+        return readLocal(patch.append(']').toString());
+    }
+    
+    /**
+     * Applies an RFC 6902 JSON Patch, e.g. one made by {@link #diff(Json, Json)}, to an
+     * object or array living in the engine, in a single call. A failed <code>test</code>
+     * operation fails the call, leaving the operations before it applied.
+     * 
+     * @return <code>target</code>
+     */
+    public Json patch(Json target, Json patch)
+    {
+        if (!(target instanceof ObjectJson || target instanceof ArrayJson))
+            throw new IllegalArgumentException("Only objects and arrays living in the engine can be patched: " + target);
+        if (!patch.asJsonList().isEmpty())
+        {
+            call(helpers(), "patch", target.getValue(), patch.toString());
+            invalidate();
+        }
+        return target;
+    }
+    
+    /**
+     * Copies <code>model</code> into the engine with a single call and returns a
+     * {@link Mirror} keeping the copy in step with it.
+     */
+    public Mirror mirror(Json model)
+    {
+        return new Mirror(model);
+    }
+    
+    /**
+     * An object or array living in the engine that follows a model, typically a Java side
+     * one. The mirror remembers the state it last copied, so that {@link #update(Json)} finds
+     * the changes without reading the engine and sends them as one JSON Patch: syncing a
+     * large model of which a few values changed is one small call.
+     */
+    public class Mirror
+    {
+        final Json element;
+        Json synced;
+        
+        Mirror(Json model)
+        {
+            synced = local(model);
+            element = importJson(model);
+        }
+        
+        /**
+         * The engine side copy of the model.
+         */
+        public Json element()
+        {
+            return element;
+        }
+        
+        /**
+         * Brings the engine side copy in step with <code>model</code> and returns the patch
+         * that was applied, which is empty if nothing changed. Changes made to the copy from
+         * the page are not seen and are overwritten only where the model changed.
+         */
+        public Json update(Json model)
+        {
+            StringBuilder patch = new StringBuilder("[");
+            diff(synced, model, "", patch);
+            String text = patch.append(']').toString();
+            if (text.length() > 2)
+            {
+                call(helpers(), "patch", element.getValue(), text);
+                invalidate();
+            }
+            synced = local(model);
+            return readLocal(text);
+        }
+    }
+    
+    /**
+     * A Java side deep copy of an element, read with one call if it lives in the engine.
+     */
+    static Json local(Json el)
+    {
+        if (el instanceof ObjectJson || el instanceof ArrayJson)
+            return readLocal(el.toString());
+        else
+            return el.dup();
+    }
+    
+    static void diff(Json from, Json to, String path, StringBuilder patch)
+    {
+        if (from.isObject() && to.isObject())
+        {
+            Map<String, Json> before = from.asJsonMap();
+            Map<String, Json> after = to.asJsonMap();
+            for (String name : before.keySet())
+                if (!after.containsKey(name))
+                    operation(patch, "remove", path + "/" + token(name), null);
+            for (Map.Entry<String, Json> e : after.entrySet())
+            {
+                Json old = before.get(e.getKey());
+                if (old == null)
+                    operation(patch, "add", path + "/" + token(e.getKey()), e.getValue());
+                else
+                    diff(old, e.getValue(), path + "/" + token(e.getKey()), patch);
+            }
+        }
+        else if (from.isArray() && to.isArray())
+        {
+            List<Json> before = from.asJsonList();
+            List<Json> after = to.asJsonList();
+            int start = 0, beforeEnd = before.size(), afterEnd = after.size();
+            while (start < beforeEnd && start < afterEnd && before.get(start).equals(after.get(start)))
+                start++;
+            while (beforeEnd > start && afterEnd > start && before.get(beforeEnd - 1).equals(after.get(afterEnd - 1)))
+            {
+                beforeEnd--;
+                afterEnd--;
+            }
+            int common = Math.min(beforeEnd, afterEnd) - start;
+            for (int i = start; i < start + common; i++)
+                diff(before.get(i), after.get(i), path + "/" + i, patch);
+            for (int i = beforeEnd - 1; i >= start + common; i--)
+                operation(patch, "remove", path + "/" + i, null);
+            for (int i = start + common; i < afterEnd; i++)
+                operation(patch, "add", path + "/" + i, after.get(i));
+        }
+        else if (!from.equals(to))
+            operation(patch, "replace", path, to);
+    }
+    
+    private static String token(String name)
+    {
+        return name.replace("~", "~0").replace("/", "~1");
+    }
+    
+    private static void operation(StringBuilder patch, String op, String path, Json value)
+    {
+        if (patch.length() > 1)
+            patch.append(',');
+        patch.append("{\"op\":\"").append(op).append("\",\"path\":\"").append(Json.help.escape(path)).append('"');
+        if (value != null)
+            patch.append(",\"value\":").append(value.toString());
+        patch.append('}');
+    }
+    
+    JSObject cloneJs(JSObject value)
+    {
+        return (JSObject)call(helpers(), "clone", value);
+    }
+    
+    /**
+     * The value to hand to the engine for an element: the wrapped JavaScript object, a
+     * parsed copy of a Java side object or array, or the primitive value.
+     */
+    Object toJs(Json el)
+    {
+        if (el == null)
+            return null;
+        else if (el instanceof ObjectJson || el instanceof ArrayJson)
+            return el.getValue();
+        else if (el.isObject() || el.isArray())
+            return call(helpers(), "parse", el.toString());
+        else
+            return el.getValue();
+    }
+    
+    String stringify(JSObject value, int maxCharacters)
+    {
+        return (String)call(helpers(), "stringify", value, maxCharacters);
+    }
+    
+    /**
+     * Returns the wrapper of a JavaScript object, reusing the one handed out before if it is
+     * still around.
+     * 
+     * @param kind <code>'a'</code> or <code>'o'</code> when the caller already knows whether
+     * the value is an array, 0 to ask the engine
+     */
+    Json wrap(JSObject x, char kind)
+    {
+        synchronized (wrappers)
+        {
+            WeakReference<Json> ref = wrappers.get(x);
+            Json wrapper = ref == null ? null : ref.get();
+            if (wrapper != null)
+                return wrapper;
+        }
+        if (kind == 0)
+            kind = ((String)call(helpers(), "kind", x)).charAt(0);
+        Json wrapper = kind == 'a' ? new ArrayJson(x) : new ObjectJson(x);
+        synchronized (wrappers)
+        {
+            wrappers.put(x, new WeakReference<Json>(wrapper));
+        }
+        return wrapper;
+    }
+    
+    /**
+     * The injected helpers. Since every helper call reads or writes the engine at once, the
+     * pending writes are sent before.
+     */
+    JSObject helpers()
+    {
+        sync();
+        return injected();
+    }
+    
+    JSObject injected()
+    {
+        JSObject injected = helpers;
+        if (injected != null)
+            return injected;
+        // on the engine thread, so that two threads do not inject them twice
+        return onEngine(() -> {
+            if (helpers == null)
+                helpers = (JSObject)eval(global, HELPERS);
+            return helpers;
+        });
+    }
+    
+    /**
+     * The writes of write-behind mode. Threads add to a lock-free queue; a flush drains it on
+     * the engine thread into the JSON text and handle arguments of the <code>apply</code>
+     * helper, passing each JavaScript object once per call however many writes involve it,
+     * and closing a call once it has {@link #HANDLES_PER_CALL} handles.
+     */
+    class WriteLog
+    {
+        final Executor flusher;
+        final ConcurrentLinkedQueue<Write> pending = new ConcurrentLinkedQueue<Write>();
+        // whether a flush was handed to the flusher and has not started draining yet
+        final AtomicBoolean scheduled = new AtomicBoolean();
+        
+        WriteLog(Executor flusher)
+        {
+            this.flusher = flusher;
+        }
+        
+        /**
+         * Records a write of <code>el</code>, which may be <code>null</code> for writes
+         * without a value, to the <code>key</code> of <code>target</code>.
+         */
+        void record(char op, JSObject target, Object key, Json el)
+        {
+            // read the handle of an engine side value first, a copy-on-write one may flush
+            Object value = el instanceof ObjectJson || el instanceof ArrayJson ? el.getValue() : null;
+            String keyText = key instanceof String ? '"' + Json.help.escape((String)key) + '"' : String.valueOf(key);
+            String valueText = value != null ? null : el == null ? "null" : el.toString();
+            pending.add(new Write(op, target, keyText, (JSObject)value, valueText));
+            invalidate();
+            if (flusher != null && scheduled.compareAndSet(false, true))
+                flusher.execute(NetscapeJsonFactory.this::flush);
+        }
+        
+        void flush()
+        {
+            if (pending.isEmpty())
+                return;
+            onEngine(() -> {
+                drain();
+                return null;
+            });
+        }
+        
+        private void drain()
+        {
+            // a write recorded from now on is left for another flush
+            scheduled.set(false);
+            StringBuilder ops = new StringBuilder("[");
+            List<Object> args = new ArrayList<Object>();
+            Map<JSObject, Integer> handles = new HashMap<JSObject, Integer>();
+            args.add(null);
+            for (Write w = pending.poll(); w != null; w = pending.poll())
+            {
+                if (ops.length() > 1)
+                    ops.append(',');
+                ops.append("[\"").append(w.op).append("\",").append(handle(w.target, args, handles)).append(',').append(w.key);
+                if (w.value != null)
+                    ops.append(',').append(handle(w.value, args, handles)).append(",null]");
+                else
+                    ops.append(",0,").append(w.text).append(']');
+                if (args.size() > HANDLES_PER_CALL)
+                {
+                    send(ops, args);
+                    handles.clear();
+                }
+            }
+            if (ops.length() > 1)
+                send(ops, args);
+        }
+        
+        private int handle(JSObject object, List<Object> args, Map<JSObject, Integer> handles)
+        {
+            Integer position = handles.get(object);
+            if (position == null)
+            {
+                position = args.size();
+                args.add(object);
+                handles.put(object, position);
+            }
+            return position;
+        }
+        
+        private void send(StringBuilder ops, List<Object> args)
+        {
+            args.set(0, ops.append(']').toString());
+            call(injected(), "apply", args.toArray());
+            ops.setLength(1);
+            args.subList(1, args.size()).clear();
+        }
+    }
+    
+    /**
+     * One write of a {@link WriteLog}, its key and primitive value already as JSON text.
+     */
+    static final class Write
+    {
+        final char op;
+        final JSObject target;
+        final String key;
+        final JSObject value;
+        final String text;
+        
+        Write(char op, JSObject target, String key, JSObject value, String text)
+        {
+            this.op = op;
+            this.target = target;
+            this.key = key;
+            this.value = value;
+            this.text = text;
+        }
+    }
+    
+    /**
+     * Parses JSON text produced by a helper into Java side elements, regardless of which
+     * factory is attached to the current thread.
+     */
+    static Json readLocal(String text)
+    {
+        Json.Factory previous = Json.factory();
+        if (previous == Json.defaultFactory)
+            return Json.read(text);
+        Json.attachFactory(Json.defaultFactory);
+        try
+        {
+            return Json.read(text);
+        }
+        finally
+        {
+            Json.detachFactory();
+            if (Json.factory() != previous)
+                Json.attachFactory(previous);
+        }
+    }
+    
+    /**
+     * Reads all elements of a JavaScript array with a single call of the
+     * <code>elements</code> helper, plus one <code>getSlot</code> per object or array element.
+     */
+    List<Json> elements(JSObject array)
+    {
+        JSObject result = (JSObject)call(helpers(), "elements", array);
+        Json payload = readLocal((String)getSlot(result, 0));
+        List<Json> values = payload.at(0).asJsonList();
+        String kinds = payload.at(1).asString();
+        List<Json> L = new ArrayList<Json>(kinds.length());
+        for (int i = 0, handle = 1; i < kinds.length(); i++)
+        {
+            char kind = kinds.charAt(i);
+            if (kind == 'p')
+                L.add(make(values.get(i).getValue()));
+            else
+                L.add(wrap((JSObject)getSlot(result, handle++), kind));
+        }
+        return L;
+    }
+    
+    /**
+     * Pushes <code>elements</code> onto a JavaScript array with the <code>append</code> helper,
+     * or replaces its content with them if <code>helper</code> is <code>replace</code>. Java
+     * side elements travel as JSON text, engine side ones as handles, so this is one call
+     * unless there are more than {@link #HANDLES_PER_CALL} engine side elements.
+     */
+    void store(String helper, JSObject array, List<Json> elements)
+    {
+        StringBuilder values = new StringBuilder("[[");
+        StringBuilder kinds = new StringBuilder();
+        List<Object> args = new ArrayList<Object>();
+        args.add(array);
+        args.add(null);
+        for (Json el : elements)
+        {
+            if (kinds.length() > 0)
+                values.append(',');
+            if (el instanceof ObjectJson || el instanceof ArrayJson)
+            {
+                values.append("null");
+                kinds.append('h');
+                args.add(toJs(el));
+            }
+            else
+            {
+                values.append(el == null ? "null" : el.toString());
+                kinds.append('p');
+            }
+            if (args.size() - 2 == HANDLES_PER_CALL)
+            {
+                flush(helper, values, kinds, args);
+                helper = "append";
+            }
+        }
+        if (kinds.length() > 0 || !"append".equals(helper))
+            flush(helper, values, kinds, args);
+    }
+    
+    private void flush(String helper, StringBuilder values, StringBuilder kinds, List<Object> args)
+    {
+        values.append("],\"").append(kinds).append("\"]");
+        args.set(1, values.toString());
+        call(helpers(), helper, args.toArray());
+        values.setLength(2);
+        kinds.setLength(0);
+        args.subList(2, args.size()).clear();
+    }
+    
+    /**
+     * Reads all properties of a JavaScript object with a single call of the
+     * <code>entries</code> helper, plus one <code>getSlot</code> per object or array value.
+     */
+    Map<String, Json> entries(JSObject object)
+    {
+        JSObject result = (JSObject)call(helpers(), "entries", object);
+        Json payload = readLocal((String)getSlot(result, 0));
+        List<Json> names = payload.at(0).asJsonList();
+        List<Json> values = payload.at(1).asJsonList();
+        String kinds = payload.at(2).asString();
+        Map<String, Json> m = new LinkedHashMap<String, Json>(kinds.length() * 4 / 3 + 1);
+        for (int i = 0, handle = 1; i < kinds.length(); i++)
+        {
+            char kind = kinds.charAt(i);
+            Json value;
+            if (kind == 'p')
+                value = make(values.get(i).getValue());
+            else
+                value = wrap((JSObject)getSlot(result, handle++), kind);
+            m.put(names.get(i).asString(), value);
+        }
+        return m;
+    }
+    
     class ObjectJson extends Json
     {
         private static final long serialVersionUID = 1L;
         
         JSObject object;
+        // reads cached for object at epoch cacheEpoch, all members if complete is set
+        Map<String, Json> cache;
+        Map<String, Json> complete;
+        JSObject cachedObject;
+        long cacheEpoch;
         
-        ObjectJson() { object = (JSObject)global.eval("new Object()"); }
-        ObjectJson(Json e) { super(e); object = (JSObject)global.eval("new Object()"); }
+        ObjectJson() { object = (JSObject)eval(global, "new Object()"); }
+        ObjectJson(Json e) { super(e); object = (JSObject)eval(global, "new Object()"); }
         ObjectJson(JSObject object) { this.object = object; }
         
-        Set<String> propertyNames() 
-        {
-            final JSObject propertyNames = (JSObject)object.eval("Object.getOwnPropertyNames(this)");
-            final int length = (Integer)propertyNames.getMember("length");
-            Set<String> S = new HashSet<String>();
-            for (int i = 0; i < length; i++)
-                S.add((String)propertyNames.getSlot(i));
-            return S;
-        }
-            
         public Json dup() 
         { 
-            ObjectJson j = new ObjectJson();
-            propertyNames().forEach(name -> {
-                Json v =  at(name).dup();
-                j.set(name, v);        
-            });
-            return j;
+            return new ObjectJson(cloneJs(object));
+        }
+        
+        /**
+         * The reads cached for the current object, emptied when the factory's epoch moved.
+         */
+        Map<String, Json> cache()
+        {
+            long current = epoch.get();
+            if (cache == null || cacheEpoch != current || cachedObject != object)
+            {
+                cache = new HashMap<String, Json>();
+                complete = null;
+                cachedObject = object;
+                cacheEpoch = current;
+            }
+            return cache;
+        }
+        
+        Map<String, Json> members()
+        {
+            if (!readCache)
+                return entries(object);
+            Map<String, Json> c = cache();
+            if (complete == null)
+            {
+                complete = entries(object);
+                c.putAll(complete);
+            }
+            return new LinkedHashMap<String, Json>(complete);
         }
         
         public boolean has(String property)
         {
-            // based on this: https://developer.mozilla.org/en-US/docs/Archive/Web/LiveConnect/LiveConnect_Overview#Undefined_Values
-            // "The value is converted to an instance of java.lang.String whose value is the string "undefined"."
-            // and this: http://mail.openjdk.java.net/pipermail/nashorn-dev/2015-March/004418.html
-            return !object
-                    .eval(String.format("typeof this['%s']", property))
-                    .equals("undefined");
+            // typeof in the engine, since LiveConnect reads an undefined member as the
+            // string "undefined": https://developer.mozilla.org/en-US/docs/Archive/Web/LiveConnect/LiveConnect_Overview#Undefined_Values
+            if (readCache)
+                return at(property) != null;
+            return (Boolean)call(helpers(), "has", object, property);
         }
         
         public boolean is(String property, Object value) 
@@ -107,10 +1410,16 @@ public class NetscapeJsonFactory extends Json.DefaultFactory implements java.io.
         
         public Json at(String property)
         {
-            if (has(property))
-                return make(object.getMember(property));
-            else
-                return null;
+            if (!readCache)
+                return member(object, property);
+            Map<String, Json> c = cache();
+            Json value = c.get(property);
+            if (value == null && complete == null && !c.containsKey(property))
+            {
+                value = member(object, property);
+                c.put(property, value);
+            }
+            return value;
         }
 
         protected Json withOptions(Json other, Json allOptions, String path)
@@ -158,62 +1467,52 @@ public class NetscapeJsonFactory extends Json.DefaultFactory implements java.io.
         {
             if (property == null)
                 throw new IllegalArgumentException("Null property names are not allowed, value is " + el);
-            Object value = el == null ? null : el.getValue();
-            object.setMember(property, value);
+            WriteLog log = writes;
+            if (log != null)
+                log.record('s', object, property, el);
+            else
+            {
+                setMember(object, property, toJs(el));
+                invalidate();
+            }
             return this;
         }
 
         public Json atDel(String property) 
         {
             Json value = at(property);
-            object.removeMember(property);
+            delAt(property);
             return value;
         }
         
         public Json delAt(String property) 
         {
-            object.removeMember(property);
+            WriteLog log = writes;
+            if (log != null)
+                log.record('d', object, property, null);
+            else
+            {
+                removeMember(object, property);
+                invalidate();
+            }
             return this;
         }
         
         public Object getValue() { return this.object; }
         public boolean isObject() { return true; }
         
-        /*
-        private void recurseMap(Map<String, Object> map, IdentityHashMap<Object, Json> done)
-        {
-            for (String name : propertyNames())
-            {
-                Object value = _getMember(name);
-                Json asjson = done.get(value);
-                if (asjson == null)
-                {
-                    asjson = make(value);
-                    done.put(value, asjson);
-                }
-                map.put(name, value);
-            }           
-        } */
-        
         public Map<String, Object> asMap() 
         {
             HashMap<String, Object> m = new HashMap<String, Object>();
-            for (String name : propertyNames())
-            {
-                Json value = at(name);
-                m.put(name, value.getValue());
-            }
-//          recurseMap(m, new IdentityHashMap<Object, Json>());
+            for (Map.Entry<String, Json> e : members().entrySet())
+                m.put(e.getKey(), e.getValue().getValue());
             return m;
         }
         
         @Override
         public Map<String, Json> asJsonMap() 
         { 
-            HashMap<String, Json> m = new HashMap<String, Json>();
-            for (String name : propertyNames())
-                m.put(name, at(name));
-            return m; 
+            return members(); 
         }
         
         public String toString()
@@ -223,11 +1522,14 @@ public class NetscapeJsonFactory extends Json.DefaultFactory implements java.io.
         
         public String toString(int maxCharacters)
         {
+            if (nativeStringify)
+                return stringify(object, maxCharacters);
             StringBuilder sb = new StringBuilder("{");
-            for (Iterator<String> i = propertyNames().iterator(); i.hasNext(); )
+            for (Iterator<Map.Entry<String, Json>> i = members().entrySet().iterator(); i.hasNext(); )
             {
-                String name = i.next();
-                Json value = at(name);      
+                Map.Entry<String, Json> e = i.next();
+                String name = e.getKey();
+                Json value = e.getValue();
                 sb.append('"');             
                 sb.append(Json.help.escape(name));
                 sb.append('"');
@@ -259,40 +1561,84 @@ public class NetscapeJsonFactory extends Json.DefaultFactory implements java.io.
         private static final long serialVersionUID = 1L;
         
         JSObject array;
+        // the elements of cachedArray read at epoch cacheEpoch
+        List<Json> cache;
+        JSObject cachedArray;
+        long cacheEpoch;
         
-        ArrayJson() { array = (JSObject)global.eval("[]"); }
-        ArrayJson(Json e) { super(e); array = (JSObject)global.eval("[]"); }
+        ArrayJson() { array = (JSObject)eval(global, "[]"); }
+        ArrayJson(Json e) { super(e); array = (JSObject)eval(global, "[]"); }
         ArrayJson(JSObject array) { this.array = array; }
         
-        int length() { return  (Integer)array.getMember("length"); }
+        /**
+         * All elements, read with one call and kept until the factory's epoch moves.
+         */
+        List<Json> cache()
+        {
+            long current = epoch.get();
+            if (cache == null || cacheEpoch != current || cachedArray != array)
+            {
+                cache = elements(array);
+                cachedArray = array;
+                cacheEpoch = current;
+            }
+            return cache;
+        }
+        
+        int length()
+        {
+            if (readCache)
+                return cache().size();
+            sync();
+            return (Integer)getMember(array, "length");
+        }
 
         public Json dup() 
         { 
-            ArrayJson j = new ArrayJson();
-            for (int i = 0; i < length(); i++)
-            {
-                Json v = at(i);
-                j.add(v.dup());
-            }
-            return j;
+            return new ArrayJson(cloneJs(array));
         }
         
         public Json set(int index, Object value) 
         { 
-            array.setSlot(index, make(value).getValue());
+            WriteLog log = writes;
+            if (log != null)
+                log.record('s', array, index, make(value));
+            else
+            {
+                setSlot(array, index, toJs(make(value)));
+                invalidate();
+            }
             return this;
         }
         
+        /**
+         * Returns a read-only view of the array. Its length is read once, when the view is
+         * created, and elements are fetched from the JavaScript array only when accessed, so
+         * <code>size()</code> or a single <code>get(i)</code> does not copy the array.
+         */
         public List<Json> asJsonList() 
         { 
-            ArrayList<Json> L = new ArrayList<Json>();
-            for (int i = 0; i < length(); i++)
-                L.add(at(i));
-            return L; 
+            return new ListView(length());
+        }
+        
+        class ListView extends AbstractList<Json> implements RandomAccess
+        {
+            final int length;
+            
+            ListView(int length) { this.length = length; }
+            
+            public Json get(int index)
+            {
+                if (index < 0 || index >= length)
+                    throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + length);
+                return at(index);
+            }
+            
+            public int size() { return length; }
         }
         public List<Object> asList() 
         {
-            return asJsonList().stream().map(Json::getValue).collect(Collectors.toList());
+            return (readCache ? cache() : elements(array)).stream().map(Json::getValue).collect(Collectors.toList());
         }
         public boolean is(int index, Object value) 
         { 
@@ -303,45 +1649,65 @@ public class NetscapeJsonFactory extends Json.DefaultFactory implements java.io.
         }               
         public Object getValue() { return array; }
         public boolean isArray() { return true; }
-        public Json at(int index) { return make(array.getSlot(index)); }
+        public Json at(int index)
+        {
+            if (readCache)
+            {
+                List<Json> c = cache();
+                if (index >= 0 && index < c.size())
+                    return c.get(index);
+            }
+            sync();
+            return make(getSlot(array, index));
+        }
+        
         public Json add(Json el) 
         { 
-            array.call("push", el.getValue()); 
+            WriteLog log = writes;
+            if (log != null)
+                log.record('p', array, null, el);
+            else
+            {
+                call(array, "push", toJs(el)); 
+                invalidate();
+            }
             //el.enclosing = this; 
             return this; 
         }
         
         public Json remove(Json el) 
         { 
-            Object value = el.getValue();
-            Integer i = (Integer)array.call("indexOf", value);
-            if (i > -1)
-                array.call("splice", i, 1);
-            return this; 
-        }
-
-        boolean isEqualJson(Json left, Json right)
-        {
-            if (left == null)
-                return right == null;
+            WriteLog log = writes;
+            if (log != null)
+                log.record('x', array, null, el);
             else
-                return left.equals(right);
+            {
+                call(helpers(), "remove", array, toJs(el));
+                invalidate();
+            }
+            return this; 
         }
 
-        boolean isEqualJson(Json left, Json right, Json fields)
+        /**
+         * The <code>compareBy</code> option as the JSON array of pointers the
+         * <code>merge</code> helper expects.
+         */
+        String pointers(Json fields)
         {
             if (fields.isNull())
-                return left.equals(right);
+                return "null";
             else if (fields.isString())
-                return isEqualJson(Json.help.resolvePointer(fields.asString(), left),
-                                   Json.help.resolvePointer(fields.asString(), right));
+                return "[\"" + Json.help.escape(fields.asString()) + "\"]";
             else if (fields.isArray())
             {
+                StringBuilder sb = new StringBuilder("[");
                 for (Json field : fields.asJsonList())
-                    if (!isEqualJson(Json.help.resolvePointer(field.asString(), left),
-                            Json.help.resolvePointer(field.asString(), right)))
-                        return false;
-                return true;
+                {
+                    if (sb.length() > 1)
+                        sb.append(',');
+                    sb.append('"').append(Json.help.escape(field.asString())).append('"');
+                }
+                return sb.append(']').toString();
             }
             else
                 throw new IllegalArgumentException("Compare by options should be either a property name or an array of property names: " + fields);
@@ -381,44 +1747,40 @@ public class NetscapeJsonFactory extends Json.DefaultFactory implements java.io.
             Json compareBy = opts.at("compareBy", nil());
             if (opts.is("sort", true))
             {
+                List<Json> these = elements(this.array);
+                List<Json> those = array instanceof ArrayJson ? elements(((ArrayJson)array).array) : array.asJsonList();
+                List<Json> merged = new ArrayList<Json>(these.size() + those.size());
                 int thisIndex = 0, thatIndex = 0;
-                while (thatIndex < array.asJsonList().size())
+                while (thatIndex < those.size())
                 {
-                    Json thatElement = array.at(thatIndex);
-                    if (thisIndex == length())
+                    Json thatElement = those.get(thatIndex);
+                    if (thisIndex == these.size())
                     {
-                        add(dup ? thatElement.dup() : thatElement);
-                        thisIndex++;
+                        merged.add(dup ? thatElement.dup() : thatElement);
                         thatIndex++;
                         continue;
                     }
-                    int compared = compareJson(at(thisIndex), thatElement, compareBy);
+                    int compared = compareJson(these.get(thisIndex), thatElement, compareBy);
                     if (compared < 0) // this < that
-                        thisIndex++;
+                        merged.add(these.get(thisIndex++));
                     else if (compared > 0) // this > that
                     {
-                        this.array.call("splice", thisIndex, dup ? thatElement.dup().getValue() : thatElement.getValue());
+                        merged.add(dup ? thatElement.dup() : thatElement);
                         thatIndex++;
                     } else { // equal, ignore 
                         thatIndex++;
                     }
                 }
+                merged.addAll(these.subList(thisIndex, these.size()));
+                store("replace", this.array, merged);
             }
             else
             {
-                for (Json thatElement : array.asJsonList())
-                {
-                    boolean present = false;
-                    for (Json thisElement : asJsonList())
-                        if (isEqualJson(thisElement, thatElement, compareBy))
-                        {
-                            present = true;
-                            break;
-                        }
-                    if (!present)
-                        add(dup ? thatElement.dup() : thatElement);
-                }
+                // a Java side array is copied in by toJs already, there is nothing left to dup
+                boolean inEngine = array instanceof ArrayJson;
+                call(helpers(), "merge", this.array, toJs(array), pointers(compareBy), dup && inEngine);
             }
+            invalidate();
             return this;
         }
 
@@ -432,22 +1794,31 @@ public class NetscapeJsonFactory extends Json.DefaultFactory implements java.io.
                 Json O = collectWithOptions(options);
                 return withOptions(object, O, "");
             }
+            else if (object instanceof ArrayJson)
+                call(helpers(), "appendArray", array, ((ArrayJson)object).array);
             else
-            {
-                ((JSObject)array.getMember("push")).call("apply", array, ((ArrayJson)object).array);
-            }
+                store("append", array, object.asJsonList());
+            invalidate();
             return this;
         }
         
         public Json atDel(int index) 
         { 
-            Object el = array.getSlot(index); 
-            return make(el); 
+            Json value = make(call(helpers(), "removeAt", array, index)); 
+            invalidate();
+            return value;
         }
         
         public Json delAt(int index) 
         { 
-            array.getSlot(index); 
+            WriteLog log = writes;
+            if (log != null)
+                log.record('r', array, index, null);
+            else
+            {
+                call(helpers(), "removeAt", array, index); 
+                invalidate();
+            }
             return this; 
         }
         
@@ -458,8 +1829,10 @@ public class NetscapeJsonFactory extends Json.DefaultFactory implements java.io.
         
         public String toString(int maxCharacters) 
         {
+            if (nativeStringify)
+                return stringify(array, maxCharacters);
             StringBuilder sb = new StringBuilder("[");          
-            for (Iterator<Json> i = asJsonList().iterator(); i.hasNext(); )
+            for (Iterator<Json> i = elements(array).iterator(); i.hasNext(); )
             {
                 String s = i.next().toString(maxCharacters);
                 if (sb.length() + s.length() > maxCharacters)
@@ -485,6 +1858,188 @@ public class NetscapeJsonFactory extends Json.DefaultFactory implements java.io.
         }       
     }
 
+    /**
+     * The state shared by all elements of a {@link #copyOnWrite(Json)} copy: the JavaScript
+     * value it was taken from and, after the first modification, the engine side clone.
+     * Elements are found in the clone by their path, which only holds until the clone is
+     * modified: those handed out before are moved to the clone right after it is made, and
+     * those read from it afterwards are plain elements of the clone.
+     */
+    class CopyOnWrite
+    {
+        final JSObject source;
+        JSObject copy;
+        // the elements handed out while reading the source, not kept alive by the list
+        List<WeakReference<Json>> handed = new ArrayList<WeakReference<Json>>();
+        int pruneAt = 64;
+        
+        CopyOnWrite(JSObject source) { this.source = source; }
+        
+        void hand(Json element)
+        {
+            if (handed.size() >= pruneAt)
+            {
+                for (Iterator<WeakReference<Json>> i = handed.iterator(); i.hasNext(); )
+                    if (i.next().get() == null)
+                        i.remove();
+                pruneAt = Math.max(64, handed.size() * 2);
+            }
+            handed.add(new WeakReference<Json>(element));
+        }
+        
+        void materialize()
+        {
+            if (copy != null)
+                return;
+            copy = cloneJs(source);
+            for (WeakReference<Json> ref : handed)
+            {
+                Json element = ref.get();
+                if (element instanceof LazyObjectJson)
+                    ((LazyObjectJson)element).read();
+                else if (element instanceof LazyArrayJson)
+                    ((LazyArrayJson)element).read();
+            }
+            handed = null;
+        }
+        
+        JSObject resolve(Object[] path)
+        {
+            if (path.length == 0)
+                return copy;
+            StringBuilder sb = new StringBuilder("[");
+            for (int i = 0; i < path.length; i++)
+            {
+                if (i > 0)
+                    sb.append(',');
+                if (path[i] instanceof String)
+                    sb.append('"').append(Json.help.escape((String)path[i])).append('"');
+                else
+                    sb.append(path[i]);
+            }
+            return (JSObject)call(helpers(), "resolve", copy, sb.append(']').toString());
+        }
+        
+        Object[] child(Object[] path, Object key)
+        {
+            Object[] childPath = Arrays.copyOf(path, path.length + 1);
+            childPath[path.length] = key;
+            return childPath;
+        }
+        
+        /**
+         * Wraps an element read through a copy so that it belongs to the copy as well.
+         */
+        Json wrap(Json element, Object[] path, Object key)
+        {
+            if (copy != null || element instanceof LazyObjectJson || element instanceof LazyArrayJson)
+                return element;
+            else if (element instanceof ObjectJson)
+                return new LazyObjectJson(this, child(path, key), ((ObjectJson)element).object);
+            else if (element instanceof ArrayJson)
+                return new LazyArrayJson(this, child(path, key), ((ArrayJson)element).array);
+            else
+                return element;
+        }
+    }
+    
+    /**
+     * An object of a copy-on-write copy. It reads the original until the copy is modified,
+     * and follows its path into the engine side clone after that.
+     */
+    class LazyObjectJson extends ObjectJson
+    {
+        private static final long serialVersionUID = 1L;
+        
+        final CopyOnWrite cow;
+        final Object[] path;
+        boolean onCopy;
+        
+        LazyObjectJson(CopyOnWrite cow, Object[] path) { this(cow, path, cow.source); }
+        LazyObjectJson(CopyOnWrite cow, Object[] path, JSObject object) { super(object); this.cow = cow; this.path = path; cow.hand(this); }
+        
+        void read()
+        {
+            if (cow.copy != null && !onCopy)
+            {
+                object = cow.resolve(path);
+                onCopy = true;
+            }
+        }
+        
+        void write()
+        {
+            cow.materialize();
+            read();
+        }
+        
+        public Json at(String property) { read(); return cow.wrap(super.at(property), path, property); }
+        public boolean has(String property) { read(); return super.has(property); }
+        public Map<String, Json> asJsonMap()
+        {
+            read();
+            Map<String, Json> m = super.asJsonMap();
+            for (Map.Entry<String, Json> e : m.entrySet())
+                e.setValue(cow.wrap(e.getValue(), path, e.getKey()));
+            return m;
+        }
+        public Map<String, Object> asMap() { read(); return super.asMap(); }
+        public Json dup() { read(); return super.dup(); }
+        public Object getValue() { read(); return object; }
+        public String toString(int maxCharacters) { read(); return super.toString(maxCharacters); }
+        public Json set(String property, Json el) { write(); return super.set(property, el); }
+        public Json atDel(String property) { write(); return super.atDel(property); }
+        public Json delAt(String property) { write(); return super.delAt(property); }
+        public int hashCode() { read(); return super.hashCode(); }
+        public boolean equals(Object x) { read(); return super.equals(x); }
+    }
+    
+    /**
+     * An array of a copy-on-write copy, see {@link LazyObjectJson}.
+     */
+    class LazyArrayJson extends ArrayJson
+    {
+        private static final long serialVersionUID = 1L;
+        
+        final CopyOnWrite cow;
+        final Object[] path;
+        boolean onCopy;
+        
+        LazyArrayJson(CopyOnWrite cow, Object[] path) { this(cow, path, cow.source); }
+        LazyArrayJson(CopyOnWrite cow, Object[] path, JSObject array) { super(array); this.cow = cow; this.path = path; cow.hand(this); }
+        
+        void read()
+        {
+            if (cow.copy != null && !onCopy)
+            {
+                array = cow.resolve(path);
+                onCopy = true;
+            }
+        }
+        
+        void write()
+        {
+            cow.materialize();
+            read();
+        }
+        
+        int length() { read(); return super.length(); }
+        public Json at(int index) { read(); return cow.wrap(super.at(index), path, index); }
+        public List<Object> asList() { read(); return super.asList(); }
+        public Json dup() { read(); return super.dup(); }
+        public Object getValue() { read(); return array; }
+        public String toString(int maxCharacters) { read(); return super.toString(maxCharacters); }
+        public Json set(int index, Object value) { write(); return super.set(index, value); }
+        public Json add(Json el) { write(); return super.add(el); }
+        public Json remove(Json el) { write(); return super.remove(el); }
+        public Json with(Json object, Json...options) { write(); return super.with(object, options); }
+        Json withOptions(Json array, Json allOptions, String path) { write(); return super.withOptions(array, allOptions, path); }
+        public Json atDel(int index) { write(); return super.atDel(index); }
+        public Json delAt(int index) { write(); return super.delAt(index); }
+        public int hashCode() { read(); return super.hashCode(); }
+        public boolean equals(Object x) { read(); return super.equals(x); }
+    }
+
     @Override
     public Json object()
     {
@@ -501,18 +2056,7 @@ public class NetscapeJsonFactory extends Json.DefaultFactory implements java.io.
     public Json make(Object anything)
     {
         if (anything instanceof JSObject)
-        {
-            JSObject x = (JSObject)anything;
-            Object cons = x.getMember("constructor");
-            if ("undefined".equals(cons))
-                return new ObjectJson(x);
-            if (! (cons instanceof JSObject))
-                System.err.println("Oops " + x + " is not  a jsobject");
-            if (((JSObject)cons).getMember("name").toString().equals("Array"))
-                return new ArrayJson(x);
-            else
-                return new ObjectJson(x);
-        }
+            return wrap((JSObject)anything, (char)0);
         else
             return super.make(anything);
     }
@@ -0,0 +1,360 @@
+/**
+ * Copyright (c) Granthika Co., All Rights Reserved.
+ *
+ * Unauthorized copying of this file, via any medium is strictly prohibited.
+ * Proprietary and confidential.
+ */
+package mjson.nsjsobject;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import netscape.javascript.JSException;
+import netscape.javascript.JSObject;
+
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.ContextFactory;
+import org.mozilla.javascript.Function;
+import org.mozilla.javascript.RhinoException;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
+import org.mozilla.javascript.Undefined;
+import org.mozilla.javascript.Wrapper;
+
+/**
+ * <p>
+ * An embedded JavaScript engine, Rhino, behind <code>JSObject</code>s, standing in for the
+ * engine of a browser so that a {@link NetscapeJsonFactory} can be tested and benchmarked
+ * without one, e.g. in a headless build. The scripts the factory evaluates, the helpers of
+ * {@link NetscapeJsonFactory#HELPERS} among them, run as they would in a page.
+ * </p>
+ *
+ * <p>
+ * Values cross the bridge as LiveConnect in a browser has them: numbers come back as an
+ * <code>Integer</code> when they are whole and fit in one, as a <code>Double</code> otherwise,
+ * reading an undefined member gives the string <code>undefined</code>, and an object always
+ * comes back as the same <code>JSObject</code>. Java objects handed to the engine are seen by
+ * scripts as Java objects, as the listener of the <code>watch</code> helper is.
+ * </p>
+ *
+ * <p>
+ * Every call of a <code>JSObject</code> method is counted as a crossing of the bridge and,
+ * with {@link #latency(long)}, made to take at least as long as one does in a real browser,
+ * so that the cost of an operation shows in a benchmark as it would there.
+ * </p>
+ */
+public class LocalEngine
+{
+    final ContextFactory contexts = new ContextFactory()
+    {
+        @Override
+        protected void onContextCreated(Context cx)
+        {
+            super.onContextCreated(cx);
+            cx.setLanguageVersion(Context.VERSION_ES6);
+            // scripts are one-liners or evaluated once, not worth compiling to classes
+            cx.setInterpretedMode(true);
+        }
+    };
+    final ScriptableObject scope;
+    // a direct eval, so that a script evaluated on an object has it as this
+    final Function evaluator;
+    final LocalObject global;
+
+    volatile long latency;
+    final AtomicLong crossings = new AtomicLong();
+    // the only thread allowed to cross, null for any
+    volatile Thread owner;
+
+    // the JSObject of each engine object, neither kept alive by the map
+    final Map<Identity, WeakReference<LocalObject>> wrappers = new HashMap<Identity, WeakReference<LocalObject>>();
+    final ReferenceQueue<Object> collected = new ReferenceQueue<Object>();
+
+    public LocalEngine()
+    {
+        this(0);
+    }
+
+    /**
+     * @param latency the least time, in nanoseconds, each crossing of the bridge takes
+     */
+    public LocalEngine(long latency)
+    {
+        this.latency = latency;
+        Context cx = contexts.enterContext();
+        try
+        {
+            scope = cx.initStandardObjects();
+            evaluator = cx.compileFunction(scope, "function(script) { return eval(script); }", "eval", 1, null);
+        }
+        finally
+        {
+            Context.exit();
+        }
+        global = wrap(scope);
+    }
+
+    public LocalEngine latency(long latency)
+    {
+        this.latency = latency;
+        return this;
+    }
+
+    /**
+     * Fails every crossing made on a thread other than <code>owner</code>, as a browser
+     * engine does.
+     */
+    public LocalEngine confine(Thread owner)
+    {
+        this.owner = owner;
+        return this;
+    }
+
+    /**
+     * The global object, to give to a {@link NetscapeJsonFactory}.
+     */
+    public JSObject global()
+    {
+        return global;
+    }
+
+    /**
+     * The number of <code>JSObject</code> method calls made so far.
+     */
+    public long crossings()
+    {
+        return crossings.get();
+    }
+
+    void cross()
+    {
+        Thread confined = owner;
+        if (confined != null && Thread.currentThread() != confined)
+            throw new JSException("Crossing from " + Thread.currentThread().getName() + ", not the engine thread");
+        crossings.incrementAndGet();
+        long nanos = latency;
+        if (nanos > 0)
+        {
+            // spin, sleeping is far too coarse for the microseconds of a crossing
+            long end = System.nanoTime() + nanos;
+            while (System.nanoTime() - end < 0)
+                ;
+        }
+    }
+
+    /**
+     * The value a number takes crossing back, as LiveConnect returns it.
+     */
+    static Object number(Number n)
+    {
+        double d = n.doubleValue();
+        if (d == (int)d && !(d == 0 && 1 / d < 0))
+            return (int)d;
+        else
+            return d;
+    }
+
+    /**
+     * The engine value of a value handed to it.
+     */
+    Object in(Object value)
+    {
+        if (value == null || value instanceof String || value instanceof Boolean)
+            return value;
+        else if (value instanceof LocalObject)
+            return ((LocalObject)value).object;
+        else if (value instanceof Number)
+            return ((Number)value).doubleValue();
+        else if (value instanceof Character)
+            return value.toString();
+        else if (value instanceof JSObject)
+            throw new JSException("A JSObject of another engine");
+        else
+            return Context.javaToJS(value, scope);
+    }
+
+    /**
+     * The value an engine value crosses back as.
+     */
+    Object out(Object value)
+    {
+        if (value == null)
+            return null;
+        else if (value == Scriptable.NOT_FOUND || value instanceof Undefined)
+            return "undefined";
+        else if (value instanceof Wrapper)
+            return ((Wrapper)value).unwrap();
+        else if (value instanceof Scriptable)
+            return wrap((Scriptable)value);
+        else if (value instanceof Number)
+            return number((Number)value);
+        else if (value instanceof CharSequence)
+            return value.toString();
+        else
+            return value;
+    }
+
+    synchronized LocalObject wrap(Scriptable object)
+    {
+        for (Reference<?> r = collected.poll(); r != null; r = collected.poll())
+            wrappers.remove(r);
+        WeakReference<LocalObject> known = wrappers.get(new Identity(object, null));
+        LocalObject wrapper = known == null ? null : known.get();
+        if (wrapper == null)
+        {
+            wrapper = new LocalObject(object);
+            wrappers.put(new Identity(object, collected), new WeakReference<LocalObject>(wrapper));
+        }
+        return wrapper;
+    }
+
+    /**
+     * A weak key comparing its referent by identity.
+     */
+    static final class Identity extends WeakReference<Object>
+    {
+        final int hash;
+
+        Identity(Object referent, ReferenceQueue<Object> queue)
+        {
+            super(referent, queue);
+            hash = System.identityHashCode(referent);
+        }
+
+        public int hashCode()
+        {
+            return hash;
+        }
+
+        public boolean equals(Object x)
+        {
+            if (x == this)
+                return true;
+            Object referent = get();
+            return referent != null && x instanceof Identity && ((Identity)x).get() == referent;
+        }
+    }
+
+    /**
+     * An engine object seen from Java. Each method is one crossing of the bridge.
+     */
+    class LocalObject extends JSObject
+    {
+        final Scriptable object;
+
+        LocalObject(Scriptable object)
+        {
+            this.object = object;
+        }
+
+        /**
+         * Crosses the bridge: <code>op</code> is <code>c</code> to call the method
+         * <code>key</code>, <code>e</code> to evaluate the script <code>key</code>, and
+         * <code>g</code>, <code>s</code> or <code>r</code> to get, set or remove the member or
+         * slot <code>key</code>.
+         */
+        Object cross(char op, Object key, Object... args)
+        {
+            LocalEngine.this.cross();
+            Context cx = contexts.enterContext();
+            try
+            {
+                switch (op)
+                {
+                case 'c':
+                    Object method = ScriptableObject.getProperty(object, (String)key);
+                    if (!(method instanceof Function))
+                        throw new JSException(key + " is not a function");
+                    Object[] in = new Object[args.length];
+                    for (int i = 0; i < args.length; i++)
+                        in[i] = in(args[i]);
+                    return out(((Function)method).call(cx, scope, object, in));
+                case 'e':
+                    return out(evaluator.call(cx, scope, object, new Object[] { key }));
+                case 'g':
+                    return out(key instanceof Integer
+                               ? ScriptableObject.getProperty(object, (Integer)key)
+                               : ScriptableObject.getProperty(object, (String)key));
+                case 's':
+                    if (key instanceof Integer)
+                        ScriptableObject.putProperty(object, (Integer)key, in(args[0]));
+                    else
+                        ScriptableObject.putProperty(object, (String)key, in(args[0]));
+                    return null;
+                case 'r':
+                    ScriptableObject.deleteProperty(object, (String)key);
+                    return null;
+                default:
+                    throw new IllegalArgumentException("Unknown crossing " + op);
+                }
+            }
+            catch (RhinoException e)
+            {
+                throw new JSException(e.details());
+            }
+            finally
+            {
+                Context.exit();
+            }
+        }
+
+        @Override
+        public Object call(String method, Object... args)
+        {
+            return cross('c', method, args == null ? new Object[0] : args);
+        }
+
+        @Override
+        public Object eval(String script)
+        {
+            return cross('e', script);
+        }
+
+        @Override
+        public Object getMember(String name)
+        {
+            return cross('g', name);
+        }
+
+        @Override
+        public void setMember(String name, Object value)
+        {
+            cross('s', name, value);
+        }
+
+        @Override
+        public void removeMember(String name)
+        {
+            cross('r', name);
+        }
+
+        @Override
+        public Object getSlot(int index)
+        {
+            return cross('g', index);
+        }
+
+        @Override
+        public void setSlot(int index, Object value)
+        {
+            cross('s', index, value);
+        }
+
+        public String toString()
+        {
+            Context cx = contexts.enterContext();
+            try
+            {
+                return Context.toString(object);
+            }
+            finally
+            {
+                Context.exit();
+            }
+        }
+    }
+}
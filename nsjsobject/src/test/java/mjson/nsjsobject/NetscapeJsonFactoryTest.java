@@ -0,0 +1,333 @@
+package mjson.nsjsobject;
+
+import mjson.Json;
+import netscape.javascript.JSObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class NetscapeJsonFactoryTest {
+
+    private static final String DOCUMENT = "{\"name\": \"donut\", \"ppu\": 0.55, \"count\": 3, \"ok\": true, \"none\": null,"
+            + " \"batters\": [{\"id\": \"1001\", \"type\": \"Regular\"}, {\"id\": \"1002\", \"type\": \"Chocolate\"}],"
+            + " \"topping\": {\"id\": \"5001\", \"tags\": [\"a\", \"b\"]}}";
+
+    private final LocalEngine engine = new LocalEngine();
+    private NetscapeJsonFactory factory;
+    private NetscapeJsonFactory.BridgeMetrics metrics;
+
+    @Before
+    public void enter() {
+        factory = NetscapeJsonFactory.enter(engine.global());
+        metrics = new NetscapeJsonFactory.BridgeMetrics();
+        factory.metrics(metrics);
+    }
+
+    @After
+    public void close() {
+        factory.close();
+    }
+
+    private static Json local(String json) {
+        return NetscapeJsonFactory.readLocal(json);
+    }
+
+    private Json imported(String json) {
+        return factory.importJson(local(json));
+    }
+
+    private long crossings(Runnable work) {
+        long total = 0;
+        for (long count : metrics.crossings(work).values())
+            total += count;
+        return total;
+    }
+
+    @Test
+    public void members_are_read_and_written_through_the_engine() {
+        Json object = factory.object();
+        object.set("a", 1).set("it's \"quoted\"", "x").set("b", local("{\"c\": [1, 2.5]}"));
+
+        assertThat(object.has("it's \"quoted\"")).isTrue();
+        assertThat(object.has("missing")).isFalse();
+        assertThat(object.at("missing")).isNull();
+        assertThat(object.at("a").asInteger()).isEqualTo(1);
+        assertThat(object.at("b").at("c").asList()).containsExactly(1L, 2.5);
+        assertThat(object.atDel("a").asInteger()).isEqualTo(1);
+        assertThat(object.asJsonMap().keySet()).containsExactly("it's \"quoted\"", "b");
+        assertThat(object.toString()).isEqualTo("{\"it's \\\"quoted\\\"\":\"x\",\"b\":{\"c\":[1,2.5]}}");
+        assertThat(factory.nativeStringify(false).toString()).isNotNull();
+        assertThat(local(object.toString())).isEqualTo(local("{\"it's \\\"quoted\\\"\":\"x\",\"b\":{\"c\":[1,2.5]}}"));
+    }
+
+    @Test
+    public void imported_trees_read_back_equal() {
+        Json tree = imported(DOCUMENT);
+        Json copy = tree.dup();
+        copy.at("topping").set("id", "5002");
+
+        assertThat(tree).isInstanceOf(NetscapeJsonFactory.ObjectJson.class);
+        assertThat(local(tree.toString())).isEqualTo(local(DOCUMENT));
+        assertThat(NetscapeJsonFactory.local(tree)).isEqualTo(local(DOCUMENT));
+        assertThat(tree.at("topping").at("id").asString()).isEqualTo("5001");
+        assertThat(tree.at("batters").at(1).at("type").asString()).isEqualTo("Chocolate");
+        assertThat(tree.at("batters")).isSameAs(tree.at("batters"));
+    }
+
+    @Test
+    public void whole_objects_and_arrays_are_read_in_one_call() {
+        final Json tree = imported(DOCUMENT);
+        final Json numbers = factory.importJson(local("[1, 2, 3, 4, 5, 6, 7, 8, 9, 10]"));
+
+        assertThat(crossings(new Runnable() {
+            public void run() {
+                assertThat(numbers.asList()).hasSize(10);
+            }
+        })).isEqualTo(2);
+        // one helper call, then a getSlot for the JSON text and one per object member
+        metrics.assertAtMost(4, new Runnable() {
+            public void run() {
+                assertThat(tree.asJsonMap()).hasSize(7);
+            }
+        });
+    }
+
+    @Test
+    public void arrays_are_appended_removed_and_merged_in_bulk() {
+        final Json array = factory.importJson(local("[1, 2, 3]"));
+        final Json objects = imported("[{\"id\": 1}, {\"id\": 3}]");
+        final List<Json> many = new ArrayList<Json>();
+        for (int i = 0; i < 1000; i++)
+            many.add(Json.make(i));
+
+        metrics.assertAtMost(1, new Runnable() {
+            public void run() {
+                array.with(local(many.toString()));
+            }
+        });
+        assertThat(array.asJsonList()).hasSize(1003);
+        array.delAt(0).remove(Json.make(2));
+        assertThat(array.at(0).asInteger()).isEqualTo(3);
+        assertThat(array.atDel(0).asInteger()).isEqualTo(3);
+
+        objects.with(local("[{\"id\": 2}, {\"id\": 3, \"x\": true}]"), Json.object("compareBy", "/id"));
+        assertThat(local(objects.toString())).isEqualTo(local("[{\"id\": 1}, {\"id\": 3}, {\"id\": 2}]"));
+        Json pairs = imported("[{\"a\": 1, \"b\": {\"c\": 2, \"d\": 3}}]");
+        // engine objects keep the order their names were written in, unlike local ones
+        pairs.with(factory.make(engine.global().eval("[{b: {d: 3, c: 2}, a: 1}]")), Json.object());
+        pairs.with(factory.make(engine.global().eval("[{b: {d: 3, c: 2}, a: 2}]")), Json.object("compareBy", "/b"));
+        assertThat(pairs.asJsonList()).hasSize(1);
+        Json sorted = factory.importJson(local("[1, 3, 5]")).with(local("[2, 3, 6]"), Json.object("sort", true));
+        assertThat(sorted.asList()).containsExactly(1L, 2L, 3L, 5L, 6L);
+    }
+
+    @Test
+    public void copies_on_write_read_the_original_until_modified() {
+        Json tree = imported(DOCUMENT);
+        Json copy = factory.copyOnWrite(tree);
+
+        assertThat(copy.at("topping").getValue()).isSameAs(tree.at("topping").getValue());
+        copy.at("topping").set("id", "5002");
+
+        assertThat(copy.at("topping").at("id").asString()).isEqualTo("5002");
+        assertThat(tree.at("topping").at("id").asString()).isEqualTo("5001");
+        assertThat(copy.at("batters").at(0).at("id").asString()).isEqualTo("1001");
+    }
+
+    @Test
+    public void copies_on_write_keep_their_elements_across_structural_changes() {
+        Json tree = imported("{\"list\": [{\"n\": 0}, {\"n\": 1}, {\"n\": 2}, {\"n\": 3}]}");
+        Json copy = factory.copyOnWrite(tree);
+        Json second = copy.at("list").at(2), last = copy.at("list").at(3);
+
+        copy.at("list").delAt(0);
+        Json list = copy.at("list");
+        Json first = list.at(0);
+        list.delAt(0);
+
+        assertThat(second.at("n").asInteger()).isEqualTo(2);
+        assertThat(last.at("n").asInteger()).isEqualTo(3);
+        assertThat(first.at("n").asInteger()).isEqualTo(1);
+        second.set("n", 20);
+        assertThat(local(copy.toString())).isEqualTo(local("{\"list\": [{\"n\": 20}, {\"n\": 3}]}"));
+        assertThat(local(tree.toString())).isEqualTo(local("{\"list\": [{\"n\": 0}, {\"n\": 1}, {\"n\": 2}, {\"n\": 3}]}"));
+    }
+
+    @Test
+    public void writes_behind_are_sent_in_one_call() {
+        final Json tree = imported(DOCUMENT);
+        final Json batters = tree.at("batters");
+        final List<Runnable> flushes = new ArrayList<Runnable>();
+        factory.writeBehind(new java.util.concurrent.Executor() {
+            public void execute(Runnable command) {
+                flushes.add(command);
+            }
+        });
+
+        assertThat(crossings(new Runnable() {
+            public void run() {
+                for (int i = 0; i < 100; i++)
+                    tree.set("k" + i, i);
+                tree.delAt("ok");
+                batters.add(local("{\"id\": \"1003\"}")).delAt(0).set(0, "first");
+            }
+        })).isEqualTo(0);
+        assertThat(flushes).hasSize(1);
+
+        assertThat(crossings(flushes.get(0))).isEqualTo(1);
+        assertThat(tree.at("k99").asInteger()).isEqualTo(99);
+        assertThat(tree.has("ok")).isFalse();
+        assertThat(local(batters.toString())).isEqualTo(local("[\"first\", {\"id\": \"1003\"}]"));
+
+        tree.set("name", "cruller");
+        assertThat(tree.at("name").asString()).isEqualTo("cruller");
+        factory.writeBehind(false);
+    }
+
+    @Test
+    public void worker_threads_share_one_engine_thread() throws Exception {
+        final LocalEngine page = new LocalEngine();
+        final ExecutorService engineThread = Executors.newSingleThreadExecutor();
+        ExecutorService workers = Executors.newFixedThreadPool(4);
+        try {
+            final NetscapeJsonFactory handle = engineThread.submit(new Callable<NetscapeJsonFactory>() {
+                public NetscapeJsonFactory call() {
+                    page.confine(Thread.currentThread());
+                    return new NetscapeJsonFactory(page.global()).engine(engineThread).writeBehind(true);
+                }
+            }).get();
+            final Json shared = handle.object();
+            List<Future<Integer>> reads = new ArrayList<Future<Integer>>();
+            for (int i = 0; i < 4; i++) {
+                final int worker = i;
+                reads.add(workers.submit(new Callable<Integer>() {
+                    public Integer call() {
+                        for (int j = 0; j < 100; j++)
+                            shared.set("w" + worker + "-" + j, j);
+                        shared.set("c" + worker, handle.object().set("n", worker));
+                        return handle.onEngine(new Supplier<Integer>() {
+                            public Integer get() {
+                                return shared.at("c" + worker).at("n").asInteger() + shared.at("w" + worker + "-99").asInteger();
+                            }
+                        });
+                    }
+                }));
+            }
+            for (int i = 0; i < 4; i++)
+                assertThat(reads.get(i).get()).isEqualTo(i + 99);
+            handle.flush();
+            assertThat(shared.asJsonMap()).hasSize(4 * 101);
+            assertThat(Json.factory()).isSameAs(factory);
+        } finally {
+            workers.shutdown();
+            engineThread.shutdown();
+        }
+    }
+
+    @Test
+    public void mirrors_send_only_the_changes() {
+        final Json model = local(DOCUMENT);
+        final NetscapeJsonFactory.Mirror mirror = factory.mirror(model);
+        model.set("count", 4).delAt("none");
+        model.at("batters").add(local("{\"id\": \"1003\"}"));
+        model.at("topping").at("tags").delAt(0);
+
+        assertThat(crossings(new Runnable() {
+            public void run() {
+                assertThat(mirror.update(model).asJsonList()).hasSize(4);
+            }
+        })).isEqualTo(1);
+        assertThat(local(mirror.element().toString())).isEqualTo(model);
+        assertThat(mirror.update(model).asJsonList()).isEmpty();
+
+        Json patch = local("[{\"op\": \"move\", \"from\": \"/count\", \"path\": \"/n\"},"
+                + " {\"op\": \"copy\", \"from\": \"/topping/tags\", \"path\": \"/tags\"},"
+                + " {\"op\": \"test\", \"path\": \"/tags\", \"value\": [\"b\"]}]");
+        factory.patch(mirror.element(), patch);
+        assertThat(mirror.element().at("n").asInteger()).isEqualTo(4);
+        assertThat(mirror.element().has("count")).isFalse();
+        assertThat(mirror.element().at("tags").asList()).containsExactly("b");
+        factory.patch(mirror.element(), local("[{\"op\": \"replace\", \"path\": \"\", \"value\": {\"x\": [1]}}]"));
+        assertThat(local(mirror.element().toString())).isEqualTo(local("{\"x\": [1]}"));
+        assertThat(NetscapeJsonFactory.diff(local("[1, 2, 3, 4]"), local("[1, 4]")))
+                .isEqualTo(local("[{\"op\": \"remove\", \"path\": \"/2\"}, {\"op\": \"remove\", \"path\": \"/1\"}]"));
+    }
+
+    @Test
+    public void cached_reads_stay_on_the_java_side_until_written() {
+        final Json tree = factory.readCache(true).watch(imported(DOCUMENT));
+        tree.at("name");
+        tree.at("topping").at("tags").asList();
+
+        assertThat(crossings(new Runnable() {
+            public void run() {
+                for (int i = 0; i < 10; i++) {
+                    tree.at("name");
+                    tree.has("missing");
+                    tree.at("topping").at("tags").at(1);
+                }
+            }
+        })).isEqualTo(1);
+
+        // the page writes through the proxy it was handed
+        JSObject page = (JSObject) tree.at("topping").getValue();
+        page.setMember("id", "5002");
+        assertThat(tree.at("topping").at("id").asString()).isEqualTo("5002");
+
+        tree.set("name", "cruller");
+        assertThat(tree.at("name").asString()).isEqualTo("cruller");
+        factory.readCache(false);
+    }
+
+    @Test
+    public void crossings_are_filed_by_operation() {
+        final Json object = factory.object();
+        Map<String, Long> made = metrics.crossings(new Runnable() {
+            public void run() {
+                object.set("a", 1);
+                object.at("a");
+            }
+        });
+
+        assertThat(made).containsEntry("ObjectJson.set setMember", 1L).containsEntry("ObjectJson.at call member", 1L);
+        try {
+            metrics.assertAtMost(0, new Runnable() {
+                public void run() {
+                    object.delAt("a");
+                }
+            });
+            fail("Expected the budget to be exceeded");
+        } catch (AssertionError e) {
+            assertThat(e.getMessage()).contains("ObjectJson.delAt removeMember=1");
+        }
+    }
+
+    @Test
+    public void every_crossing_takes_the_simulated_latency() {
+        final Json array = factory.importJson(local("[1, 2, 3]"));
+        engine.latency(1000000);
+
+        long start = System.nanoTime();
+        long crossings = crossings(new Runnable() {
+            public void run() {
+                for (int i = 0; i < 3; i++)
+                    array.at(i);
+            }
+        });
+
+        assertThat(crossings).isEqualTo(3);
+        assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(3000000L);
+    }
+}